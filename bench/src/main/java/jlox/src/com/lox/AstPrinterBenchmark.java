@@ -0,0 +1,76 @@
+package jlox.src.com.lox;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of printing every expression parsed from a corpus, both as
+ * Strings and streamed into one reused buffer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AstPrinterBenchmark {
+    // IDENTIFIERS is left out: the parser cannot parse identifiers yet.
+    @Param({ "NUMBERS", "COMMENTS", "NESTED", "STRINGS" })
+    Corpus.Shape shape;
+
+    // Characters of source per corpus.
+    @Param({ "1048576" })
+    int size;
+
+    // Parentheses deep for NESTED corpora.
+    @Param({ "64" })
+    int depth;
+
+    private final AstPrinter printer = new AstPrinter();
+    private final StringBuilder buffer = new StringBuilder();
+    private List<Expr> expressions;
+
+    @Setup
+    public void setUp() {
+        expressions = new ArrayList<>();
+        Parser parser = new Parser(new Scanner(Corpus.generate(shape, size, depth)));
+        while (parser.hasNext()) {
+            Expr expression = parser.next();
+            if (expression == null) {
+                throw new IllegalStateException("Corpus does not parse.");
+            }
+            expressions.add(expression);
+        }
+    }
+
+    @Benchmark
+    public void print(Blackhole blackhole) {
+        for (Expr expression : expressions) {
+            blackhole.consume(printer.print(expression));
+        }
+    }
+
+    @Benchmark
+    public int printStreaming() throws IOException {
+        buffer.setLength(0);
+        for (Expr expression : expressions) {
+            printer.print(expression, buffer);
+        }
+        return buffer.length();
+    }
+}
@@ -0,0 +1,166 @@
+package jlox.src.com.lox;
+
+import java.util.Random;
+
+/**
+ * Synthetic lox source for the benchmarks. The same shape, size and depth
+ * always generate the same source.
+ */
+public final class Corpus {
+    public enum Shape {
+        // Identifiers and keywords, e.g. "var total_3 = count and nil;". The
+        // parser cannot parse these yet, so only the scanner uses them.
+        IDENTIFIERS,
+        // Integer and decimal arithmetic, e.g. "12.375 + 4096 * 0.5;".
+        NUMBERS,
+        // Runs of line comments between short expressions.
+        COMMENTS,
+        // Expressions nested depth parentheses deep.
+        NESTED,
+        // Concatenations of long string literals.
+        STRINGS
+    }
+
+    private static final String[] WORDS = {
+            "count", "total", "index", "value", "result", "node", "left", "right",
+            "buffer", "offset", "length", "symbol", "token", "scanner", "parser"
+    };
+    private static final String[] KEYWORDS = {
+            "and", "or", "nil", "true", "false", "this", "super"
+    };
+    private static final String[] OPERATORS = { " + ", " - ", " * ", " / " };
+
+    private Corpus() {
+    }
+
+    /**
+     * Generate at least size characters of lox source code.
+     * 
+     * @param shape what kind of source to generate
+     * @param size  roughly how many characters to generate
+     * @param depth how deep to nest NESTED expressions
+     * @return the source code
+     */
+    static String generate(Shape shape, int size, int depth) {
+        Random random = new Random(size * 31L + shape.ordinal());
+        StringBuilder source = new StringBuilder(size + 4096);
+        while (source.length() < size) {
+            switch (shape) {
+                case IDENTIFIERS:
+                    identifiers(source, random);
+                    break;
+                case NUMBERS:
+                    numbers(source, random);
+                    break;
+                case COMMENTS:
+                    comments(source, random);
+                    break;
+                case NESTED:
+                    nested(source, random, depth);
+                    break;
+                case STRINGS:
+                    strings(source, random);
+                    break;
+                default:
+                    throw new IllegalArgumentException(shape.name());
+            }
+        }
+        return source.toString();
+    }
+
+    private static void identifiers(StringBuilder source, Random random) {
+        source.append("var ").append(identifier(random)).append(" = ");
+        int terms = 2 + random.nextInt(6);
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) {
+                source.append(random.nextBoolean() ? " and " : " or ");
+            }
+            if (random.nextInt(4) == 0) {
+                source.append(KEYWORDS[random.nextInt(KEYWORDS.length)]);
+            } else {
+                source.append(identifier(random));
+            }
+        }
+        source.append(";\n");
+    }
+
+    private static String identifier(Random random) {
+        String word = WORDS[random.nextInt(WORDS.length)];
+        switch (random.nextInt(3)) {
+            case 0:
+                return word;
+            case 1:
+                return word + "_" + WORDS[random.nextInt(WORDS.length)];
+            default:
+                return word + random.nextInt(1000);
+        }
+    }
+
+    private static void numbers(StringBuilder source, Random random) {
+        int terms = 2 + random.nextInt(8);
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) {
+                source.append(OPERATORS[random.nextInt(OPERATORS.length)]);
+            }
+            number(source, random);
+        }
+        source.append(";\n");
+    }
+
+    private static void number(StringBuilder source, Random random) {
+        source.append(random.nextInt(100000));
+        if (random.nextBoolean()) {
+            source.append('.').append(random.nextInt(1000));
+        }
+    }
+
+    private static void comments(StringBuilder source, Random random) {
+        int lines = 1 + random.nextInt(6);
+        for (int i = 0; i < lines; i++) {
+            source.append("//");
+            int words = 4 + random.nextInt(12);
+            for (int j = 0; j < words; j++) {
+                source.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            source.append('\n');
+        }
+        number(source, random);
+        source.append(" + ");
+        number(source, random);
+        source.append(";\n");
+    }
+
+    private static void nested(StringBuilder source, Random random, int depth) {
+        for (int i = 0; i < depth; i++) {
+            source.append('(');
+            if (random.nextInt(4) == 0) {
+                source.append('-');
+            }
+        }
+        number(source, random);
+        for (int i = 0; i < depth; i++) {
+            source.append(OPERATORS[random.nextInt(OPERATORS.length)]);
+            number(source, random);
+            source.append(')');
+        }
+        source.append(";\n");
+    }
+
+    private static void strings(StringBuilder source, Random random) {
+        int terms = 1 + random.nextInt(3);
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) {
+                source.append(" + ");
+            }
+            source.append('"');
+            int length = 64 + random.nextInt(2048);
+            for (int j = 0; j < length; j++) {
+                // Mostly letters, with the occasional space and newline.
+                int c = random.nextInt(40);
+                source.append(c < 26 ? (char) ('a' + c) : c < 39 ? ' ' : '\n');
+            }
+            source.append('"');
+        }
+        source.append(";\n");
+    }
+}
@@ -0,0 +1,120 @@
+package jlox.src.com.lox;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to evaluate one long expression in each execution mode: tree
+ * walking, the self-specializing node tree, the bytecode VM and a compiled
+ * JVM class. Divide by operators for the cost per operator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutionBenchmark {
+    public enum Shape {
+        // Number arithmetic, e.g. "1 + 2.5 * 3.5 - 4.5".
+        ARITHMETIC,
+        // Comparisons and negations, e.g. "true == !(0 < 1)".
+        COMPARISONS,
+        // String concatenation, e.g. "\"a\" + \"b\" + \"b\"".
+        STRINGS
+    }
+
+    @Param({ "ARITHMETIC", "COMPARISONS", "STRINGS" })
+    Shape shape;
+
+    // Operators per expression.
+    @Param({ "1000" })
+    int operators;
+
+    private Expr expr;
+    private Interpreter tree;
+    private EvalNode.Root root;
+    private Chunk chunk;
+    private VM vm;
+    private JitCompiler.Compiled compiled;
+
+    @Setup
+    public void setUp() {
+        expr = new Parser(new Scanner(source(shape, operators))).next();
+        if (expr == null) {
+            throw new IllegalStateException("Expression does not parse.");
+        }
+        tree = new Interpreter(Interpreter.Mode.TREE);
+        root = EvalNode.build(expr);
+        chunk = BytecodeCompiler.compile(expr);
+        vm = new VM();
+        // Compiled up front, as jit mode does once a tree is hot.
+        compiled = JitCompiler.compile(expr);
+    }
+
+    @Benchmark
+    public Object tree() {
+        return tree.evaluate(expr);
+    }
+
+    @Benchmark
+    public Object nodes() {
+        return root.execute();
+    }
+
+    @Benchmark
+    public Object vm() {
+        return vm.run(chunk);
+    }
+
+    /**
+     * The expressions are all literals, and a compiled class keeps them as
+     * constants, so HotSpot may fold ARITHMETIC and COMPARISONS down to their
+     * result: those measure little more than the call.
+     */
+    @Benchmark
+    public Object jit() {
+        return compiled.execute();
+    }
+
+    private static String source(Shape shape, int operators) {
+        switch (shape) {
+            case ARITHMETIC: {
+                StringBuilder source = new StringBuilder("1");
+                String[] ops = { " + ", " * ", " - ", " / " };
+                for (int i = 0; i < operators; i++) {
+                    source.append(ops[i % ops.length]).append(i % 7 + 1).append(".5");
+                }
+                return source.toString();
+            }
+            case COMPARISONS: {
+                // Three operators per step: ==, ! and <.
+                StringBuilder source = new StringBuilder("true");
+                for (int i = 0; i < operators / 3; i++) {
+                    source.append(" == !(").append(i).append(" < ").append(i + 1).append(")");
+                }
+                return source.toString();
+            }
+            case STRINGS: {
+                StringBuilder source = new StringBuilder("\"a\"");
+                for (int i = 0; i < operators; i++) {
+                    source.append(" + \"b\"");
+                }
+                return source.toString();
+            }
+            default:
+                throw new IllegalArgumentException(shape.name());
+        }
+    }
+}
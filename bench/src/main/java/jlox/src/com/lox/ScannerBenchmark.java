@@ -0,0 +1,59 @@
+package jlox.src.com.lox;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of scanning a whole corpus into a list of Tokens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScannerBenchmark {
+    @Param({ "IDENTIFIERS", "NUMBERS", "COMMENTS", "NESTED", "STRINGS" })
+    Corpus.Shape shape;
+
+    // Characters of source per corpus.
+    @Param({ "1048576" })
+    int size;
+
+    // Parentheses deep for NESTED corpora.
+    @Param({ "64" })
+    int depth;
+
+    private String source;
+
+    @Setup
+    public void setUp() {
+        source = Corpus.generate(shape, size, depth);
+    }
+
+    @Benchmark
+    public List<Token> scanTokens() {
+        return new Scanner(source).scanTokens();
+    }
+
+    /**
+     * Scan without allocating a Token per lexeme, so the time is mostly the
+     * scanner's own loops.
+     */
+    @Benchmark
+    public TokenBuffer scanTokenBuffer() {
+        return new Scanner(source).scanTokenBuffer();
+    }
+}
@@ -1,8 +1,72 @@
 package jlox.src.com.lox;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
 public class AstPrinter implements Expr.Visitor<String> {
     String print(Expr expr) {
-        return expr.accept(this);
+        StringBuilder builder = new StringBuilder();
+        try {
+            print(expr, builder);
+        } catch (IOException e) {
+            // A StringBuilder never throws.
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Stream an expression's printed form into out, producing the same text
+     * as print(expr). An explicit work stack replaces recursion, so each node
+     * is written once, no intermediate Strings are built, and deep trees
+     * cannot overflow the call stack.
+     * 
+     * @param expr the expression to print
+     * @param out  where to write the printed form
+     * @throws IOException if out cannot be written to
+     */
+    void print(Expr expr, Appendable out) throws IOException {
+        // Holds Exprs still to print and Strings still to write, in reverse.
+        Deque<Object> work = new ArrayDeque<>();
+        work.push(expr);
+
+        while (!work.isEmpty()) {
+            Object item = work.pop();
+            if (item instanceof String) {
+                out.append((String) item);
+            } else if (item instanceof Expr.Binary) {
+                Expr.Binary binary = (Expr.Binary) item;
+                open(out, work, binary.operator.lexeme, binary.left, binary.right);
+            } else if (item instanceof Expr.Grouping) {
+                open(out, work, "group", ((Expr.Grouping) item).expression);
+            } else if (item instanceof Expr.Unary) {
+                Expr.Unary unary = (Expr.Unary) item;
+                open(out, work, unary.operator.lexeme, unary.right);
+            } else {
+                // A literal, which prints without recursing.
+                out.append(((Expr) item).accept(this));
+            }
+        }
+    }
+
+    /**
+     * Write the start of a parenthesized node, and schedule its children and
+     * closing parenthesis.
+     */
+    private void open(Appendable out, Deque<Object> work, String name, Expr... exprs)
+            throws IOException {
+        out.append("(").append(name);
+        work.push(")");
+        for (int i = exprs.length - 1; i >= 0; i--) {
+            work.push(exprs[i]);
+            work.push(" ");
+        }
     }
 
     @Override
@@ -16,11 +80,23 @@ public class AstPrinter implements Expr.Visitor<String> {
     }
 
     @Override
-    public String visitLiteralExpr(Expr.Literal expr) {
-        if (expr.value == null) {
-            return "nil";
-        }
-        return expr.value.toString();
+    public String visitNumberLiteralExpr(Expr.NumberLiteral expr) {
+        return Double.toString(expr.value);
+    }
+
+    @Override
+    public String visitStringLiteralExpr(Expr.StringLiteral expr) {
+        return expr.value;
+    }
+
+    @Override
+    public String visitBoolLiteralExpr(Expr.BoolLiteral expr) {
+        return Boolean.toString(expr.value);
+    }
+
+    @Override
+    public String visitNilLiteralExpr(Expr.NilLiteral expr) {
+        return "nil";
     }
 
     @Override
@@ -41,14 +117,44 @@ public class AstPrinter implements Expr.Visitor<String> {
         return builder.toString();
     }
 
-    public static void main(String[] args) {
+    /**
+     * Print a sample expression, or stream the AST of every expression in a
+     * lox source file to standard output, one per line.
+     * 
+     * @param args a valid filepath to a lox source file, if desired
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0) {
+            dump(args[0]);
+            return;
+        }
+
         Expr expression = new Expr.Binary(
                 new Expr.Unary(
                         new Token(TokenType.MINUS, "-", null, 1),
-                        new Expr.Literal(123)),
+                        new Expr.NumberLiteral(123)),
                 new Token(TokenType.STAR, "*", null, 1),
-                new Expr.Grouping(new Expr.Literal(45.67)));
+                new Expr.Grouping(new Expr.NumberLiteral(45.67)));
 
         System.out.println(new AstPrinter().print(expression));
     }
+
+    private static void dump(String path) throws IOException {
+        AstPrinter printer = new AstPrinter();
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+        RunContext context = new RunContext(System.out, System.err);
+        try (MappedSource source = MappedSource.open(Paths.get(path))) {
+            Parser parser = new Parser(new Scanner(source, context));
+            while (parser.hasNext()) {
+                Expr expression = parser.next();
+                if (expression != null) {
+                    printer.print(expression, out);
+                    out.append('\n');
+                }
+            }
+        }
+        out.flush();
+        context.flush();
+    }
 }
@@ -0,0 +1,190 @@
+package jlox.src.com.lox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Run many scripts at once, each with its own RunContext, on a pool of
+ * threads. Prints a line per script, in the order given, then a summary.
+ */
+class BatchRunner {
+    // How much of a failing script's diagnostics to show.
+    private static final int MAX_DIAGNOSTIC_LINES = 5;
+    private static final int MAX_DIAGNOSTIC_WIDTH = 120;
+
+    private final int threads;
+    private final PrintStream out;
+
+    /**
+     * @param threads how many scripts to run at once
+     * @param out     where to print results
+     */
+    BatchRunner(int threads, PrintStream out) {
+        this.threads = threads;
+        this.out = out;
+    }
+
+    /**
+     * The outcome of running one script.
+     */
+    private static class Result {
+        final Path script;
+        final int status;
+        final long nanos;
+        final String diagnostics;
+
+        Result(Path script, int status, long nanos, String diagnostics) {
+            this.script = script;
+            this.status = status;
+            this.nanos = nanos;
+            this.diagnostics = diagnostics;
+        }
+    }
+
+    /**
+     * Run every script in the given files and directories.
+     * 
+     * @param inputs lox source files, and directories to search for .lox
+     *               files
+     * @return the exit code: 65 if any script had a syntax error, otherwise 70
+     *         if any had a runtime error, otherwise 0
+     * @throws IOException if a directory cannot be searched
+     */
+    int run(List<Path> inputs) throws IOException {
+        List<Path> scripts = new ArrayList<>();
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> files = Files.walk(input)) {
+                    scripts.addAll(files
+                            .filter(file -> file.toString().endsWith(".lox") && Files.isRegularFile(file))
+                            .sorted()
+                            .collect(Collectors.toList()));
+                }
+            } else {
+                scripts.add(input);
+            }
+        }
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Result>> results = new ArrayList<>();
+        for (Path script : scripts) {
+            results.add(pool.submit(() -> runScript(script)));
+        }
+
+        int passed = 0;
+        int syntaxErrors = 0;
+        int runtimeErrors = 0;
+        int otherErrors = 0;
+        long busyNanos = 0;
+        try {
+            for (int i = 0; i < scripts.size(); i++) {
+                Result result = collect(scripts.get(i), results.get(i));
+                report(result);
+                busyNanos += result.nanos;
+                switch (result.status) {
+                    case 0:
+                        passed++;
+                        break;
+                    case 65:
+                        syntaxErrors++;
+                        break;
+                    case 70:
+                        runtimeErrors++;
+                        break;
+                    default:
+                        otherErrors++;
+                        break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } finally {
+            pool.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        out.printf("%d scripts: %d passed, %d syntax errors, %d runtime errors, %d unreadable%n",
+                scripts.size(), passed, syntaxErrors, runtimeErrors, otherErrors);
+        out.printf("%.1f ms elapsed on %d threads, %.1f ms summed over runs, %.1f scripts/s%n",
+                elapsed / 1e6, threads, busyNanos / 1e6, scripts.size() / (elapsed / 1e9));
+
+        if (syntaxErrors > 0) {
+            return 65;
+        }
+        if (runtimeErrors > 0) {
+            return 70;
+        }
+        return otherErrors > 0 ? 66 : 0;
+    }
+
+    /**
+     * Run one script, keeping its output and diagnostics to itself.
+     */
+    private static Result runScript(Path script) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ByteArrayOutputStream diagnostics = new ByteArrayOutputStream();
+        RunContext context = Lox.newContext(
+                new PrintStream(output, false, StandardCharsets.UTF_8),
+                new PrintStream(diagnostics, false, StandardCharsets.UTF_8));
+
+        long start = System.nanoTime();
+        int status;
+        try {
+            status = Lox.runFile(script.toString(), context);
+        } catch (IOException e) {
+            context.err().println("Could not read " + script + ": " + e);
+            status = 66;
+        }
+        long nanos = System.nanoTime() - start;
+
+        context.err().flush();
+        return new Result(script, status, nanos, diagnostics.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Wait for a script's run. A run that died of an unexpected exception
+     * counts as that script's runtime error, so the rest of the batch still
+     * reports.
+     */
+    private static Result collect(Path script, Future<Result> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            return new Result(script, 70, 0, "Internal error: " + e.getCause());
+        }
+    }
+
+    private void report(Result result) {
+        String outcome = result.status == 0 ? "ok" : "FAILED (" + result.status + ")";
+        out.printf("%-10s %8.2f ms  %s%n", outcome, result.nanos / 1e6, result.script);
+        if (result.status == 0) {
+            return;
+        }
+
+        String[] lines = result.diagnostics.split("\n");
+        for (int i = 0; i < Math.min(lines.length, MAX_DIAGNOSTIC_LINES); i++) {
+            String line = lines[i];
+            if (line.length() > MAX_DIAGNOSTIC_WIDTH) {
+                line = line.substring(0, MAX_DIAGNOSTIC_WIDTH) + "...";
+            }
+            out.println("    " + line);
+        }
+        if (lines.length > MAX_DIAGNOSTIC_LINES) {
+            out.println("    (" + (lines.length - MAX_DIAGNOSTIC_LINES) + " more lines)");
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package jlox.src.com.lox;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static jlox.src.com.lox.Chunk.*;
+
+/**
+ * Compile an Expr into a Chunk of bytecode for the VM. Operands are emitted
+ * before their operator, so the VM runs the code with a single stack.
+ */
+class BytecodeCompiler implements Expr.Visitor<Void> {
+    private byte[] code = new byte[64];
+    private int count = 0;
+    private double[] numbers = new double[8];
+    private int numberCount = 0;
+    private Object[] constants = new Object[8];
+    private int constantCount = 0;
+    private final Map<Double, Integer> numberIndices = new HashMap<>();
+    private final Map<Object, Integer> constantIndices = new HashMap<>();
+    private int[] errorOffsets = new int[8];
+    private Token[] errorTokens = new Token[8];
+    private int errorCount = 0;
+    private int depth = 0;
+    private int maxDepth = 0;
+
+    /**
+     * Compile an expression.
+     * 
+     * @param expr a valid lox expression
+     * @return bytecode that leaves the expression's value on the stack and
+     *         returns it
+     */
+    static Chunk compile(Expr expr) {
+        BytecodeCompiler compiler = new BytecodeCompiler();
+        expr.accept(compiler);
+        compiler.emit(OP_RETURN);
+        return compiler.chunk();
+    }
+
+    @Override
+    public Void visitBinaryExpr(Expr.Binary expr) {
+        expr.left.accept(this);
+        expr.right.accept(this);
+
+        switch (expr.operator.type) {
+            case PLUS:
+                emit(OP_ADD, expr.operator);
+                break;
+            case MINUS:
+                emit(OP_SUBTRACT, expr.operator);
+                break;
+            case STAR:
+                emit(OP_MULTIPLY, expr.operator);
+                break;
+            case SLASH:
+                emit(OP_DIVIDE, expr.operator);
+                break;
+            case GREATER:
+                emit(OP_GREATER, expr.operator);
+                break;
+            case GREATER_EQUAL:
+                emit(OP_GREATER_EQUAL, expr.operator);
+                break;
+            case LESS:
+                emit(OP_LESS, expr.operator);
+                break;
+            case LESS_EQUAL:
+                emit(OP_LESS_EQUAL, expr.operator);
+                break;
+            case EQUAL_EQUAL:
+                emit(OP_EQUAL);
+                break;
+            case BANG_EQUAL:
+                emit(OP_NOT_EQUAL);
+                break;
+            default:
+                // Unreachable.
+                break;
+        }
+        // Two operands in, one result out.
+        depth--;
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Expr.Grouping expr) {
+        expr.expression.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitNumberLiteralExpr(Expr.NumberLiteral expr) {
+        emit(OP_NUMBER);
+        emitInt(number(expr.value));
+        push();
+        return null;
+    }
+
+    @Override
+    public Void visitStringLiteralExpr(Expr.StringLiteral expr) {
+        emit(OP_CONSTANT);
+        emitInt(constant(expr.value));
+        push();
+        return null;
+    }
+
+    @Override
+    public Void visitBoolLiteralExpr(Expr.BoolLiteral expr) {
+        emit(expr.value ? OP_TRUE : OP_FALSE);
+        push();
+        return null;
+    }
+
+    @Override
+    public Void visitNilLiteralExpr(Expr.NilLiteral expr) {
+        emit(OP_NIL);
+        push();
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Expr.Unary expr) {
+        expr.right.accept(this);
+
+        switch (expr.operator.type) {
+            case MINUS:
+                emit(OP_NEGATE, expr.operator);
+                break;
+            case BANG:
+                emit(OP_NOT);
+                break;
+            default:
+                // Unreachable.
+                break;
+        }
+        return null;
+    }
+
+    private void push() {
+        depth++;
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    private void emit(byte b) {
+        if (count == code.length) {
+            code = Arrays.copyOf(code, count * 2);
+        }
+        code[count++] = b;
+    }
+
+    /**
+     * Emit an instruction that can raise a runtime error.
+     * 
+     * @param op       the opcode
+     * @param operator the Token to report errors at
+     */
+    private void emit(byte op, Token operator) {
+        if (errorCount == errorOffsets.length) {
+            errorOffsets = Arrays.copyOf(errorOffsets, errorCount * 2);
+            errorTokens = Arrays.copyOf(errorTokens, errorCount * 2);
+        }
+        errorOffsets[errorCount] = count;
+        errorTokens[errorCount] = operator;
+        errorCount++;
+        emit(op);
+    }
+
+    private void emitInt(int value) {
+        emit((byte) (value >>> 24));
+        emit((byte) (value >>> 16));
+        emit((byte) (value >>> 8));
+        emit((byte) value);
+    }
+
+    private int number(double value) {
+        Integer index = numberIndices.get(value);
+        if (index != null) {
+            return index;
+        }
+        if (numberCount == numbers.length) {
+            numbers = Arrays.copyOf(numbers, numberCount * 2);
+        }
+        numbers[numberCount] = value;
+        numberIndices.put(value, numberCount);
+        return numberCount++;
+    }
+
+    private int constant(Object value) {
+        Integer index = constantIndices.get(value);
+        if (index != null) {
+            return index;
+        }
+        if (constantCount == constants.length) {
+            constants = Arrays.copyOf(constants, constantCount * 2);
+        }
+        constants[constantCount] = value;
+        constantIndices.put(value, constantCount);
+        return constantCount++;
+    }
+
+    private Chunk chunk() {
+        return new Chunk(Arrays.copyOf(code, count),
+                Arrays.copyOf(numbers, numberCount),
+                Arrays.copyOf(constants, constantCount),
+                maxDepth,
+                Arrays.copyOf(errorOffsets, errorCount),
+                Arrays.copyOf(errorTokens, errorCount));
+    }
+}
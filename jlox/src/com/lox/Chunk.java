@@ -0,0 +1,60 @@
+package jlox.src.com.lox;
+
+import java.util.Arrays;
+
+/**
+ * A compiled expression: a compact array of bytecode plus its constant pools.
+ * Instructions are a one-byte opcode, followed by a four-byte constant index
+ * for OP_NUMBER and OP_CONSTANT.
+ */
+class Chunk {
+    static final byte OP_NUMBER = 0;
+    static final byte OP_CONSTANT = 1;
+    static final byte OP_NIL = 2;
+    static final byte OP_TRUE = 3;
+    static final byte OP_FALSE = 4;
+    static final byte OP_NEGATE = 5;
+    static final byte OP_NOT = 6;
+    static final byte OP_ADD = 7;
+    static final byte OP_SUBTRACT = 8;
+    static final byte OP_MULTIPLY = 9;
+    static final byte OP_DIVIDE = 10;
+    static final byte OP_GREATER = 11;
+    static final byte OP_GREATER_EQUAL = 12;
+    static final byte OP_LESS = 13;
+    static final byte OP_LESS_EQUAL = 14;
+    static final byte OP_EQUAL = 15;
+    static final byte OP_NOT_EQUAL = 16;
+    static final byte OP_RETURN = 17;
+
+    final byte[] code;
+    // Number constants, kept unboxed.
+    final double[] numbers;
+    // Every other constant.
+    final Object[] constants;
+    // The most values on the stack at once while running the code.
+    final int maxStack;
+    // Offsets of instructions that can fail, and the Token to blame, sorted.
+    private final int[] errorOffsets;
+    private final Token[] errorTokens;
+
+    Chunk(byte[] code, double[] numbers, Object[] constants, int maxStack,
+            int[] errorOffsets, Token[] errorTokens) {
+        this.code = code;
+        this.numbers = numbers;
+        this.constants = constants;
+        this.maxStack = maxStack;
+        this.errorOffsets = errorOffsets;
+        this.errorTokens = errorTokens;
+    }
+
+    /**
+     * Find the operator Token an instruction was compiled from.
+     * 
+     * @param offset the offset of the instruction in code
+     * @return the Token to report errors at
+     */
+    Token tokenAt(int offset) {
+        return errorTokens[Arrays.binarySearch(errorOffsets, offset)];
+    }
+}
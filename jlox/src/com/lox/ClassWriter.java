@@ -0,0 +1,338 @@
+package jlox.src.com.lox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assemble a class file, for classes defined at run time. It writes only what
+ * the JIT needs: a constant pool and methods with no exception handlers. The
+ * methods' code never branches, so it needs no stack map frames.
+ */
+class ClassWriter {
+    // The class file format of Java 17.
+    private static final int VERSION = 61;
+
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+    static final int ACC_SYNTHETIC = 0x1000;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    // Indices into the constant pool are two bytes wide.
+    private static final int MAX_CONSTANTS = 0xffff;
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    // Index of each entry in the pool, by its tag and contents.
+    private final Map<String, Integer> entries = new HashMap<>();
+    // The next free index; the pool starts at 1.
+    private int poolSize = 1;
+    private final ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+    private final DataOutputStream methods = new DataOutputStream(methodBytes);
+    private int methodCount = 0;
+    private final String name;
+    private final int thisClass;
+    private final int superClass;
+
+    /**
+     * @param name      the class's internal name, e.g. "jlox/src/com/lox/Foo"
+     * @param superName the internal name of its superclass
+     */
+    ClassWriter(String name, String superName) {
+        this.name = name;
+        this.thisClass = classRef(name);
+        this.superClass = classRef(superName);
+    }
+
+    /**
+     * @return the class's internal name
+     */
+    String name() {
+        return name;
+    }
+
+    /**
+     * @return whether the constant pool has outgrown two-byte indices, making
+     *         the class impossible to write
+     */
+    boolean overflowed() {
+        return poolSize > MAX_CONSTANTS;
+    }
+
+    int utf8(String value) {
+        Integer index = entries.get("U" + value);
+        if (index != null) {
+            return index;
+        }
+        try {
+            pool.writeByte(CONSTANT_UTF8);
+            pool.writeUTF(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return add("U" + value, 1);
+    }
+
+    int classRef(String internalName) {
+        return reference(CONSTANT_CLASS, "C" + internalName, utf8(internalName), -1);
+    }
+
+    int integer(int value) {
+        Integer index = entries.get("I" + value);
+        if (index != null) {
+            return index;
+        }
+        write(CONSTANT_INTEGER, value);
+        return add("I" + value, 1);
+    }
+
+    int number(double value) {
+        // Compare by bits, so 0.0 and -0.0 are different constants.
+        long bits = Double.doubleToRawLongBits(value);
+        Integer index = entries.get("D" + bits);
+        if (index != null) {
+            return index;
+        }
+        write(CONSTANT_DOUBLE, (int) (bits >>> 32));
+        try {
+            pool.writeInt((int) bits);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // A double takes up two entries of the pool.
+        return add("D" + bits, 2);
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return member(CONSTANT_FIELDREF, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return member(CONSTANT_METHODREF, owner, name, descriptor);
+    }
+
+    /**
+     * Add a method with the given code and no exception handlers.
+     * 
+     * @param access     the method's ACC_ flags
+     * @param name       the method's name
+     * @param descriptor the method's descriptor, e.g. "()D"
+     * @param locals     how many local variable slots it uses, including this
+     * @param code       its complete code
+     */
+    void method(int access, String name, String descriptor, int locals, Code code) {
+        try {
+            methods.writeShort(access);
+            methods.writeShort(utf8(name));
+            methods.writeShort(utf8(descriptor));
+            // Just the Code attribute.
+            methods.writeShort(1);
+            methods.writeShort(utf8("Code"));
+            methods.writeInt(12 + code.length);
+            methods.writeShort(code.maxStack);
+            methods.writeShort(locals);
+            methods.writeInt(code.length);
+            methods.write(code.bytes, 0, code.length);
+            // No exception table and no attributes.
+            methods.writeShort(0);
+            methods.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        methodCount++;
+    }
+
+    /**
+     * @return the class file
+     */
+    byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(poolBytes.size() + methodBytes.size() + 32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(poolSize);
+            poolBytes.writeTo(out);
+            out.writeShort(ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            // No interfaces and no fields.
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(methodCount);
+            methodBytes.writeTo(out);
+            // No attributes.
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private int member(int tag, String owner, String name, String descriptor) {
+        String key = tag + owner + "." + name + ":" + descriptor;
+        Integer index = entries.get(key);
+        if (index != null) {
+            return index;
+        }
+        int classIndex = classRef(owner);
+        int nameAndType = reference(CONSTANT_NAME_AND_TYPE, "N" + name + ":" + descriptor, utf8(name),
+                utf8(descriptor));
+        return reference(tag, key, classIndex, nameAndType);
+    }
+
+    /**
+     * Add an entry made of one or two references to other entries, if it is
+     * not in the pool already.
+     * 
+     * @param second the second reference, or -1 if there is only one
+     */
+    private int reference(int tag, String key, int first, int second) {
+        Integer index = entries.get(key);
+        if (index != null) {
+            return index;
+        }
+        try {
+            pool.writeByte(tag);
+            pool.writeShort(first);
+            if (second >= 0) {
+                pool.writeShort(second);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return add(key, 1);
+    }
+
+    private void write(int tag, int value) {
+        try {
+            pool.writeByte(tag);
+            pool.writeInt(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int add(String key, int slots) {
+        int index = poolSize;
+        entries.put(key, index);
+        poolSize += slots;
+        return index;
+    }
+
+    /**
+     * The code of one method as it is being written, keeping track of how
+     * deep its operand stack gets.
+     */
+    static class Code {
+        private byte[] bytes = new byte[256];
+        private int length = 0;
+        // Slots on the operand stack after the code so far runs.
+        private int depth = 0;
+        private int maxStack = 0;
+
+        int length() {
+            return length;
+        }
+
+        int depth() {
+            return depth;
+        }
+
+        /**
+         * Emit an instruction without operands.
+         * 
+         * @param opcode      the instruction
+         * @param stackChange how many slots it pushes, less those it pops
+         */
+        void op(int opcode, int stackChange) {
+            emit(opcode);
+            change(stackChange);
+        }
+
+        /**
+         * Emit an instruction with a one-byte operand, e.g. bipush.
+         */
+        void opByte(int opcode, int operand, int stackChange) {
+            emit(opcode);
+            emit(operand);
+            change(stackChange);
+        }
+
+        /**
+         * Emit an instruction with a two-byte operand, e.g. a constant pool
+         * index.
+         */
+        void opShort(int opcode, int operand, int stackChange) {
+            emit(opcode);
+            emit(operand >>> 8);
+            emit(operand);
+            change(stackChange);
+        }
+
+        /**
+         * Start measuring how deep the stack gets from here on.
+         * 
+         * @return the deepest the stack got before, to hand to endMeasure()
+         */
+        int startMeasure() {
+            int before = maxStack;
+            maxStack = depth;
+            return before;
+        }
+
+        /**
+         * Stop measuring the stack started by startMeasure().
+         * 
+         * @param before what startMeasure() returned
+         */
+        void endMeasure(int before) {
+            maxStack = Math.max(maxStack, before);
+        }
+
+        /**
+         * Move the code since an offset to a new Code, e.g. to make a method of
+         * it. The stack must have been measured since then with startMeasure().
+         * 
+         * @param start the offset to cut from
+         * @param depth how deep the stack was at start
+         * @return the code that was cut
+         */
+        Code cut(int start, int depth) {
+            Code tail = new Code();
+            tail.bytes = Arrays.copyOfRange(bytes, start, Math.max(length, start + 1));
+            tail.length = length - start;
+            tail.depth = this.depth - depth;
+            tail.maxStack = maxStack - depth;
+            length = start;
+            this.depth = depth;
+            maxStack = depth;
+            return tail;
+        }
+
+        private void emit(int b) {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, length * 2);
+            }
+            bytes[length++] = (byte) b;
+        }
+
+        private void change(int stackChange) {
+            depth += stackChange;
+            maxStack = Math.max(maxStack, depth);
+        }
+    }
+}
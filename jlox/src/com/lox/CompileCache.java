@@ -0,0 +1,461 @@
+package jlox.src.com.lox;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An on-disk cache of parsed programs, keyed by a hash of their source, so
+ * running an unchanged script skips reading, decoding, scanning and parsing
+ * it. Entries are serialized by the generated ExprCodec and loaded through a
+ * single memory mapping. Editing a script changes its key, and the stale
+ * entry ages out: the directory is kept under a size bound by evicting the
+ * least recently used entries.
+ */
+class CompileCache {
+    static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    // "LOXC", at the start of every entry.
+    private static final int MAGIC = 0x4c4f5843;
+    // Bump whenever the layout of an entry changes outside of ExprCodec.
+    private static final int VERSION = 2;
+    private static final String SUFFIX = ".loxc";
+    // Map at most this many bytes at once, as a MappedByteBuffer is int-indexed.
+    private static final long MAX_MAPPING = 1L << 30;
+    private static final long NEGATIVE_ZERO = Double.doubleToRawLongBits(-0.0);
+
+    private final Path directory;
+    private final long maxBytes;
+
+    /**
+     * Use a directory as a cache, creating it if needed.
+     * 
+     * @param directory where to keep entries
+     * @param maxBytes  how large the entries may grow in total
+     * @throws IOException if the directory cannot be created
+     */
+    CompileCache(Path directory, long maxBytes) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Compute the key of a source file from its contents.
+     * 
+     * @param source a lox source file
+     * @return the hex SHA-256 of the file
+     * @throws IOException if the file cannot be read
+     */
+    static String key(Path source) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAX_MAPPING) {
+                long length = Math.min(MAX_MAPPING, size - position);
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Load a cached program.
+     * 
+     * @param key     the key of the program's source
+     * @param factory what creates the expressions' nodes
+     * @return the program's expressions, as parsed, or null on a miss
+     */
+    List<Expr> load(String key, ExprFactory factory) {
+        Path entry = entry(key);
+        try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+            Decoder in = new Decoder(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != ExprCodec.FORMAT) {
+                // Written by another version of jlox.
+                discard(entry);
+                return null;
+            }
+
+            int count = in.readSize();
+            List<Expr> program = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                program.add(ExprCodec.read(in, factory));
+            }
+            if (in.hasRemaining()) {
+                throw new IllegalStateException("Trailing bytes.");
+            }
+
+            // Mark the entry as recently used, for eviction.
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return program;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            // A truncated or corrupt entry is just a miss.
+            discard(entry);
+            return null;
+        }
+    }
+
+    /**
+     * Cache a program, then evict entries until the cache is within its size
+     * bound. Failing to cache is not an error, so failures are ignored.
+     * 
+     * @param key     the key of the program's source
+     * @param program the program's expressions, as parsed
+     */
+    void store(String key, List<Expr> program) {
+        try {
+            Encoder out = new Encoder();
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(ExprCodec.FORMAT);
+            out.writeVarInt(program.size());
+            for (Expr expr : program) {
+                ExprCodec.write(expr, out);
+            }
+
+            // Write to a temporary file first, so no one loads a partial entry.
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+            try {
+                try (OutputStream stream = Files.newOutputStream(temp)) {
+                    out.writeTo(stream);
+                }
+                Files.move(temp, entry(key),
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            evict();
+        } catch (IOException | IllegalArgumentException e) {
+            // The program has already run; it just won't be cached.
+        }
+    }
+
+    private Path entry(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+
+    private void discard(Path entry) {
+        try {
+            Files.deleteIfExists(entry);
+        } catch (IOException e) {
+            // Another run may be using it; it will be evicted eventually.
+        }
+    }
+
+    /**
+     * Delete the least recently used entries until the rest fit in maxBytes.
+     */
+    private void evict() throws IOException {
+        List<Path> entries = new ArrayList<>();
+        Map<Path, BasicFileAttributes> attributes = new HashMap<>();
+        long total = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path entry : stream) {
+                try {
+                    BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+                    entries.add(entry);
+                    attributes.put(entry, attrs);
+                    total += attrs.size();
+                } catch (NoSuchFileException e) {
+                    // Evicted by another run.
+                }
+            }
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+
+        entries.sort(Comparator.comparing(entry -> attributes.get(entry).lastModifiedTime()));
+        for (Path entry : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+            discard(entry);
+            total -= attributes.get(entry).size();
+        }
+    }
+
+    /**
+     * Writes the primitives of an entry into a growable byte array. Sizes and
+     * small integers are varints, Token lines are deltas from the previous
+     * Token's, and each distinct String is written once, then referred to by
+     * index.
+     */
+    static final class Encoder {
+        private byte[] bytes = new byte[4096];
+        private int size = 0;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private int line = 0;
+
+        void writeByte(int value) {
+            ensure(1);
+            bytes[size++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        /**
+         * Write a non-negative int in 7-bit groups, low group first.
+         */
+        void writeVarInt(int value) {
+            ensure(5);
+            while ((value & ~0x7f) != 0) {
+                bytes[size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeDouble(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            writeInt((int) (bits >>> 32));
+            writeInt((int) bits);
+        }
+
+        void writeString(String value) {
+            Integer index = strings.get(value);
+            if (index != null) {
+                writeVarInt(index + 1);
+                return;
+            }
+            strings.put(value, strings.size());
+
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(0);
+            writeVarInt(utf8.length);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, size, utf8.length);
+            size += utf8.length;
+        }
+
+        /**
+         * Write a Token. Symbol IDs belong to the table of the Scanner that
+         * produced them, so they are not kept.
+         */
+        void writeToken(Token token) {
+            writeVarInt(token.type.ordinal());
+            writeString(token.lexeme);
+            writeValue(token.literal);
+            // Zigzag the delta, so small steps back stay small.
+            int delta = token.line - line;
+            writeVarInt((delta << 1) ^ (delta >> 31));
+            line = token.line;
+            writeVarInt(token.column);
+        }
+
+        /**
+         * Write a lox value: nil, a Boolean, a Double or a String.
+         */
+        void writeValue(Object value) {
+            if (value == null) {
+                writeByte(0);
+            } else if (value instanceof Boolean) {
+                writeBoolean((Boolean) value);
+            } else if (value instanceof Double) {
+                writeNumber((Double) value);
+            } else if (value instanceof String) {
+                writeByte(4);
+                writeString((String) value);
+            } else {
+                throw new IllegalArgumentException("Cannot cache a " + value.getClass().getName() + ".");
+            }
+        }
+
+        void writeBoolean(boolean value) {
+            writeByte(value ? 2 : 1);
+        }
+
+        /**
+         * Write a number in as few bytes as represent it exactly: most number
+         * literals are small integers, or have few significant digits.
+         */
+        void writeNumber(double value) {
+            int integer = (int) value;
+            if (integer >= 0 && integer == value && Double.doubleToRawLongBits(value) != NEGATIVE_ZERO) {
+                writeByte(5);
+                writeVarInt(integer);
+            } else if ((float) value == value) {
+                writeByte(6);
+                writeInt(Float.floatToRawIntBits((float) value));
+            } else {
+                writeByte(3);
+                writeDouble(value);
+            }
+        }
+
+        void writeTo(OutputStream stream) throws IOException {
+            stream.write(bytes, 0, size);
+        }
+
+        private void ensure(int needed) {
+            if (size + needed > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + needed));
+            }
+        }
+    }
+
+    /**
+     * Reads back the primitives an Encoder wrote.
+     */
+    static final class Decoder {
+        private static final TokenType[] TYPES = TokenType.values();
+
+        private final ByteBuffer bytes;
+        private final List<String> strings = new ArrayList<>();
+        private int line = 0;
+
+        Decoder(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        boolean hasRemaining() {
+            return bytes.hasRemaining();
+        }
+
+        byte readByte() {
+            return bytes.get();
+        }
+
+        int readInt() {
+            return bytes.getInt();
+        }
+
+        int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = bytes.get();
+                value |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("Malformed varint.");
+        }
+
+        /**
+         * Read a count or length of things that each take at least a byte, so
+         * a corrupt entry cannot make a reader allocate more than the entry
+         * itself holds.
+         */
+        int readSize() {
+            int size = readVarInt();
+            if (size < 0 || size > bytes.remaining()) {
+                throw new IllegalStateException("Malformed size.");
+            }
+            return size;
+        }
+
+        double readDouble() {
+            return bytes.getDouble();
+        }
+
+        String readString() {
+            int index = readVarInt();
+            if (index < 0 || index > strings.size()) {
+                throw new IllegalStateException("Malformed string.");
+            }
+            if (index > 0) {
+                return strings.get(index - 1);
+            }
+
+            byte[] utf8 = new byte[readSize()];
+            bytes.get(utf8);
+            String value = new String(utf8, StandardCharsets.UTF_8);
+            strings.add(value);
+            return value;
+        }
+
+        Token readToken() {
+            int ordinal = readVarInt();
+            if (ordinal < 0 || ordinal >= TYPES.length) {
+                throw new IllegalStateException("Malformed token type.");
+            }
+            TokenType type = TYPES[ordinal];
+            String lexeme = readString();
+            Object literal = readValue();
+            int delta = readVarInt();
+            line += (delta >>> 1) ^ -(delta & 1);
+            int column = readVarInt();
+            return new Token(type, lexeme, literal, line, column, Token.NO_SYMBOL);
+        }
+
+        Object readValue() {
+            byte tag = readByte();
+            switch (tag) {
+                case 0:
+                    return null;
+                case 1:
+                    return false;
+                case 2:
+                    return true;
+                case 4:
+                    return readString();
+                default:
+                    return readNumber(tag);
+            }
+        }
+
+        boolean readBoolean() {
+            switch (readByte()) {
+                case 1:
+                    return false;
+                case 2:
+                    return true;
+                default:
+                    throw new IllegalStateException("Malformed boolean.");
+            }
+        }
+
+        /**
+         * Read a number written by Encoder.writeNumber().
+         */
+        double readNumber() {
+            return readNumber(readByte());
+        }
+
+        private double readNumber(byte tag) {
+            switch (tag) {
+                case 3:
+                    return readDouble();
+                case 5:
+                    return readVarInt();
+                case 6:
+                    return Float.intBitsToFloat(readInt());
+                default:
+                    throw new IllegalStateException("Malformed value.");
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package jlox.src.com.lox;
+
+/**
+ * Evaluate operators whose operands are all literals ahead of time. An
+ * operation that would raise a RuntimeError is left in place, so the error
+ * still happens, at the same Token, when the expression runs.
+ */
+class ConstantFolder extends ExprRewriter {
+    ConstantFolder(ExprFactory factory) {
+        super(factory);
+    }
+
+    @Override
+    String name() {
+        return "fold";
+    }
+
+    @Override
+    public Expr visitBinaryExpr(Expr.Binary expr) {
+        Expr rewritten = super.visitBinaryExpr(expr);
+        if (!(rewritten instanceof Expr.Binary)) {
+            return rewritten;
+        }
+
+        Expr.Binary binary = (Expr.Binary) rewritten;
+        Expr folded = fold(binary.operator.type, unwrap(binary.left), unwrap(binary.right));
+        return folded == null ? binary : folded;
+    }
+
+    @Override
+    public Expr visitGroupingExpr(Expr.Grouping expr) {
+        Expr rewritten = super.visitGroupingExpr(expr);
+        if (isLiteral(unwrap(rewritten))) {
+            return unwrap(rewritten);
+        }
+        return rewritten;
+    }
+
+    @Override
+    public Expr visitUnaryExpr(Expr.Unary expr) {
+        Expr rewritten = super.visitUnaryExpr(expr);
+        if (!(rewritten instanceof Expr.Unary)) {
+            return rewritten;
+        }
+
+        Expr.Unary unary = (Expr.Unary) rewritten;
+        Expr right = unwrap(unary.right);
+        switch (unary.operator.type) {
+            case MINUS:
+                if (right instanceof Expr.NumberLiteral) {
+                    return factory.numberLiteral(-((Expr.NumberLiteral) right).value);
+                }
+                return unary;
+            case BANG:
+                if (right instanceof Expr.BoolLiteral) {
+                    return factory.boolLiteral(!((Expr.BoolLiteral) right).value);
+                }
+                if (isLiteral(right)) {
+                    // Only nil and false are falsey.
+                    return factory.boolLiteral(right instanceof Expr.NilLiteral);
+                }
+                return unary;
+            default:
+                return unary;
+        }
+    }
+
+    /**
+     * Fold a binary operator over two operands, as Interpreter.binary()
+     * evaluates it.
+     * 
+     * @return the result as a literal, or null if an operand is not a literal
+     *         or the operation raises a RuntimeError
+     */
+    private Expr fold(TokenType operator, Expr left, Expr right) {
+        if (left instanceof Expr.NumberLiteral && right instanceof Expr.NumberLiteral) {
+            return fold(operator, ((Expr.NumberLiteral) left).value, ((Expr.NumberLiteral) right).value);
+        }
+        if (!isLiteral(left) || !isLiteral(right)) {
+            return null;
+        }
+
+        switch (operator) {
+            case EQUAL_EQUAL:
+                return factory.boolLiteral(isEqual(left, right));
+            case BANG_EQUAL:
+                return factory.boolLiteral(!isEqual(left, right));
+            case PLUS:
+                if (left instanceof Expr.StringLiteral && right instanceof Expr.StringLiteral) {
+                    String concatenated = ((Expr.StringLiteral) left).value + ((Expr.StringLiteral) right).value;
+                    return factory.stringLiteral(concatenated);
+                }
+                return null;
+            default:
+                // Any other operator needs two numbers.
+                return null;
+        }
+    }
+
+    private Expr fold(TokenType operator, double left, double right) {
+        switch (operator) {
+            case GREATER:
+                return factory.boolLiteral(left > right);
+            case GREATER_EQUAL:
+                return factory.boolLiteral(left >= right);
+            case LESS:
+                return factory.boolLiteral(left < right);
+            case LESS_EQUAL:
+                return factory.boolLiteral(left <= right);
+            case BANG_EQUAL:
+                return factory.boolLiteral(!isEqual(left, right));
+            case EQUAL_EQUAL:
+                return factory.boolLiteral(isEqual(left, right));
+            case MINUS:
+                return factory.numberLiteral(left - right);
+            case PLUS:
+                return factory.numberLiteral(left + right);
+            case SLASH:
+                return factory.numberLiteral(left / right);
+            case STAR:
+                return factory.numberLiteral(left * right);
+            default:
+                // Unreachable.
+                return null;
+        }
+    }
+
+    /**
+     * Compare numbers as Double.equals() does, like Interpreter.isEqual():
+     * NaN equals NaN, and 0.0 does not equal -0.0.
+     */
+    private static boolean isEqual(double left, double right) {
+        return Double.doubleToLongBits(left) == Double.doubleToLongBits(right);
+    }
+
+    private static boolean isLiteral(Expr expr) {
+        return expr instanceof Expr.NumberLiteral || expr instanceof Expr.StringLiteral
+                || expr instanceof Expr.BoolLiteral || expr instanceof Expr.NilLiteral;
+    }
+
+    /**
+     * Compare two literals that are not both numbers, as Interpreter.isEqual()
+     * compares their values: values of different types are never equal.
+     */
+    private static boolean isEqual(Expr left, Expr right) {
+        if (left instanceof Expr.BoolLiteral && right instanceof Expr.BoolLiteral) {
+            return ((Expr.BoolLiteral) left).value == ((Expr.BoolLiteral) right).value;
+        }
+        if (left instanceof Expr.StringLiteral && right instanceof Expr.StringLiteral) {
+            return ((Expr.StringLiteral) left).value.equals(((Expr.StringLiteral) right).value);
+        }
+        return left instanceof Expr.NilLiteral && right instanceof Expr.NilLiteral;
+    }
+}
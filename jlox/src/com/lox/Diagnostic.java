@@ -0,0 +1,113 @@
+package jlox.src.com.lox;
+
+/**
+ * One reported error, or a run of identical errors side by side in the
+ * source, with the span of source it covers. Columns count from 1; a column of 0
+ * means it is unknown, and only the line is shown.
+ */
+class Diagnostic {
+    final boolean runtime;
+    // The lexeme the error is at: null if it is not at a Token, and empty at
+    // the end of the source.
+    final String lexeme;
+    final String message;
+    final int line;
+    final int column;
+    int endLine;
+    int endColumn;
+    // How many identical errors this covers.
+    int count = 1;
+
+    /**
+     * @param runtime   if this is a runtime error rather than a syntax or
+     *                  lexical one
+     * @param lexeme    the lexeme the error is at, if any
+     * @param message   some helpful message for the user
+     * @param line      line of the span's first character
+     * @param column    column of the span's first character
+     * @param endLine   line of the span's last character
+     * @param endColumn column of the span's last character
+     */
+    Diagnostic(boolean runtime, String lexeme, String message, int line, int column, int endLine, int endColumn) {
+        this.runtime = runtime;
+        this.lexeme = lexeme;
+        this.message = message;
+        this.line = line;
+        this.column = column;
+        this.endLine = endLine;
+        this.endColumn = endColumn;
+    }
+
+    /**
+     * Check whether another error is the same as this one and starts right
+     * where this one ends, such as the next of a run of unexpected
+     * characters, so the two can be reported as one. Runtime errors are never
+     * merged: each belongs with the output printed around it.
+     * 
+     * @param line   line of the other error's first character
+     * @param column column of the other error's first character, or 0
+     */
+    boolean matches(boolean runtime, String lexeme, String message, int line, int column) {
+        return !runtime && !this.runtime && this.message.equals(message)
+                && (this.lexeme == null ? lexeme == null : this.lexeme.equals(lexeme))
+                && column != 0 && line == endLine && column == endColumn + 1;
+    }
+
+    /**
+     * Stretch this diagnostic over one more identical error.
+     */
+    void extend(int endLine, int endColumn) {
+        this.endLine = endLine;
+        this.endColumn = endColumn;
+        count++;
+    }
+
+    /**
+     * Write the diagnostic the way the user sees it.
+     * 
+     * @param out where to append the text, without a final newline
+     */
+    void format(StringBuilder out) {
+        if (runtime) {
+            out.append(message).append("\n[line ");
+            span(out);
+            out.append("]");
+        } else {
+            out.append("[line ");
+            span(out);
+            out.append("] Error");
+            if (lexeme != null) {
+                if (lexeme.isEmpty()) {
+                    out.append(" at end");
+                } else {
+                    out.append(" at '").append(lexeme).append("'");
+                }
+            }
+            out.append(": ").append(message);
+        }
+        if (count > 1) {
+            out.append(" (").append(count).append(" times)");
+        }
+    }
+
+    /**
+     * Write the span as line:column, line:column-column or
+     * line:column-line:column, or just the line if columns are unknown.
+     */
+    private void span(StringBuilder out) {
+        out.append(line);
+        if (column == 0) {
+            if (endLine != line) {
+                out.append('-').append(endLine);
+            }
+            return;
+        }
+
+        out.append(':').append(column);
+        if (endLine != line) {
+            out.append('-').append(endLine).append(':').append(endColumn);
+        } else if (endColumn != column) {
+            out.append('-').append(endColumn);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package jlox.src.com.lox;
+
+import java.io.PrintStream;
+
+/**
+ * Collects the errors of a run and writes them out in batches, so an error
+ * storm from a corrupted or binary file costs a few large writes rather than
+ * one synchronized write per error.
+ * 
+ * Identical errors side by side in the source, such as a run of unexpected
+ * characters, are coalesced into one diagnostic spanning them all. Runtime
+ * errors are written out at once instead, as they belong between the values
+ * printed before and after them. Only the first few diagnostics are shown;
+ * the rest are counted, and the count is written when the diagnostics are
+ * flushed.
+ */
+class Diagnostics {
+    // Diagnostics shown per run, by default.
+    static final int DEFAULT_LIMIT = 100;
+    // Characters of formatted diagnostics to hold before writing them out.
+    private static final int BATCH_SIZE = 1 << 13;
+
+    private final PrintStream err;
+    private final int limit;
+    private final StringBuilder batch = new StringBuilder();
+    // The most recent diagnostic shown, while it could still be extended.
+    private Diagnostic pending = null;
+    private int shown = 0;
+    private long suppressed = 0;
+
+    /**
+     * @param err   where diagnostics are written
+     * @param limit the most diagnostics to show, or 0 for no limit
+     */
+    Diagnostics(PrintStream err, int limit) {
+        this.err = err;
+        this.limit = limit == 0 ? Integer.MAX_VALUE : limit;
+    }
+
+    /**
+     * Report an error. A syntax or lexical error is shown once it can no
+     * longer be coalesced with the errors after it; a runtime error is shown
+     * right away.
+     * 
+     * @param runtime   if this is a runtime error rather than a syntax or
+     *                  lexical one
+     * @param lexeme    the lexeme the error is at: null if it is not at a
+     *                  Token, and empty at the end of the source
+     * @param message   some helpful message for the user
+     * @param line      line of the error's first character
+     * @param column    column of the error's first character, or 0
+     * @param endLine   line of the error's last character
+     * @param endColumn column of the error's last character, or 0
+     */
+    void report(boolean runtime, String lexeme, String message, int line, int column, int endLine, int endColumn) {
+        if (pending != null && pending.matches(runtime, lexeme, message, line, column)) {
+            pending.extend(endLine, endColumn);
+            return;
+        }
+
+        complete();
+        if (shown >= limit) {
+            suppressed++;
+            return;
+        }
+        shown++;
+        pending = new Diagnostic(runtime, lexeme, message, line, column, endLine, endColumn);
+        if (runtime) {
+            complete();
+            err.print(batch);
+            batch.setLength(0);
+            err.flush();
+        }
+    }
+
+    /**
+     * Write out every diagnostic reported so far.
+     */
+    void flush() {
+        complete();
+        if (suppressed > 0) {
+            batch.append("(").append(suppressed).append(suppressed == 1 ? " more error" : " more errors")
+                    .append(" not shown)\n");
+            suppressed = 0;
+        }
+        if (batch.length() > 0) {
+            err.print(batch);
+            batch.setLength(0);
+        }
+        err.flush();
+    }
+
+    /**
+     * Format the pending diagnostic into the batch, writing the batch out if
+     * it is full.
+     */
+    private void complete() {
+        if (pending == null) {
+            return;
+        }
+        pending.format(batch);
+        batch.append('\n');
+        pending = null;
+
+        if (batch.length() >= BATCH_SIZE) {
+            err.print(batch);
+            batch.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,633 @@
+package jlox.src.com.lox;
+
+/**
+ * A self-specializing evaluation tree for an Expr. Each node starts out
+ * uninitialized; the first time it runs it looks at the types of its operands
+ * and replaces itself with a node specialized for them, e.g. a Binary PLUS
+ * becomes an AddDouble or a ConcatString. Numeric nodes pass unboxed doubles
+ * between each other through executeDouble(). If a specialized node later sees
+ * other types, it rewrites itself to the generic node, which shares its
+ * semantics with the tree-walking Interpreter.
+ */
+abstract class EvalNode {
+    EvalNode parent;
+
+    /**
+     * Thrown when a node asked for a value of one type produces another.
+     * Carries the actual value, so the caller need not evaluate again.
+     */
+    static class UnexpectedResultException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final Object result;
+
+        UnexpectedResultException(Object result) {
+            // Control flow only; skip the cost of a stack trace.
+            super(null, null, false, false);
+            this.result = result;
+        }
+    }
+
+    /**
+     * Build an evaluation tree for an expression.
+     * 
+     * @param expr a valid lox expression
+     * @return the root of the tree
+     */
+    static Root build(Expr expr) {
+        return new Root(expr.accept(new Builder()));
+    }
+
+    /**
+     * Evaluate the node.
+     * 
+     * @return the node's value
+     */
+    abstract Object execute();
+
+    /**
+     * Evaluate the node, expecting a number.
+     * 
+     * @return the node's value
+     * @throws UnexpectedResultException if the value is not a number
+     */
+    double executeDouble() throws UnexpectedResultException {
+        Object value = execute();
+        if (value instanceof Double) {
+            return (double) value;
+        }
+        throw new UnexpectedResultException(value);
+    }
+
+    /**
+     * Evaluate the node, expecting a boolean.
+     * 
+     * @return the node's value
+     * @throws UnexpectedResultException if the value is not a boolean
+     */
+    boolean executeBoolean() throws UnexpectedResultException {
+        Object value = execute();
+        if (value instanceof Boolean) {
+            return (boolean) value;
+        }
+        throw new UnexpectedResultException(value);
+    }
+
+    /**
+     * Swap this node for another in the tree.
+     * 
+     * @param node the node to take this one's place
+     * @return node
+     */
+    <T extends EvalNode> T replace(T node) {
+        parent.replaceChild(this, node);
+        node.parent = parent;
+        return node;
+    }
+
+    /**
+     * Swap one of this node's children for another node.
+     */
+    void replaceChild(EvalNode oldChild, EvalNode newChild) {
+        throw new IllegalStateException("Node has no children.");
+    }
+
+    <T extends EvalNode> T adopt(T child) {
+        child.parent = this;
+        return child;
+    }
+
+    /**
+     * Translate an Expr into uninitialized nodes.
+     */
+    private static class Builder implements Expr.Visitor<EvalNode> {
+        @Override
+        public EvalNode visitBinaryExpr(Expr.Binary expr) {
+            return new UninitializedBinary(expr.operator, expr.left.accept(this), expr.right.accept(this));
+        }
+
+        @Override
+        public EvalNode visitGroupingExpr(Expr.Grouping expr) {
+            // Grouping only affects parsing.
+            return expr.expression.accept(this);
+        }
+
+        @Override
+        public EvalNode visitNumberLiteralExpr(Expr.NumberLiteral expr) {
+            return new NumberLiteral(expr.value);
+        }
+
+        @Override
+        public EvalNode visitStringLiteralExpr(Expr.StringLiteral expr) {
+            return new ObjectLiteral(expr.value);
+        }
+
+        @Override
+        public EvalNode visitBoolLiteralExpr(Expr.BoolLiteral expr) {
+            return new ObjectLiteral(expr.value);
+        }
+
+        @Override
+        public EvalNode visitNilLiteralExpr(Expr.NilLiteral expr) {
+            return new ObjectLiteral(null);
+        }
+
+        @Override
+        public EvalNode visitUnaryExpr(Expr.Unary expr) {
+            return new UninitializedUnary(expr.operator, expr.right.accept(this));
+        }
+    }
+
+    static class Root extends EvalNode {
+        private EvalNode child;
+
+        Root(EvalNode child) {
+            this.child = adopt(child);
+        }
+
+        @Override
+        Object execute() {
+            return child.execute();
+        }
+
+        @Override
+        void replaceChild(EvalNode oldChild, EvalNode newChild) {
+            child = newChild;
+        }
+    }
+
+    static class NumberLiteral extends EvalNode {
+        private final double value;
+
+        NumberLiteral(double value) {
+            this.value = value;
+        }
+
+        @Override
+        Object execute() {
+            return value;
+        }
+
+        @Override
+        double executeDouble() {
+            return value;
+        }
+    }
+
+    static class ObjectLiteral extends EvalNode {
+        private final Object value;
+
+        ObjectLiteral(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        Object execute() {
+            return value;
+        }
+    }
+
+    abstract static class BinaryNode extends EvalNode {
+        final Token operator;
+        EvalNode left;
+        EvalNode right;
+
+        BinaryNode(Token operator, EvalNode left, EvalNode right) {
+            this.operator = operator;
+            this.left = adopt(left);
+            this.right = adopt(right);
+        }
+
+        @Override
+        void replaceChild(EvalNode oldChild, EvalNode newChild) {
+            if (left == oldChild) {
+                left = newChild;
+            } else {
+                right = newChild;
+            }
+        }
+
+        /**
+         * Give up on specialization: rewrite to the generic node and finish
+         * evaluating with the operand values already computed.
+         * 
+         * @return the result, wrapped for a caller expecting another type
+         */
+        UnexpectedResultException generalize(Object leftValue, Object rightValue) {
+            replace(new GenericBinary(operator, left, right));
+            return new UnexpectedResultException(Interpreter.binary(operator, leftValue, rightValue));
+        }
+    }
+
+    static class UninitializedBinary extends BinaryNode {
+        UninitializedBinary(Token operator, EvalNode left, EvalNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        Object execute() {
+            Object leftValue = left.execute();
+            Object rightValue = right.execute();
+            replace(specialize(leftValue, rightValue));
+            return Interpreter.binary(operator, leftValue, rightValue);
+        }
+
+        private EvalNode specialize(Object leftValue, Object rightValue) {
+            boolean numbers = leftValue instanceof Double && rightValue instanceof Double;
+            switch (operator.type) {
+                case PLUS:
+                    if (numbers) {
+                        return new AddDouble(operator, left, right);
+                    }
+                    if (leftValue instanceof String && rightValue instanceof String) {
+                        return new ConcatString(operator, left, right);
+                    }
+                    break;
+                case MINUS:
+                    if (numbers) {
+                        return new SubtractDouble(operator, left, right);
+                    }
+                    break;
+                case STAR:
+                    if (numbers) {
+                        return new MultiplyDouble(operator, left, right);
+                    }
+                    break;
+                case SLASH:
+                    if (numbers) {
+                        return new DivideDouble(operator, left, right);
+                    }
+                    break;
+                case GREATER:
+                    if (numbers) {
+                        return new GreaterDouble(operator, left, right);
+                    }
+                    break;
+                case GREATER_EQUAL:
+                    if (numbers) {
+                        return new GreaterEqualDouble(operator, left, right);
+                    }
+                    break;
+                case LESS:
+                    if (numbers) {
+                        return new LessDouble(operator, left, right);
+                    }
+                    break;
+                case LESS_EQUAL:
+                    if (numbers) {
+                        return new LessEqualDouble(operator, left, right);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return new GenericBinary(operator, left, right);
+        }
+    }
+
+    static class GenericBinary extends BinaryNode {
+        GenericBinary(Token operator, EvalNode left, EvalNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        Object execute() {
+            Object leftValue = left.execute();
+            Object rightValue = right.execute();
+            return Interpreter.binary(operator, leftValue, rightValue);
+        }
+    }
+
+    /**
+     * Arithmetic on two numbers, producing a number.
+     */
+    abstract static class DoubleArithmetic extends BinaryNode {
+        DoubleArithmetic(Token operator, EvalNode left, EvalNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        Object execute() {
+            try {
+                return executeDouble();
+            } catch (UnexpectedResultException e) {
+                return e.result;
+            }
+        }
+
+        @Override
+        abstract double executeDouble() throws UnexpectedResultException;
+    }
+
+    static class AddDouble extends DoubleArithmetic {
+        AddDouble(Token operator, EvalNode left, EvalNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        double executeDouble() throws UnexpectedResultException {
+            double leftValue;
+            try {
+                leftValue = left.executeDouble();
+            } catch (UnexpectedResultException e) {
+                throw generalize(e.result, right.execute());
+            }
+            double rightValue;
+            try {
+                rightValue = right.executeDouble();
+            } catch (UnexpectedResultException e) {
+                throw generalize(leftValue, e.result);
+            }
+            return leftValue + rightValue;
+        }
+    }
+
+    static class SubtractDouble extends DoubleArithmetic {
+        SubtractDouble(Token operator, EvalNode left, EvalNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        double executeDouble() throws UnexpectedResultException {
+            double leftValue;
+            try {
+                leftValue = left.executeDouble();
+            } catch (UnexpectedResultException e) {
+                throw generalize(e.result, right.execute());
+            }
+            double rightValue;
+            try {
+                rightValue = right.executeDouble();
+            } catch (UnexpectedResultException e) {
+                throw generalize(leftValue, e.result);
+            }
+            return leftValue - rightValue;
+        }
+    }
+
+    static class MultiplyDouble extends DoubleArithmetic {
+        MultiplyDouble(Token operator, EvalNode left, EvalNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        double executeDouble() throws UnexpectedResultException {
+            double leftValue;
+            try {
+                leftValue = left.executeDouble();
+            } catch (UnexpectedResultException e) {
+                throw generalize(e.result, right.execute());
+            }
+            double rightValue;
+            try {
+                rightValue = right.executeDouble();
+            } catch (UnexpectedResultException e) {
+                throw generalize(leftValue, e.result);
+            }
+            return leftValue * rightValue;
+        }
+    }
+
+    static class DivideDouble extends DoubleArithmetic {
+        DivideDouble(Token operator, EvalNode left, EvalNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        double executeDouble() throws UnexpectedResultException {
+            double leftValue;
+            try {
+                leftValue = left.executeDouble();
+            } catch (UnexpectedResultException e) {
+                throw generalize(e.result, right.execute());
+            }
+            double rightValue;
+            try {
+                rightValue = right.executeDouble();
+            } catch (UnexpectedResultException e) {
+                throw generalize(leftValue, e.result);
+            }
+            return leftValue / rightValue;
+        }
+    }
+
+    /**
+     * Comparison of two numbers, producing a boolean.
+     */
+    abstract static class DoubleComparison extends BinaryNode {
+        DoubleComparison(Token operator, EvalNode left, EvalNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        Object execute() {
+            try {
+                return executeBoolean();
+            } catch (UnexpectedResultException e) {
+                return e.result;
+            }
+        }
+
+        @Override
+        abstract boolean executeBoolean() throws UnexpectedResultException;
+    }
+
+    static class GreaterDouble extends DoubleComparison {
+        GreaterDouble(Token operator, EvalNode left, EvalNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        boolean executeBoolean() throws UnexpectedResultException {
+            double leftValue;
+            try {
+                leftValue = left.executeDouble();
+            } catch (UnexpectedResultException e) {
+                throw generalize(e.result, right.execute());
+            }
+            double rightValue;
+            try {
+                rightValue = right.executeDouble();
+            } catch (UnexpectedResultException e) {
+                throw generalize(leftValue, e.result);
+            }
+            return leftValue > rightValue;
+        }
+    }
+
+    static class GreaterEqualDouble extends DoubleComparison {
+        GreaterEqualDouble(Token operator, EvalNode left, EvalNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        boolean executeBoolean() throws UnexpectedResultException {
+            double leftValue;
+            try {
+                leftValue = left.executeDouble();
+            } catch (UnexpectedResultException e) {
+                throw generalize(e.result, right.execute());
+            }
+            double rightValue;
+            try {
+                rightValue = right.executeDouble();
+            } catch (UnexpectedResultException e) {
+                throw generalize(leftValue, e.result);
+            }
+            return leftValue >= rightValue;
+        }
+    }
+
+    static class LessDouble extends DoubleComparison {
+        LessDouble(Token operator, EvalNode left, EvalNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        boolean executeBoolean() throws UnexpectedResultException {
+            double leftValue;
+            try {
+                leftValue = left.executeDouble();
+            } catch (UnexpectedResultException e) {
+                throw generalize(e.result, right.execute());
+            }
+            double rightValue;
+            try {
+                rightValue = right.executeDouble();
+            } catch (UnexpectedResultException e) {
+                throw generalize(leftValue, e.result);
+            }
+            return leftValue < rightValue;
+        }
+    }
+
+    static class LessEqualDouble extends DoubleComparison {
+        LessEqualDouble(Token operator, EvalNode left, EvalNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        boolean executeBoolean() throws UnexpectedResultException {
+            double leftValue;
+            try {
+                leftValue = left.executeDouble();
+            } catch (UnexpectedResultException e) {
+                throw generalize(e.result, right.execute());
+            }
+            double rightValue;
+            try {
+                rightValue = right.executeDouble();
+            } catch (UnexpectedResultException e) {
+                throw generalize(leftValue, e.result);
+            }
+            return leftValue <= rightValue;
+        }
+    }
+
+    static class ConcatString extends BinaryNode {
+        ConcatString(Token operator, EvalNode left, EvalNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        Object execute() {
+            Object leftValue = left.execute();
+            Object rightValue = right.execute();
+            if (leftValue instanceof String && rightValue instanceof String) {
+                return (String) leftValue + (String) rightValue;
+            }
+            return generalize(leftValue, rightValue).result;
+        }
+    }
+
+    abstract static class UnaryNode extends EvalNode {
+        final Token operator;
+        EvalNode right;
+
+        UnaryNode(Token operator, EvalNode right) {
+            this.operator = operator;
+            this.right = adopt(right);
+        }
+
+        @Override
+        void replaceChild(EvalNode oldChild, EvalNode newChild) {
+            right = newChild;
+        }
+    }
+
+    static class UninitializedUnary extends UnaryNode {
+        UninitializedUnary(Token operator, EvalNode right) {
+            super(operator, right);
+        }
+
+        @Override
+        Object execute() {
+            Object rightValue = right.execute();
+            if (operator.type == TokenType.BANG) {
+                replace(new Not(operator, right));
+            } else if (rightValue instanceof Double) {
+                replace(new NegateDouble(operator, right));
+            } else {
+                replace(new GenericUnary(operator, right));
+            }
+            return Interpreter.unary(operator, rightValue);
+        }
+    }
+
+    static class GenericUnary extends UnaryNode {
+        GenericUnary(Token operator, EvalNode right) {
+            super(operator, right);
+        }
+
+        @Override
+        Object execute() {
+            return Interpreter.unary(operator, right.execute());
+        }
+    }
+
+    static class NegateDouble extends UnaryNode {
+        NegateDouble(Token operator, EvalNode right) {
+            super(operator, right);
+        }
+
+        @Override
+        Object execute() {
+            try {
+                return executeDouble();
+            } catch (UnexpectedResultException e) {
+                return e.result;
+            }
+        }
+
+        @Override
+        double executeDouble() throws UnexpectedResultException {
+            try {
+                return -right.executeDouble();
+            } catch (UnexpectedResultException e) {
+                replace(new GenericUnary(operator, right));
+                throw new UnexpectedResultException(Interpreter.unary(operator, e.result));
+            }
+        }
+    }
+
+    static class Not extends UnaryNode {
+        Not(Token operator, EvalNode right) {
+            super(operator, right);
+        }
+
+        @Override
+        Object execute() {
+            return executeBoolean();
+        }
+
+        @Override
+        boolean executeBoolean() {
+            // Works for any operand type, so never needs to generalize.
+            try {
+                return !right.executeBoolean();
+            } catch (UnexpectedResultException e) {
+                return !Interpreter.isTruthy(e.result);
+            }
+        }
+    }
+}
@@ -8,7 +8,13 @@ abstract class Expr {
 
         R visitGroupingExpr(Grouping expr);
 
-        R visitLiteralExpr(Literal expr);
+        R visitNumberLiteralExpr(NumberLiteral expr);
+
+        R visitStringLiteralExpr(StringLiteral expr);
+
+        R visitBoolLiteralExpr(BoolLiteral expr);
+
+        R visitNilLiteralExpr(NilLiteral expr);
 
         R visitUnaryExpr(Unary expr);
     }
@@ -43,17 +49,58 @@ abstract class Expr {
         final Expr expression;
     }
 
-    static class Literal extends Expr {
-        Literal(Object value) {
+    static class NumberLiteral extends Expr {
+        NumberLiteral(double value) {
+            this.value = value;
+        }
+
+        @Override
+        <R> R accept(Visitor<R> visitor) {
+            return visitor.visitNumberLiteralExpr(this);
+        }
+
+        final double value;
+    }
+
+    static class StringLiteral extends Expr {
+        StringLiteral(String value) {
+            this.value = value;
+        }
+
+        @Override
+        <R> R accept(Visitor<R> visitor) {
+            return visitor.visitStringLiteralExpr(this);
+        }
+
+        final String value;
+    }
+
+    static class BoolLiteral extends Expr {
+        static final BoolLiteral TRUE = new BoolLiteral(true);
+        static final BoolLiteral FALSE = new BoolLiteral(false);
+
+        private BoolLiteral(boolean value) {
             this.value = value;
         }
 
         @Override
         <R> R accept(Visitor<R> visitor) {
-            return visitor.visitLiteralExpr(this);
+            return visitor.visitBoolLiteralExpr(this);
         }
 
-        final Object value;
+        final boolean value;
+    }
+
+    static class NilLiteral extends Expr {
+        static final NilLiteral INSTANCE = new NilLiteral();
+
+        private NilLiteral() {
+        }
+
+        @Override
+        <R> R accept(Visitor<R> visitor) {
+            return visitor.visitNilLiteralExpr(this);
+        }
     }
 
     static class Unary extends Expr {
@@ -0,0 +1,474 @@
+package jlox.src.com.lox;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A flat, index-based representation of Expr trees, generated by
+ * GenerateAst. Nodes are rows across primitive arrays rather than objects, and
+ * every traversal uses an explicit stack, so deep trees cannot overflow the
+ * call stack. A node's children are always added before the node itself.
+ */
+class ExprArena {
+    static final byte BINARY = 0;
+    static final byte GROUPING = 1;
+    static final byte NUMBERLITERAL = 2;
+    static final byte STRINGLITERAL = 3;
+    static final byte BOOLLITERAL = 4;
+    static final byte NILLITERAL = 5;
+    static final byte UNARY = 6;
+
+    interface Visitor {
+        void visitBinary(int node);
+
+        void visitGrouping(int node);
+
+        void visitNumberLiteral(int node);
+
+        void visitStringLiteral(int node);
+
+        void visitBoolLiteral(int node);
+
+        void visitNilLiteral(int node);
+
+        void visitUnary(int node);
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+    // The most children any kind of node has.
+    private static final int MAX_CHILDREN = 2;
+
+    private int size = 0;
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    private int[] children0 = new int[INITIAL_CAPACITY];
+    private int[] children1 = new int[INITIAL_CAPACITY];
+    private int[] tokens0 = new int[INITIAL_CAPACITY];
+    private double[] doubles0 = new double[INITIAL_CAPACITY];
+    private int[] literals0 = new int[INITIAL_CAPACITY];
+    private boolean[] booleans0 = new boolean[INITIAL_CAPACITY];
+    private Token[] tokenTable = new Token[INITIAL_CAPACITY];
+    private int tokenCount = 0;
+    private Object[] literalTable = new Object[INITIAL_CAPACITY];
+    private int literalCount = 0;
+
+    /**
+     * @return the number of nodes in the arena
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param node a node's index
+     * @return the node's kind
+     */
+    byte kind(int node) {
+        return kinds[node];
+    }
+
+    /**
+     * Append a Binary node.
+     * 
+     * @return the new node's index
+     */
+    int addBinary(int left, Token operator, int right) {
+        int node = allocate(BINARY);
+        children0[node] = left;
+        tokens0[node] = storeToken(operator);
+        children1[node] = right;
+        return node;
+    }
+
+    /**
+     * Append a Grouping node.
+     * 
+     * @return the new node's index
+     */
+    int addGrouping(int expression) {
+        int node = allocate(GROUPING);
+        children0[node] = expression;
+        return node;
+    }
+
+    /**
+     * Append a NumberLiteral node.
+     * 
+     * @return the new node's index
+     */
+    int addNumberLiteral(double value) {
+        int node = allocate(NUMBERLITERAL);
+        doubles0[node] = value;
+        return node;
+    }
+
+    /**
+     * Append a StringLiteral node.
+     * 
+     * @return the new node's index
+     */
+    int addStringLiteral(String value) {
+        int node = allocate(STRINGLITERAL);
+        literals0[node] = storeLiteral(value);
+        return node;
+    }
+
+    /**
+     * Append a BoolLiteral node.
+     * 
+     * @return the new node's index
+     */
+    int addBoolLiteral(boolean value) {
+        int node = allocate(BOOLLITERAL);
+        booleans0[node] = value;
+        return node;
+    }
+
+    /**
+     * Append a NilLiteral node.
+     * 
+     * @return the new node's index
+     */
+    int addNilLiteral() {
+        int node = allocate(NILLITERAL);
+        return node;
+    }
+
+    /**
+     * Append a Unary node.
+     * 
+     * @return the new node's index
+     */
+    int addUnary(Token operator, int right) {
+        int node = allocate(UNARY);
+        tokens0[node] = storeToken(operator);
+        children0[node] = right;
+        return node;
+    }
+
+    /**
+     * A typed view of Binary nodes.
+     */
+    final class BinaryView {
+        private int node;
+
+        BinaryView at(int node) {
+            this.node = node;
+            return this;
+        }
+
+        int left() {
+            return children0[node];
+        }
+
+        Token operator() {
+            return tokenTable[tokens0[node]];
+        }
+
+        int right() {
+            return children1[node];
+        }
+    }
+
+    /**
+     * A typed view of Grouping nodes.
+     */
+    final class GroupingView {
+        private int node;
+
+        GroupingView at(int node) {
+            this.node = node;
+            return this;
+        }
+
+        int expression() {
+            return children0[node];
+        }
+    }
+
+    /**
+     * A typed view of NumberLiteral nodes.
+     */
+    final class NumberLiteralView {
+        private int node;
+
+        NumberLiteralView at(int node) {
+            this.node = node;
+            return this;
+        }
+
+        double value() {
+            return doubles0[node];
+        }
+    }
+
+    /**
+     * A typed view of StringLiteral nodes.
+     */
+    final class StringLiteralView {
+        private int node;
+
+        StringLiteralView at(int node) {
+            this.node = node;
+            return this;
+        }
+
+        String value() {
+            return (String) literalTable[literals0[node]];
+        }
+    }
+
+    /**
+     * A typed view of BoolLiteral nodes.
+     */
+    final class BoolLiteralView {
+        private int node;
+
+        BoolLiteralView at(int node) {
+            this.node = node;
+            return this;
+        }
+
+        boolean value() {
+            return booleans0[node];
+        }
+    }
+
+    /**
+     * A typed view of NilLiteral nodes.
+     */
+    final class NilLiteralView {
+        private int node;
+
+        NilLiteralView at(int node) {
+            this.node = node;
+            return this;
+        }
+    }
+
+    /**
+     * A typed view of Unary nodes.
+     */
+    final class UnaryView {
+        private int node;
+
+        UnaryView at(int node) {
+            this.node = node;
+            return this;
+        }
+
+        Token operator() {
+            return tokenTable[tokens0[node]];
+        }
+
+        int right() {
+            return children0[node];
+        }
+    }
+
+    /**
+     * Visit every node of a tree, children before parents, using an explicit
+     * stack rather than recursion.
+     * 
+     * @param root    the index of the tree's root
+     * @param visitor called once per node
+     */
+    void walk(int root, Visitor visitor) {
+        int[] stack = new int[INITIAL_CAPACITY];
+        int top = 0;
+        stack[top++] = root;
+
+        while (top > 0) {
+            int node = stack[--top];
+            if (node < 0) {
+                // The node's children have all been visited.
+                dispatch(~node, visitor);
+                continue;
+            }
+
+            if (top + 1 + MAX_CHILDREN > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2 + 1);
+            }
+            // Come back to the node once its children are done. Push the
+            // last child first, so the first child is visited first.
+            stack[top++] = ~node;
+            switch (kinds[node]) {
+                case BINARY:
+                    stack[top++] = children1[node];
+                    stack[top++] = children0[node];
+                    break;
+                case GROUPING:
+                    stack[top++] = children0[node];
+                    break;
+                case UNARY:
+                    stack[top++] = children0[node];
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void dispatch(int node, Visitor visitor) {
+        switch (kinds[node]) {
+            case BINARY:
+                visitor.visitBinary(node);
+                break;
+            case GROUPING:
+                visitor.visitGrouping(node);
+                break;
+            case NUMBERLITERAL:
+                visitor.visitNumberLiteral(node);
+                break;
+            case STRINGLITERAL:
+                visitor.visitStringLiteral(node);
+                break;
+            case BOOLLITERAL:
+                visitor.visitBoolLiteral(node);
+                break;
+            case NILLITERAL:
+                visitor.visitNilLiteral(node);
+                break;
+            case UNARY:
+                visitor.visitUnary(node);
+                break;
+            default:
+                throw new IllegalStateException("Unknown node kind.");
+        }
+    }
+
+    /**
+     * Copy an object tree into the arena.
+     * 
+     * @param root the root of the tree
+     * @return the index of the root's node
+     */
+    int add(Expr root) {
+        // List the nodes parents-first, then add them children-first.
+        List<Expr> order = new ArrayList<>();
+        Deque<Expr> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Expr expr = pending.pop();
+            order.add(expr);
+            if (expr instanceof Expr.Binary) {
+                pending.push(((Expr.Binary) expr).left);
+                pending.push(((Expr.Binary) expr).right);
+            } else if (expr instanceof Expr.Grouping) {
+                pending.push(((Expr.Grouping) expr).expression);
+            } else if (expr instanceof Expr.Unary) {
+                pending.push(((Expr.Unary) expr).right);
+            }
+        }
+
+        Map<Expr, Integer> nodes = new IdentityHashMap<>();
+        for (int i = order.size() - 1; i >= 0; i--) {
+            Expr expr = order.get(i);
+            if (expr instanceof Expr.Binary) {
+                Expr.Binary node = (Expr.Binary) expr;
+                nodes.put(expr, addBinary(nodes.get(node.left), node.operator, nodes.get(node.right)));
+            } else if (expr instanceof Expr.Grouping) {
+                Expr.Grouping node = (Expr.Grouping) expr;
+                nodes.put(expr, addGrouping(nodes.get(node.expression)));
+            } else if (expr instanceof Expr.NumberLiteral) {
+                Expr.NumberLiteral node = (Expr.NumberLiteral) expr;
+                nodes.put(expr, addNumberLiteral(node.value));
+            } else if (expr instanceof Expr.StringLiteral) {
+                Expr.StringLiteral node = (Expr.StringLiteral) expr;
+                nodes.put(expr, addStringLiteral(node.value));
+            } else if (expr instanceof Expr.BoolLiteral) {
+                Expr.BoolLiteral node = (Expr.BoolLiteral) expr;
+                nodes.put(expr, addBoolLiteral(node.value));
+            } else if (expr instanceof Expr.NilLiteral) {
+                nodes.put(expr, addNilLiteral());
+            } else if (expr instanceof Expr.Unary) {
+                Expr.Unary node = (Expr.Unary) expr;
+                nodes.put(expr, addUnary(node.operator, nodes.get(node.right)));
+            }
+        }
+        return nodes.get(root);
+    }
+
+    /**
+     * Build an object tree from a tree in the arena.
+     * 
+     * @param root    the index of the tree's root
+     * @param factory what creates the nodes
+     * @return the root of the object tree
+     */
+    Expr toExpr(int root, ExprFactory factory) {
+        Expr[] built = new Expr[size];
+        walk(root, new Visitor() {
+            @Override
+            public void visitBinary(int node) {
+                built[node] = factory.binary(built[children0[node]], tokenTable[tokens0[node]], built[children1[node]]);
+            }
+
+            @Override
+            public void visitGrouping(int node) {
+                built[node] = factory.grouping(built[children0[node]]);
+            }
+
+            @Override
+            public void visitNumberLiteral(int node) {
+                built[node] = factory.numberLiteral(doubles0[node]);
+            }
+
+            @Override
+            public void visitStringLiteral(int node) {
+                built[node] = factory.stringLiteral((String) literalTable[literals0[node]]);
+            }
+
+            @Override
+            public void visitBoolLiteral(int node) {
+                built[node] = factory.boolLiteral(booleans0[node]);
+            }
+
+            @Override
+            public void visitNilLiteral(int node) {
+                built[node] = factory.nilLiteral();
+            }
+
+            @Override
+            public void visitUnary(int node) {
+                built[node] = factory.unary(tokenTable[tokens0[node]], built[children0[node]]);
+            }
+        });
+        return built[root];
+    }
+
+    private int allocate(byte kind) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            children0 = Arrays.copyOf(children0, capacity);
+            children1 = Arrays.copyOf(children1, capacity);
+            tokens0 = Arrays.copyOf(tokens0, capacity);
+            doubles0 = Arrays.copyOf(doubles0, capacity);
+            literals0 = Arrays.copyOf(literals0, capacity);
+            booleans0 = Arrays.copyOf(booleans0, capacity);
+        }
+        kinds[size] = kind;
+        return size++;
+    }
+
+    private int storeToken(Token token) {
+        if (tokenCount == tokenTable.length) {
+            tokenTable = Arrays.copyOf(tokenTable, tokenCount * 2);
+        }
+        tokenTable[tokenCount] = token;
+        return tokenCount++;
+    }
+
+    private int storeLiteral(Object value) {
+        if (literalCount == literalTable.length) {
+            literalTable = Arrays.copyOf(literalTable, literalCount * 2);
+        }
+        literalTable[literalCount] = value;
+        return literalCount++;
+    }
+}
@@ -0,0 +1,154 @@
+package jlox.src.com.lox;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A compact binary serialization of Expr trees, generated by
+ * GenerateAst. Nodes are written in post-order, each as its kind followed by
+ * its fields other than children, so neither direction recurses.
+ */
+final class ExprCodec {
+    // Fingerprint of the node types; changes whenever they do.
+    static final int FORMAT = 0xfdf8cbb8;
+
+    private static final byte BINARY = 0;
+    private static final byte GROUPING = 1;
+    private static final byte NUMBERLITERAL = 2;
+    private static final byte STRINGLITERAL = 3;
+    private static final byte BOOLLITERAL = 4;
+    private static final byte NILLITERAL = 5;
+    private static final byte UNARY = 6;
+
+    private ExprCodec() {
+    }
+
+    /**
+     * Serialize a tree.
+     * 
+     * @param root the root of the tree
+     * @param out  where to write it
+     */
+    static void write(Expr root, CompileCache.Encoder out) {
+        // Visiting the last child first gives the reverse of a post-order.
+        List<Expr> order = new ArrayList<>();
+        Deque<Expr> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Expr expr = pending.pop();
+            order.add(expr);
+            if (expr instanceof Expr.Binary) {
+                pending.push(((Expr.Binary) expr).left);
+                pending.push(((Expr.Binary) expr).right);
+            } else if (expr instanceof Expr.Grouping) {
+                pending.push(((Expr.Grouping) expr).expression);
+            } else if (expr instanceof Expr.Unary) {
+                pending.push(((Expr.Unary) expr).right);
+            }
+        }
+
+        out.writeVarInt(order.size());
+        for (int i = order.size() - 1; i >= 0; i--) {
+            Expr expr = order.get(i);
+            if (expr instanceof Expr.Binary) {
+                Expr.Binary node = (Expr.Binary) expr;
+                out.writeByte(BINARY);
+                out.writeToken(node.operator);
+            } else if (expr instanceof Expr.Grouping) {
+                out.writeByte(GROUPING);
+            } else if (expr instanceof Expr.NumberLiteral) {
+                Expr.NumberLiteral node = (Expr.NumberLiteral) expr;
+                out.writeByte(NUMBERLITERAL);
+                out.writeNumber(node.value);
+            } else if (expr instanceof Expr.StringLiteral) {
+                Expr.StringLiteral node = (Expr.StringLiteral) expr;
+                out.writeByte(STRINGLITERAL);
+                out.writeString(node.value);
+            } else if (expr instanceof Expr.BoolLiteral) {
+                Expr.BoolLiteral node = (Expr.BoolLiteral) expr;
+                out.writeByte(BOOLLITERAL);
+                out.writeBoolean(node.value);
+            } else if (expr instanceof Expr.NilLiteral) {
+                out.writeByte(NILLITERAL);
+            } else if (expr instanceof Expr.Unary) {
+                Expr.Unary node = (Expr.Unary) expr;
+                out.writeByte(UNARY);
+                out.writeToken(node.operator);
+            } else {
+                throw new IllegalArgumentException("Unknown node type.");
+            }
+        }
+    }
+
+    /**
+     * Deserialize a tree written by write().
+     * 
+     * @param in      where to read it from
+     * @param factory what creates the nodes
+     * @return the root of the tree
+     */
+    static Expr read(CompileCache.Decoder in, ExprFactory factory) {
+        int count = in.readSize();
+        Expr[] stack = new Expr[count];
+        int top = 0;
+        for (int i = 0; i < count; i++) {
+            switch (in.readByte()) {
+                case BINARY: {
+                    if (top < 2) {
+                        throw new IllegalStateException("Malformed tree.");
+                    }
+                    Expr right = stack[--top];
+                    Expr left = stack[--top];
+                    Token operator = in.readToken();
+                    stack[top++] = factory.binary(left, operator, right);
+                    break;
+                }
+                case GROUPING: {
+                    if (top < 1) {
+                        throw new IllegalStateException("Malformed tree.");
+                    }
+                    Expr expression = stack[--top];
+                    stack[top++] = factory.grouping(expression);
+                    break;
+                }
+                case NUMBERLITERAL: {
+                    double value = in.readNumber();
+                    stack[top++] = factory.numberLiteral(value);
+                    break;
+                }
+                case STRINGLITERAL: {
+                    String value = in.readString();
+                    stack[top++] = factory.stringLiteral(value);
+                    break;
+                }
+                case BOOLLITERAL: {
+                    boolean value = in.readBoolean();
+                    stack[top++] = factory.boolLiteral(value);
+                    break;
+                }
+                case NILLITERAL: {
+                    stack[top++] = factory.nilLiteral();
+                    break;
+                }
+                case UNARY: {
+                    if (top < 1) {
+                        throw new IllegalStateException("Malformed tree.");
+                    }
+                    Expr right = stack[--top];
+                    Token operator = in.readToken();
+                    stack[top++] = factory.unary(operator, right);
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unknown node kind.");
+            }
+        }
+
+        if (top != 1) {
+            throw new IllegalStateException("Malformed tree.");
+        }
+        return stack[0];
+    }
+}
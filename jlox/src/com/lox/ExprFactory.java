@@ -0,0 +1,116 @@
+package jlox.src.com.lox;
+
+import java.util.Objects;
+
+/**
+ * Creates Expr nodes; generated by GenerateAst. The plain factory makes
+ * a new node every time. A hash-consing factory hands back the node it made
+ * before for a structurally identical one, if it still remembers it, so
+ * repeated literals and the subtrees built from them are shared. It remembers
+ * nodes in fixed-size tables, where a node simply replaces any other that
+ * hashes to the same slot. Nodes holding a Token are never shared: the
+ * Token's position is reported by errors, so nodes from different places in
+ * the source differ.
+ */
+class ExprFactory {
+    // The factory that shares nothing.
+    static final ExprFactory PLAIN = new ExprFactory();
+
+    // Slots per node type in a hash-consing factory's tables, by default.
+    static final int DEFAULT_CAPACITY = 4096;
+
+    private ExprFactory() {
+    }
+
+    /**
+     * @param capacity slots per node type, rounded up to a power of two
+     * @return a new factory that shares the nodes it remembers
+     */
+    static ExprFactory hashConsing(int capacity) {
+        return new HashConsing(capacity);
+    }
+
+    Expr.Binary binary(Expr left, Token operator, Expr right) {
+        return new Expr.Binary(left, operator, right);
+    }
+
+    Expr.Grouping grouping(Expr expression) {
+        return new Expr.Grouping(expression);
+    }
+
+    Expr.NumberLiteral numberLiteral(double value) {
+        return new Expr.NumberLiteral(value);
+    }
+
+    Expr.StringLiteral stringLiteral(String value) {
+        return new Expr.StringLiteral(value);
+    }
+
+    Expr.BoolLiteral boolLiteral(boolean value) {
+        return value ? Expr.BoolLiteral.TRUE : Expr.BoolLiteral.FALSE;
+    }
+
+    Expr.NilLiteral nilLiteral() {
+        return Expr.NilLiteral.INSTANCE;
+    }
+
+    Expr.Unary unary(Token operator, Expr right) {
+        return new Expr.Unary(operator, right);
+    }
+
+    private static final class HashConsing extends ExprFactory {
+        // Shifts a mixed hash down to a slot.
+        private final int shift;
+        private final Expr.Grouping[] groupings;
+        private final Expr.NumberLiteral[] numberLiterals;
+        private final Expr.StringLiteral[] stringLiterals;
+
+        HashConsing(int capacity) {
+            this.shift = Integer.numberOfLeadingZeros(Math.max(capacity, 2) - 1);
+            this.groupings = new Expr.Grouping[1 << (32 - shift)];
+            this.numberLiterals = new Expr.NumberLiteral[1 << (32 - shift)];
+            this.stringLiterals = new Expr.StringLiteral[1 << (32 - shift)];
+        }
+
+        /**
+         * Pick a slot by Fibonacci hashing, which also spreads hashes that
+         * only differ in their high bits, as those of Doubles do.
+         */
+        private int slot(int hash) {
+            return (hash * 0x9E3779B9) >>> shift;
+        }
+
+        @Override
+        Expr.Grouping grouping(Expr expression) {
+            int slot = slot(System.identityHashCode(expression));
+            Expr.Grouping node = groupings[slot];
+            if (node == null || node.expression != expression) {
+                node = super.grouping(expression);
+                groupings[slot] = node;
+            }
+            return node;
+        }
+
+        @Override
+        Expr.NumberLiteral numberLiteral(double value) {
+            int slot = slot(Double.hashCode(value));
+            Expr.NumberLiteral node = numberLiterals[slot];
+            if (node == null || Double.compare(node.value, value) != 0) {
+                node = super.numberLiteral(value);
+                numberLiterals[slot] = node;
+            }
+            return node;
+        }
+
+        @Override
+        Expr.StringLiteral stringLiteral(String value) {
+            int slot = slot(Objects.hashCode(value));
+            Expr.StringLiteral node = stringLiterals[slot];
+            if (node == null || !Objects.equals(node.value, value)) {
+                node = super.stringLiteral(value);
+                stringLiterals[slot] = node;
+            }
+            return node;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package jlox.src.com.lox;
+
+/**
+ * An optimization pass that rewrites an Expr into an equivalent one. By
+ * default every node is rebuilt from its rewritten children, reusing the node
+ * itself when none of them changed; passes override only the node types they
+ * simplify.
+ */
+abstract class ExprRewriter implements Expr.Visitor<Expr> {
+    // What creates the nodes the pass builds.
+    final ExprFactory factory;
+
+    ExprRewriter(ExprFactory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * @return the pass's name, for statistics
+     */
+    abstract String name();
+
+    Expr rewrite(Expr expr) {
+        return expr.accept(this);
+    }
+
+    @Override
+    public Expr visitBinaryExpr(Expr.Binary expr) {
+        Expr left = rewrite(expr.left);
+        Expr right = rewrite(expr.right);
+        if (left == expr.left && right == expr.right) {
+            return expr;
+        }
+        return factory.binary(left, expr.operator, right);
+    }
+
+    @Override
+    public Expr visitGroupingExpr(Expr.Grouping expr) {
+        Expr expression = rewrite(expr.expression);
+        if (expression == expr.expression) {
+            return expr;
+        }
+        return factory.grouping(expression);
+    }
+
+    @Override
+    public Expr visitNumberLiteralExpr(Expr.NumberLiteral expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitStringLiteralExpr(Expr.StringLiteral expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitBoolLiteralExpr(Expr.BoolLiteral expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitNilLiteralExpr(Expr.NilLiteral expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitUnaryExpr(Expr.Unary expr) {
+        Expr right = rewrite(expr.right);
+        if (right == expr.right) {
+            return expr;
+        }
+        return factory.unary(expr.operator, right);
+    }
+
+    /**
+     * Look through any Grouping nodes around an expression.
+     * 
+     * @param expr an expression
+     * @return the first descendant that is not a Grouping
+     */
+    static Expr unwrap(Expr expr) {
+        while (expr instanceof Expr.Grouping) {
+            expr = ((Expr.Grouping) expr).expression;
+        }
+        return expr;
+    }
+}
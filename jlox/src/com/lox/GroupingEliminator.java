@@ -0,0 +1,21 @@
+package jlox.src.com.lox;
+
+/**
+ * Remove Grouping nodes. Parentheses only matter while parsing; once the tree
+ * is built its shape already encodes them.
+ */
+class GroupingEliminator extends ExprRewriter {
+    GroupingEliminator(ExprFactory factory) {
+        super(factory);
+    }
+
+    @Override
+    String name() {
+        return "grouping";
+    }
+
+    @Override
+    public Expr visitGroupingExpr(Expr.Grouping expr) {
+        return rewrite(expr.expression);
+    }
+}
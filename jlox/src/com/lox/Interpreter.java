@@ -0,0 +1,262 @@
+package jlox.src.com.lox;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+public class Interpreter implements Expr.Visitor<Object> {
+    /**
+     * How expressions are executed.
+     */
+    enum Mode {
+        // Walk the Expr tree through its Visitor.
+        TREE,
+        // Build a self-specializing EvalNode tree.
+        NODES,
+        // Compile to bytecode and run it on the VM.
+        VM,
+        // Run on EvalNodes, compiling trees that run often to JVM classes.
+        JIT
+    }
+
+    private final Mode mode;
+    private final VM vm = new VM();
+    private final JitCompiler jit;
+    // In NODES mode, the EvalNode tree of every Expr run so far, forgotten
+    // along with the Expr. Running the same Expr again reuses the tree, and
+    // so the specializations it made.
+    private final Map<Expr, EvalNode.Root> nodes = new WeakHashMap<>();
+
+    Interpreter() {
+        this(Mode.NODES);
+    }
+
+    /**
+     * @param mode how expressions are executed
+     */
+    Interpreter(Mode mode) {
+        this(mode, JitCompiler.DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param mode         how expressions are executed
+     * @param jitThreshold in JIT mode, how many times a tree runs before it
+     *                     is compiled
+     */
+    Interpreter(Mode mode, int jitThreshold) {
+        this.mode = mode;
+        this.jit = mode == Mode.JIT ? new JitCompiler(jitThreshold) : null;
+    }
+
+    /**
+     * Evaluate an expression and print its value.
+     * 
+     * @param expression a valid lox expression
+     * @param context    the run to print the value, or report an error, to
+     */
+    void interpret(Expr expression, RunContext context) {
+        try {
+            Object value = execute(expression);
+            context.out().println(stringify(value));
+        } catch (RuntimeError error) {
+            context.runtimeError(error);
+        }
+    }
+
+    /**
+     * Evaluate an expression with this interpreter's execution mode.
+     * 
+     * @param expression a valid lox expression
+     * @return the expression's value
+     */
+    Object execute(Expr expression) {
+        switch (mode) {
+            case TREE:
+                return evaluate(expression);
+            case VM:
+                return vm.run(BytecodeCompiler.compile(expression));
+            case JIT:
+                return jit.execute(expression);
+            default:
+                EvalNode.Root root = nodes.get(expression);
+                if (root == null) {
+                    root = EvalNode.build(expression);
+                    nodes.put(expression, root);
+                }
+                return root.execute();
+        }
+    }
+
+    /**
+     * Evaluate an expression by walking its tree directly. This is the
+     * reference semantics the specializing EvalNode tree must match.
+     * 
+     * @param expr a valid lox expression
+     * @return the expression's value
+     */
+    Object evaluate(Expr expr) {
+        return expr.accept(this);
+    }
+
+    @Override
+    public Object visitBinaryExpr(Expr.Binary expr) {
+        Object left = evaluate(expr.left);
+        Object right = evaluate(expr.right);
+        return binary(expr.operator, left, right);
+    }
+
+    @Override
+    public Object visitGroupingExpr(Expr.Grouping expr) {
+        return evaluate(expr.expression);
+    }
+
+    @Override
+    public Object visitNumberLiteralExpr(Expr.NumberLiteral expr) {
+        return expr.value;
+    }
+
+    @Override
+    public Object visitStringLiteralExpr(Expr.StringLiteral expr) {
+        return expr.value;
+    }
+
+    @Override
+    public Object visitBoolLiteralExpr(Expr.BoolLiteral expr) {
+        return expr.value;
+    }
+
+    @Override
+    public Object visitNilLiteralExpr(Expr.NilLiteral expr) {
+        return null;
+    }
+
+    @Override
+    public Object visitUnaryExpr(Expr.Unary expr) {
+        Object right = evaluate(expr.right);
+        return unary(expr.operator, right);
+    }
+
+    /**
+     * Apply a unary operator to an already evaluated operand.
+     * 
+     * @param operator the operator Token
+     * @param right    the operand's value
+     * @return the result
+     */
+    static Object unary(Token operator, Object right) {
+        switch (operator.type) {
+            case BANG:
+                return !isTruthy(right);
+            case MINUS:
+                checkNumberOperand(operator, right);
+                return -(double) right;
+            default:
+                // Unreachable.
+                return null;
+        }
+    }
+
+    /**
+     * Apply a binary operator to already evaluated operands.
+     * 
+     * @param operator the operator Token
+     * @param left     the left operand's value
+     * @param right    the right operand's value
+     * @return the result
+     */
+    static Object binary(Token operator, Object left, Object right) {
+        switch (operator.type) {
+            case GREATER:
+                checkNumberOperands(operator, left, right);
+                return (double) left > (double) right;
+            case GREATER_EQUAL:
+                checkNumberOperands(operator, left, right);
+                return (double) left >= (double) right;
+            case LESS:
+                checkNumberOperands(operator, left, right);
+                return (double) left < (double) right;
+            case LESS_EQUAL:
+                checkNumberOperands(operator, left, right);
+                return (double) left <= (double) right;
+            case BANG_EQUAL:
+                return !isEqual(left, right);
+            case EQUAL_EQUAL:
+                return isEqual(left, right);
+            case MINUS:
+                checkNumberOperands(operator, left, right);
+                return (double) left - (double) right;
+            case PLUS:
+                if (left instanceof Double && right instanceof Double) {
+                    return (double) left + (double) right;
+                }
+                if (left instanceof String && right instanceof String) {
+                    return (String) left + (String) right;
+                }
+                throw new RuntimeError(operator, "Operands must be two numbers or two strings.");
+            case SLASH:
+                checkNumberOperands(operator, left, right);
+                return (double) left / (double) right;
+            case STAR:
+                checkNumberOperands(operator, left, right);
+                return (double) left * (double) right;
+            default:
+                // Unreachable.
+                return null;
+        }
+    }
+
+    static void checkNumberOperand(Token operator, Object operand) {
+        if (operand instanceof Double) {
+            return;
+        }
+        throw new RuntimeError(operator, "Operand must be a number.");
+    }
+
+    static void checkNumberOperands(Token operator, Object left, Object right) {
+        if (left instanceof Double && right instanceof Double) {
+            return;
+        }
+        throw new RuntimeError(operator, "Operands must be numbers.");
+    }
+
+    /**
+     * false and nil are falsey; everything else is truthy.
+     */
+    static boolean isTruthy(Object object) {
+        if (object == null) {
+            return false;
+        }
+        if (object instanceof Boolean) {
+            return (boolean) object;
+        }
+        return true;
+    }
+
+    static boolean isEqual(Object a, Object b) {
+        if (a == null && b == null) {
+            return true;
+        }
+        if (a == null) {
+            return false;
+        }
+        return a.equals(b);
+    }
+
+    /**
+     * Convert a lox value to the text the user sees.
+     */
+    static String stringify(Object object) {
+        if (object == null) {
+            return "nil";
+        }
+
+        if (object instanceof Double) {
+            String text = object.toString();
+            if (text.endsWith(".0")) {
+                text = text.substring(0, text.length() - 2);
+            }
+            return text;
+        }
+
+        return object.toString();
+    }
+}
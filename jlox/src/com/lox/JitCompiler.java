@@ -0,0 +1,515 @@
+package jlox.src.com.lox;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Compile Expr trees to JVM bytecode, defined as hidden classes, so HotSpot
+ * can compile Lox arithmetic and comparisons to native code. Compiling is
+ * tiered: a tree runs on a self-specializing EvalNode tree first, and is only
+ * compiled once it has run threshold times. A compiled tree is held only
+ * through its tree, and its hidden class is not strongly bound to its
+ * loader, so both are collected once the tree is.
+ * 
+ * Runs are counted per tree object, not per source text: a script runs each
+ * of its trees once, and every run parses its own, so only a threshold of 0
+ * compiles a script's trees. Tiering pays off when one caller evaluates the
+ * same tree repeatedly.
+ * 
+ * Lox values here have types known at compile time, so numbers and booleans
+ * stay unboxed on the JVM stack between operators. An operator whose operands
+ * are the wrong types calls the Interpreter's own implementation instead,
+ * which reports the same runtime error. The code never branches.
+ */
+class JitCompiler {
+    // Runs a tree gets on the EvalNode tree before it is compiled.
+    static final int DEFAULT_THRESHOLD = 100;
+
+    // Code moved out to its own method once it is longer than this, in bytes.
+    // HotSpot will not compile methods over 8000 bytes, and a method holds at
+    // most two such pieces.
+    private static final int SPLIT_SIZE = 1000;
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final String PACKAGE = "jlox/src/com/lox/";
+    private static final String COMPILED = PACKAGE + "JitCompiler$Compiled";
+    private static final String JIT = PACKAGE + "JitCompiler";
+    private static final String INTERPRETER = PACKAGE + "Interpreter";
+    private static final String TOKEN = PACKAGE + "Token";
+    private static final String OBJECT = "java/lang/Object";
+    private static final MethodType CONSTRUCTOR = MethodType.methodType(void.class, Object[].class);
+
+    // The opcodes the compiler emits.
+    private static final int ACONST_NULL = 0x01;
+    private static final int ICONST_0 = 0x03;
+    private static final int ICONST_1 = 0x04;
+    private static final int DCONST_0 = 0x0e;
+    private static final int DCONST_1 = 0x0f;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int AALOAD = 0x32;
+    private static final int POP = 0x57;
+    private static final int POP2 = 0x58;
+    private static final int DUP_X2 = 0x5b;
+    private static final int SWAP = 0x5f;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DDIV = 0x6f;
+    private static final int DNEG = 0x77;
+    private static final int IXOR = 0x82;
+    private static final int IRETURN = 0xac;
+    private static final int DRETURN = 0xaf;
+    private static final int ARETURN = 0xb0;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int CHECKCAST = 0xc0;
+
+    /**
+     * The static type of a compiled expression's value, and how it is kept
+     * on the JVM stack.
+     */
+    private enum Kind {
+        NUMBER("D", 2, DRETURN),
+        BOOLEAN("Z", 1, IRETURN),
+        STRING("Ljava/lang/String;", 1, ARETURN),
+        // nil, or a value whose type isn't known.
+        OBJECT("Ljava/lang/Object;", 1, ARETURN);
+
+        final String descriptor;
+        // Stack slots the value takes.
+        final int slots;
+        final int returnOpcode;
+
+        Kind(String descriptor, int slots, int returnOpcode) {
+            this.descriptor = descriptor;
+            this.slots = slots;
+            this.returnOpcode = returnOpcode;
+        }
+    }
+
+    /**
+     * A compiled expression. Each is an instance of its own hidden class,
+     * which reads the Tokens and other values it needs from constants.
+     */
+    abstract static class Compiled {
+        final Object[] constants;
+
+        Compiled(Object[] constants) {
+            this.constants = constants;
+        }
+
+        /**
+         * Evaluate the expression.
+         * 
+         * @return the expression's value
+         */
+        abstract Object execute();
+    }
+
+    /**
+     * How one tree is run: on its EvalNode tree until it has run threshold
+     * times, then compiled.
+     */
+    private static class Tier {
+        private EvalNode.Root nodes = null;
+        private Compiled compiled = null;
+        private int runs = 0;
+        // Cleared if the tree is too large to compile.
+        private boolean compilable = true;
+
+        Object execute(Expr expr, int threshold) {
+            if (compiled != null) {
+                return compiled.execute();
+            }
+            if (compilable && runs++ >= threshold) {
+                compiled = compile(expr);
+                if (compiled != null) {
+                    nodes = null;
+                    return compiled.execute();
+                }
+                compilable = false;
+            }
+            if (nodes == null) {
+                nodes = EvalNode.build(expr);
+            }
+            return nodes.execute();
+        }
+    }
+
+    // Every tree run so far, forgotten along with the tree.
+    private final Map<Expr, Tier> tiers = new WeakHashMap<>();
+    private final int threshold;
+
+    /**
+     * @param threshold how many times a tree runs before it is compiled
+     */
+    JitCompiler(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Evaluate an expression, compiling it if it has run often enough.
+     * 
+     * @param expr a valid lox expression
+     * @return the expression's value
+     */
+    Object execute(Expr expr) {
+        Tier tier = tiers.get(expr);
+        if (tier == null) {
+            tier = new Tier();
+            tiers.put(expr, tier);
+        }
+        return tier.execute(expr, threshold);
+    }
+
+    /**
+     * Compile an expression to a hidden class.
+     * 
+     * @param expr a valid lox expression
+     * @return the compiled expression, or null if it has too many distinct
+     *         numbers to fit in a class file
+     */
+    static Compiled compile(Expr expr) {
+        Generator generator = new Generator();
+        ClassWriter writer = generator.generate(expr);
+        if (writer == null) {
+            return null;
+        }
+        try {
+            MethodHandles.Lookup lookup = LOOKUP.defineHiddenClass(writer.toByteArray(), true);
+            MethodHandle constructor = lookup.findConstructor(lookup.lookupClass(), CONSTRUCTOR);
+            return (Compiled) constructor.invoke(generator.constants.toArray());
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not define compiled expression.", e);
+        }
+    }
+
+    /**
+     * Write the class for one expression. Each visit emits code leaving the
+     * expression's value on the stack, and returns its Kind.
+     */
+    private static class Generator implements Expr.Visitor<Kind> {
+        private final ClassWriter writer = new ClassWriter(PACKAGE + "CompiledExpr", COMPILED);
+        private ClassWriter.Code code = new ClassWriter.Code();
+        // Tokens and other objects the code loads from Compiled.constants.
+        private final List<Object> constants = new ArrayList<>();
+        private final Map<Object, Integer> constantIndices = new HashMap<>();
+        private int parts = 0;
+
+        /**
+         * @return the class, or null if its constant pool overflowed
+         */
+        ClassWriter generate(Expr expr) {
+            ClassWriter.Code constructor = new ClassWriter.Code();
+            constructor.op(ALOAD_0, 1);
+            constructor.op(ALOAD_1, 1);
+            constructor.opShort(INVOKESPECIAL, writer.methodRef(COMPILED, "<init>", "([Ljava/lang/Object;)V"), -2);
+            constructor.op(RETURN, 0);
+            writer.method(0, "<init>", "([Ljava/lang/Object;)V", 2, constructor);
+
+            box(compile(expr));
+            code.op(ARETURN, -1);
+            writer.method(0, "execute", "()Ljava/lang/Object;", 1, code);
+            return writer.overflowed() ? null : writer;
+        }
+
+        /**
+         * Emit an operand, moving its code out to a method of its own if it
+         * is long.
+         */
+        private Kind compile(Expr expr) {
+            int start = code.length();
+            int depth = code.depth();
+            int before = code.startMeasure();
+            Kind kind = expr.accept(this);
+            if (code.length() - start > SPLIT_SIZE) {
+                ClassWriter.Code part = code.cut(start, depth);
+                part.op(kind.returnOpcode, -kind.slots);
+                String name = "part" + parts++;
+                String descriptor = "()" + kind.descriptor;
+                writer.method(ClassWriter.ACC_PRIVATE, name, descriptor, 1, part);
+                code.op(ALOAD_0, 1);
+                code.opShort(INVOKESPECIAL, writer.methodRef(writer.name(), name, descriptor), kind.slots - 1);
+            }
+            code.endMeasure(before);
+            return kind;
+        }
+
+        @Override
+        public Kind visitBinaryExpr(Expr.Binary expr) {
+            Kind left = compile(expr.left);
+            Kind right = compile(expr.right);
+            boolean numbers = left == Kind.NUMBER && right == Kind.NUMBER;
+
+            switch (expr.operator.type) {
+                case PLUS:
+                    if (left == Kind.STRING && right == Kind.STRING) {
+                        invoke(INVOKESTATIC, JIT, "concat", "(Ljava/lang/String;Ljava/lang/String;)Ljava/lang/String;",
+                                -1);
+                        return Kind.STRING;
+                    }
+                    return numbers ? arithmetic(DADD) : generic(left, right, expr.operator);
+                case MINUS:
+                    return numbers ? arithmetic(DSUB) : generic(left, right, expr.operator);
+                case STAR:
+                    return numbers ? arithmetic(DMUL) : generic(left, right, expr.operator);
+                case SLASH:
+                    return numbers ? arithmetic(DDIV) : generic(left, right, expr.operator);
+                case GREATER:
+                    return numbers ? comparison("greater") : generic(left, right, expr.operator);
+                case GREATER_EQUAL:
+                    return numbers ? comparison("greaterEqual") : generic(left, right, expr.operator);
+                case LESS:
+                    return numbers ? comparison("less") : generic(left, right, expr.operator);
+                case LESS_EQUAL:
+                    return numbers ? comparison("lessEqual") : generic(left, right, expr.operator);
+                case EQUAL_EQUAL:
+                    equality(left, right);
+                    return Kind.BOOLEAN;
+                case BANG_EQUAL:
+                    equality(left, right);
+                    not();
+                    return Kind.BOOLEAN;
+                default:
+                    // Unreachable.
+                    throw new IllegalStateException("Unknown operator " + expr.operator.type + ".");
+            }
+        }
+
+        @Override
+        public Kind visitGroupingExpr(Expr.Grouping expr) {
+            // Grouping only affects parsing.
+            return expr.expression.accept(this);
+        }
+
+        @Override
+        public Kind visitNumberLiteralExpr(Expr.NumberLiteral expr) {
+            long bits = Double.doubleToRawLongBits(expr.value);
+            if (bits == Double.doubleToRawLongBits(0.0)) {
+                code.op(DCONST_0, 2);
+            } else if (bits == Double.doubleToRawLongBits(1.0)) {
+                code.op(DCONST_1, 2);
+            } else {
+                code.opShort(LDC2_W, writer.number(expr.value), 2);
+            }
+            return Kind.NUMBER;
+        }
+
+        @Override
+        public Kind visitStringLiteralExpr(Expr.StringLiteral expr) {
+            constant(expr.value, "java/lang/String");
+            return Kind.STRING;
+        }
+
+        @Override
+        public Kind visitBoolLiteralExpr(Expr.BoolLiteral expr) {
+            code.op(expr.value ? ICONST_1 : ICONST_0, 1);
+            return Kind.BOOLEAN;
+        }
+
+        @Override
+        public Kind visitNilLiteralExpr(Expr.NilLiteral expr) {
+            code.op(ACONST_NULL, 1);
+            return Kind.OBJECT;
+        }
+
+        @Override
+        public Kind visitUnaryExpr(Expr.Unary expr) {
+            Kind right = compile(expr.right);
+
+            switch (expr.operator.type) {
+                case MINUS:
+                    if (right == Kind.NUMBER) {
+                        code.op(DNEG, 0);
+                        return Kind.NUMBER;
+                    }
+                    box(right);
+                    constant(expr.operator, TOKEN);
+                    invoke(INVOKESTATIC, JIT, "unary", "(Ljava/lang/Object;L" + TOKEN + ";)Ljava/lang/Object;", -1);
+                    return Kind.OBJECT;
+                case BANG:
+                    if (right == Kind.NUMBER) {
+                        // Every number is truthy.
+                        code.op(POP2, -2);
+                        code.op(ICONST_0, 1);
+                    } else {
+                        truthy(right);
+                        not();
+                    }
+                    return Kind.BOOLEAN;
+                default:
+                    // Unreachable.
+                    throw new IllegalStateException("Unknown operator " + expr.operator.type + ".");
+            }
+        }
+
+        private Kind arithmetic(int opcode) {
+            code.op(opcode, -2);
+            return Kind.NUMBER;
+        }
+
+        private Kind comparison(String helper) {
+            invoke(INVOKESTATIC, JIT, helper, "(DD)Z", -3);
+            return Kind.BOOLEAN;
+        }
+
+        /**
+         * Compare the top two values as Interpreter.isEqual() would.
+         */
+        private void equality(Kind left, Kind right) {
+            if (left == Kind.NUMBER && right == Kind.NUMBER) {
+                invoke(INVOKESTATIC, JIT, "equal", "(DD)Z", -3);
+            } else if (left == Kind.BOOLEAN && right == Kind.BOOLEAN) {
+                // Zero when equal.
+                code.op(IXOR, -1);
+                not();
+            } else {
+                boxBoth(left, right);
+                invoke(INVOKESTATIC, INTERPRETER, "isEqual", "(Ljava/lang/Object;Ljava/lang/Object;)Z", -1);
+            }
+        }
+
+        /**
+         * Apply an operator to operands of the wrong or unknown types through
+         * the Interpreter, which raises the error if there is one.
+         */
+        private Kind generic(Kind left, Kind right, Token operator) {
+            boxBoth(left, right);
+            constant(operator, TOKEN);
+            invoke(INVOKESTATIC, JIT, "binary",
+                    "(Ljava/lang/Object;Ljava/lang/Object;L" + TOKEN + ";)Ljava/lang/Object;", -2);
+            return Kind.OBJECT;
+        }
+
+        /**
+         * Replace the value on top of the stack with its truthiness, as an
+         * int 0 or 1.
+         */
+        private void truthy(Kind kind) {
+            if (kind != Kind.BOOLEAN) {
+                invoke(INVOKESTATIC, INTERPRETER, "isTruthy", "(Ljava/lang/Object;)Z", 0);
+            }
+        }
+
+        private void not() {
+            code.op(ICONST_1, 1);
+            code.op(IXOR, -1);
+        }
+
+        /**
+         * Box the top two values, the right operand first as it is on top.
+         */
+        private void boxBoth(Kind left, Kind right) {
+            box(right);
+            if (left == Kind.NUMBER) {
+                // Bring the number up over the right operand, then back down.
+                code.op(DUP_X2, 1);
+                code.op(POP, -1);
+                box(left);
+                code.op(SWAP, 0);
+            } else if (left == Kind.BOOLEAN) {
+                code.op(SWAP, 0);
+                box(left);
+                code.op(SWAP, 0);
+            }
+        }
+
+        /**
+         * Box the value on top of the stack, as the Interpreter would.
+         */
+        private void box(Kind kind) {
+            if (kind == Kind.NUMBER) {
+                invoke(INVOKESTATIC, "java/lang/Double", "valueOf", "(D)Ljava/lang/Double;", -1);
+            } else if (kind == Kind.BOOLEAN) {
+                invoke(INVOKESTATIC, "java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;", 0);
+            }
+        }
+
+        /**
+         * Load one of the Compiled's constants.
+         * 
+         * @param value        the constant
+         * @param internalName the class to cast it to
+         */
+        private void constant(Object value, String internalName) {
+            Integer index = constantIndices.get(value);
+            if (index == null) {
+                index = constants.size();
+                constants.add(value);
+                constantIndices.put(value, index);
+            }
+            code.op(ALOAD_0, 1);
+            code.opShort(GETFIELD, writer.fieldRef(COMPILED, "constants", "[Ljava/lang/Object;"), 0);
+            if (index <= 5) {
+                code.op(ICONST_0 + index, 1);
+            } else if (index <= Byte.MAX_VALUE) {
+                code.opByte(BIPUSH, index, 1);
+            } else if (index <= Short.MAX_VALUE) {
+                code.opShort(SIPUSH, index, 1);
+            } else {
+                code.opShort(LDC_W, writer.integer(index), 1);
+            }
+            code.op(AALOAD, -1);
+            if (!internalName.equals(OBJECT)) {
+                code.opShort(CHECKCAST, writer.classRef(internalName), 0);
+            }
+        }
+
+        private void invoke(int opcode, String owner, String name, String descriptor, int stackChange) {
+            code.opShort(opcode, writer.methodRef(owner, name, descriptor), stackChange);
+        }
+    }
+
+    // What compiled code calls. These are small enough for HotSpot to inline.
+
+    static Object unary(Object right, Token operator) {
+        return Interpreter.unary(operator, right);
+    }
+
+    static Object binary(Object left, Object right, Token operator) {
+        return Interpreter.binary(operator, left, right);
+    }
+
+    static String concat(String a, String b) {
+        return a + b;
+    }
+
+    static boolean greater(double a, double b) {
+        return a > b;
+    }
+
+    static boolean greaterEqual(double a, double b) {
+        return a >= b;
+    }
+
+    static boolean less(double a, double b) {
+        return a < b;
+    }
+
+    static boolean lessEqual(double a, double b) {
+        return a <= b;
+    }
+
+    /**
+     * Compare numbers as Double.equals() does: NaN equals NaN, 0.0 isn't -0.0.
+     */
+    static boolean equal(double a, double b) {
+        return Double.doubleToLongBits(a) == Double.doubleToLongBits(b);
+    }
+}
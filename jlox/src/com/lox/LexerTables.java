@@ -0,0 +1,228 @@
+package jlox.src.com.lox;
+
+/**
+ * The tables of a DFA that recognises lox lexemes, generated by
+ * GenerateLexer from its token spec. Characters are mapped to classes of
+ * characters that no rule tells apart, and the DFA steps on classes. A
+ * state accepts the rule of the longest lexeme that ends there, and the
+ * rule says which Token, if any, the lexeme produces and what the scanner
+ * does next.
+ */
+final class LexerTables {
+    // Actions, run once a rule has matched.
+    static final int TOKEN = 0;
+    static final int NUMBER = 1;
+    static final int STRING = 2;
+    static final int COMMENT = 3;
+    static final int WHITESPACE = 4;
+
+    static final int CLASS_COUNT = 37;
+    // Each state's row holds its next state for each class, then the rule
+    // it accepts or -1.
+    static final int ACCEPT = CLASS_COUNT;
+    static final int ROW_LENGTH = CLASS_COUNT + 1;
+
+    // States are numbered by their rows' offsets in TRANSITIONS, saving a
+    // multiplication per character.
+    static final int DEAD = 0;
+    // Dead ends, where no character can extend the lexeme, are numbered
+    // from just after DEAD up to this.
+    static final int LAST_DEAD_END = 17 * ROW_LENGTH;
+    static final int START = 18 * ROW_LENGTH;
+
+    // Class of each ASCII character. Any other character is class 0,
+    // which no rule matches.
+    static final byte[] CLASSES = {
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 0, 0, 1, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            1, 2, 3, 0, 0, 0, 0, 0, 4, 5, 6, 7, 8, 9, 10, 11,
+            12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 0, 13, 14, 15, 16, 0,
+            0, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17,
+            17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 17, 0, 0, 0, 0, 17,
+            0, 18, 17, 19, 20, 21, 22, 17, 23, 24, 17, 17, 25, 17, 26, 27,
+            28, 17, 29, 30, 31, 32, 33, 34, 17, 17, 17, 35, 0, 36, 0, 0,
+    };
+
+    // Next state, indexed by state + class, and accepted rule, at state + ACCEPT.
+    static final short[] TRANSITIONS = {
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, -1, // 0
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 39, // 38 accepts whitespace
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 37, // 76 accepts STRING
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, // 114 accepts LEFT_PAREN
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, // 152 accepts RIGHT_PAREN
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 10, // 190 accepts STAR
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 7, // 228 accepts PLUS
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 4, // 266 accepts COMMA
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 6, // 304 accepts MINUS
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 5, // 342 accepts DOT
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 8, // 380 accepts SEMICOLON
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 2, // 418 accepts LEFT_BRACE
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 3, // 456 accepts RIGHT_BRACE
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 12, // 494 accepts BANG_EQUAL
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 38, // 532 accepts comment
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 18, // 570 accepts LESS_EQUAL
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 14, // 608 accepts EQUAL_EQUAL
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 16, // 646 accepts GREATER_EQUAL
+            0, 38, 722, 76, 114, 152, 190, 228, 266, 304, 342, 760, 798, 380, 836, 874, 912, 950, 988, 1026, 950, 1064, 1102, 950, 1140, 950, 1178, 1216, 1254, 1292, 1330, 1368, 950, 1406, 1444, 418, 456, -1, // 684
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 494, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 11, // 722 accepts BANG
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 532, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 9, // 760 accepts SLASH
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1482, 0, 798, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 36, // 798 accepts NUMBER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 570, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 17, // 836 accepts LESS
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 608, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 13, // 874 accepts EQUAL
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 646, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 15, // 912 accepts GREATER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 950 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1558, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 988 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1596, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 1026 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1634, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 1064 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1672, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1710, 1520, 1520, 1520, 1520, 1748, 1520, 1520, 0, 0, 35, // 1102 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1786, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 1140 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1824, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 1178 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1862, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 1216 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1900, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 1254 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1938, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 1292 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1976, 1520, 1520, 0, 0, 35, // 1330 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 2014, 1520, 1520, 1520, 1520, 1520, 2052, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 1368 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 2090, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 1406 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 2128, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 1444 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 2166, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, -1, // 1482
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 1520 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 2204, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 1558 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 2242, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 1596 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 2280, 1520, 1520, 1520, 1520, 0, 0, 35, // 1634 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 2318, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 1672 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 2356, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 1710 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 2394, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 1748 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 25, // 1786 accepts IF
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 2432, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 1824 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 27, // 1862 accepts OR
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 2470, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 1900 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 2508, 1520, 1520, 1520, 0, 0, 35, // 1938 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 2546, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 1976 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 2584, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 2014 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 2622, 1520, 1520, 0, 0, 35, // 2052 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 2660, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 2090 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 2698, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 2128 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 2166, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 36, // 2166 accepts NUMBER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 19, // 2204 accepts AND
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 2736, 1520, 1520, 1520, 1520, 0, 0, 35, // 2242 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 2774, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 2280 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 2812, 1520, 1520, 1520, 1520, 0, 0, 35, // 2318 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 24, // 2356 accepts FOR
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 23, // 2394 accepts FUN
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 26, // 2432 accepts NIL
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 2850, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 2470 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 2888, 1520, 1520, 0, 0, 35, // 2508 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 2926, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 2546 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 2964, 1520, 1520, 1520, 1520, 0, 0, 35, // 2584 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 3002, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 2622 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 33, // 2660 accepts VAR
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 3040, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 2698 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 3078, 1520, 1520, 1520, 1520, 0, 0, 35, // 2736 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 21, // 2774 accepts ELSE
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 3116, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 2812 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 3154, 1520, 1520, 1520, 0, 0, 35, // 2850 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 3192, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 2888 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 3230, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 2926 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 31, // 2964 accepts THIS
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 32, // 3002 accepts TRUE
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 3268, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 3040 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 20, // 3078 accepts CLASS
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 22, // 3116 accepts FALSE
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 28, // 3154 accepts PRINT
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 3306, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 35, // 3192 accepts IDENTIFIER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 30, // 3230 accepts SUPER
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 34, // 3268 accepts WHILE
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1520, 0, 0, 0, 0, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 1520, 0, 0, 29, // 3306 accepts RETURN
+    };
+
+    // Token produced by each rule, or null.
+    static final TokenType[] TYPES = {
+            TokenType.LEFT_PAREN,
+            TokenType.RIGHT_PAREN,
+            TokenType.LEFT_BRACE,
+            TokenType.RIGHT_BRACE,
+            TokenType.COMMA,
+            TokenType.DOT,
+            TokenType.MINUS,
+            TokenType.PLUS,
+            TokenType.SEMICOLON,
+            TokenType.SLASH,
+            TokenType.STAR,
+            TokenType.BANG,
+            TokenType.BANG_EQUAL,
+            TokenType.EQUAL,
+            TokenType.EQUAL_EQUAL,
+            TokenType.GREATER,
+            TokenType.GREATER_EQUAL,
+            TokenType.LESS,
+            TokenType.LESS_EQUAL,
+            TokenType.AND,
+            TokenType.CLASS,
+            TokenType.ELSE,
+            TokenType.FALSE,
+            TokenType.FUN,
+            TokenType.FOR,
+            TokenType.IF,
+            TokenType.NIL,
+            TokenType.OR,
+            TokenType.PRINT,
+            TokenType.RETURN,
+            TokenType.SUPER,
+            TokenType.THIS,
+            TokenType.TRUE,
+            TokenType.VAR,
+            TokenType.WHILE,
+            TokenType.IDENTIFIER,
+            TokenType.NUMBER,
+            TokenType.STRING,
+            null,
+            null,
+    };
+
+    // Action of each rule.
+    static final byte[] ACTIONS = {
+            TOKEN, // LEFT_PAREN : '('
+            TOKEN, // RIGHT_PAREN : ')'
+            TOKEN, // LEFT_BRACE : '{'
+            TOKEN, // RIGHT_BRACE : '}'
+            TOKEN, // COMMA : ','
+            TOKEN, // DOT : '.'
+            TOKEN, // MINUS : '-'
+            TOKEN, // PLUS : '+'
+            TOKEN, // SEMICOLON : ';'
+            TOKEN, // SLASH : '/'
+            TOKEN, // STAR : '*'
+            TOKEN, // BANG : '!'
+            TOKEN, // BANG_EQUAL : '!='
+            TOKEN, // EQUAL : '='
+            TOKEN, // EQUAL_EQUAL : '=='
+            TOKEN, // GREATER : '>'
+            TOKEN, // GREATER_EQUAL : '>='
+            TOKEN, // LESS : '<'
+            TOKEN, // LESS_EQUAL : '<='
+            TOKEN, // AND : 'and'
+            TOKEN, // CLASS : 'class'
+            TOKEN, // ELSE : 'else'
+            TOKEN, // FALSE : 'false'
+            TOKEN, // FUN : 'fun'
+            TOKEN, // FOR : 'for'
+            TOKEN, // IF : 'if'
+            TOKEN, // NIL : 'nil'
+            TOKEN, // OR : 'or'
+            TOKEN, // PRINT : 'print'
+            TOKEN, // RETURN : 'return'
+            TOKEN, // SUPER : 'super'
+            TOKEN, // THIS : 'this'
+            TOKEN, // TRUE : 'true'
+            TOKEN, // VAR : 'var'
+            TOKEN, // WHILE : 'while'
+            TOKEN, // IDENTIFIER : [a-zA-Z_] [a-zA-Z_0-9]*
+            NUMBER, // NUMBER : [0-9]+ ('.' [0-9]+)? -> number
+            STRING, // STRING : '"' -> string
+            COMMENT, // - : '//' -> comment
+            WHITESPACE, // - : [ \t\r\n] -> whitespace
+    };
+
+    private LexerTables() {
+    }
+}
@@ -3,46 +3,275 @@ package jlox.src.com.lox;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.nio.charset.Charset;
+import java.io.PrintStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 
 public class Lox {
-    private static boolean hadError = false;
+    private static final String USAGE = "Usage: jlox [--mode=tree|nodes|vm|jit] [--jit-threshold=n] [--pass-stats] [--stats] [--max-errors=n] "
+            + "[--cache-dir=dir] [--hash-cons] "
+            + "[--daemon=socket | --batch [--threads=n] path... | script]\n"
+            + "  --mode=jit compiles an expression once it has run --jit-threshold times (default "
+            + JitCompiler.DEFAULT_THRESHOLD + ").\n"
+            + "  Each expression of a script, batch or daemon run runs once, and runs share nothing,\n"
+            + "  so only --jit-threshold=0 compiles them. The default pays off only where one\n"
+            + "  Interpreter evaluates the same tree repeatedly, as in the benchmarks.";
+
+    // Options, shared by every run.
+    private static Interpreter.Mode mode = Interpreter.Mode.NODES;
+    // Runs of a tree before it is compiled, in JIT mode.
+    private static int jitThreshold = JitCompiler.DEFAULT_THRESHOLD;
+    private static boolean passStats = false;
+    private static boolean printStats = false;
+    // Diagnostics shown per run, or 0 for all of them.
+    private static int maxErrors = Diagnostics.DEFAULT_LIMIT;
+    // Where to cache parsed scripts, if anywhere.
+    private static CompileCache cache = null;
+    // Whether to share repeated literals and subtrees between AST nodes.
+    private static boolean hashCons = false;
+
+    private final RunContext context;
+    private final Interpreter interpreter = new Interpreter(mode, jitThreshold);
+    // What creates this run's AST nodes, whether parsed, loaded or rewritten.
+    private final ExprFactory nodes = hashCons
+            ? ExprFactory.hashConsing(ExprFactory.DEFAULT_CAPACITY)
+            : ExprFactory.PLAIN;
+    private final PassManager optimizer = new PassManager(passStats, nodes);
+    // Where the time of the current run goes, if anyone is looking.
+    private RunStats stats = null;
+
+    /**
+     * @param context where this run's output and errors go
+     */
+    private Lox(RunContext context) {
+        this.context = context;
+    }
 
     /**
-     * Read lox code, either through a source file or through a REPL.
+     * Read lox code, either through a source file or through a REPL, run a
+     * batch of source files at once, or serve runs of source files to
+     * clients.
      * 
-     * @param args a valid filepath to a lox source file, if desired
+     * @param args options, then a valid filepath to a lox source file, if
+     *             desired
      * @throws IOException
      */
     public static void main(String[] args) throws IOException {
-        if (args.length > 1) {
-            System.out.println("Usage: jlox [script]");
-            System.exit(64);
-        } else if (args.length == 1) {
+        List<String> scripts = new ArrayList<>();
+        String daemon = null;
+        boolean batch = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (String arg : args) {
+            if (arg.startsWith("--mode=")) {
+                mode = parseMode(arg.substring("--mode=".length()));
+            } else if (arg.startsWith("--jit-threshold=")) {
+                jitThreshold = parseCount(arg.substring("--jit-threshold=".length()), 0);
+            } else if (arg.equals("--pass-stats")) {
+                passStats = true;
+            } else if (arg.equals("--stats")) {
+                printStats = true;
+            } else if (arg.startsWith("--max-errors=")) {
+                maxErrors = parseCount(arg.substring("--max-errors=".length()), 0);
+            } else if (arg.startsWith("--cache-dir=")) {
+                Path directory = Paths.get(arg.substring("--cache-dir=".length()));
+                cache = new CompileCache(directory, CompileCache.DEFAULT_MAX_BYTES);
+            } else if (arg.equals("--hash-cons")) {
+                hashCons = true;
+            } else if (arg.startsWith("--daemon=")) {
+                daemon = arg.substring("--daemon=".length());
+            } else if (arg.equals("--batch")) {
+                batch = true;
+            } else if (arg.startsWith("--threads=")) {
+                threads = parseCount(arg.substring("--threads=".length()), 1);
+            } else if (arg.startsWith("--")) {
+                usage();
+            } else {
+                scripts.add(arg);
+            }
+        }
+        if (batch ? scripts.isEmpty() || daemon != null : scripts.size() > 1) {
+            usage();
+        }
+
+        if (batch) {
+            // Run every script concurrently, each in its own RunContext.
+            List<Path> inputs = new ArrayList<>();
+            for (String script : scripts) {
+                inputs.add(Paths.get(script));
+            }
+            int status = new BatchRunner(threads, System.out).run(inputs);
+            if (status != 0) {
+                System.exit(status);
+            }
+        } else if (daemon != null) {
+            if (!scripts.isEmpty()) {
+                usage();
+            }
+            // Keep a warmed-up runtime resident, running scripts for clients.
+            LoxDaemon.serve(Paths.get(daemon));
+        } else if (!scripts.isEmpty()) {
             // Run the provided source file
-            runFile(args[0]);
+            int status = runFile(scripts.get(0), newContext(System.out, System.err));
+            if (status != 0) {
+                System.exit(status);
+            }
         } else {
             // If no filepath given, present a REPL
-            runPrompt();
+            new Lox(newContext(System.out, System.err)).runPrompt();
         }
     }
 
+    /**
+     * Select how expressions are executed.
+     * 
+     * @param name the name of an Interpreter.Mode, in any case
+     * @return the execution mode
+     */
+    private static Interpreter.Mode parseMode(String name) {
+        for (Interpreter.Mode mode : Interpreter.Mode.values()) {
+            if (mode.name().equalsIgnoreCase(name)) {
+                return mode;
+            }
+        }
+        usage();
+        return null;
+    }
+
+    private static int parseCount(String text, int min) {
+        try {
+            int count = Integer.parseInt(text);
+            if (count >= min) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // Fall through to the usage message.
+        }
+        usage();
+        return 0;
+    }
+
+    private static void usage() {
+        System.out.println(USAGE);
+        System.exit(64);
+    }
+
+    /**
+     * Create the context for a run, with the options given on the command
+     * line.
+     * 
+     * @param out where the values of expressions are printed
+     * @param err where errors are reported
+     * @return a fresh context for one run
+     */
+    static RunContext newContext(PrintStream out, PrintStream err) {
+        return new RunContext(out, err, maxErrors);
+    }
+
     /**
      * Read a lox source file and execute it.
      * 
-     * @param path a valid filepath to a lox source file
+     * @param path    a valid filepath to a UTF-8 lox source file
+     * @param context where the run's output and errors go
+     * @return the exit code: 65 after a syntax error, 70 after a runtime
+     *         error, and 0 otherwise
      * @throws IOException
      */
-    private static void runFile(String path) throws IOException {
-        byte[] bytes = Files.readAllBytes(Paths.get(path));
-        run(new String(bytes, Charset.defaultCharset()));
+    static int runFile(String path, RunContext context) throws IOException {
+        return new Lox(context).runFile(Paths.get(path));
+    }
+
+    private int runFile(Path path) throws IOException {
+        stats = RunStats.start(path.toString(), printStats);
+        try {
+            if (cache != null) {
+                runCached(path);
+            } else {
+                // Scan straight from a mapping of the file rather than reading it whole.
+                try (MappedSource source = open(path)) {
+                    run(new Scanner(source, context), null);
+                }
+            }
+        } finally {
+            context.flush();
+        }
+        if (passStats) {
+            optimizer.report(context.err());
+        }
 
         // Indicate an error in the exit code.
-        if (hadError) {
-            System.exit(65);
+        int status = 0;
+        if (context.hadError()) {
+            status = 65;
+        } else if (context.hadRuntimeError()) {
+            status = 70;
+        }
+
+        if (stats != null) {
+            stats.finish(status);
+            if (printStats) {
+                stats.report(context.err());
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Open a lox source file, recording its reading and decoding if stats are
+     * being kept.
+     * 
+     * @param path a valid filepath to a UTF-8 lox source file
+     * @return a reader over the file's characters
+     * @throws IOException
+     */
+    private MappedSource open(Path path) throws IOException {
+        long start = clock();
+        MappedSource source = MappedSource.open(path);
+        if (stats != null) {
+            stats.add(RunStats.Phase.READ, clock() - start, source.size(), 0, 0);
+            source.instrument(stats);
+        }
+        return source;
+    }
+
+    /**
+     * Execute a lox source file, skipping the front end if it has been parsed
+     * before. A file that parses without errors is cached for next time.
+     * 
+     * @param path a valid filepath to a UTF-8 lox source file
+     * @throws IOException
+     */
+    private void runCached(Path path) throws IOException {
+        long start = clock();
+        String key = CompileCache.key(path);
+        if (stats != null) {
+            stats.add(RunStats.Phase.HASH, clock() - start, Files.size(path), 0, 0);
+        }
+
+        start = clock();
+        List<Expr> program = cache.load(key, nodes);
+        if (stats != null) {
+            stats.add(RunStats.Phase.CACHE_LOAD, clock() - start, 0, 0, 0);
+        }
+        if (program != null) {
+            for (Expr expression : program) {
+                execute(expression);
+            }
+            return;
+        }
+
+        program = new ArrayList<>();
+        try (MappedSource source = open(path)) {
+            run(new Scanner(source, context), program);
+        }
+        if (!context.hadError()) {
+            start = clock();
+            cache.store(key, program);
+            if (stats != null) {
+                stats.add(RunStats.Phase.CACHE_STORE, clock() - start, 0, 0, 0);
+            }
         }
     }
 
@@ -51,55 +280,95 @@ public class Lox {
      * 
      * @throws IOException
      */
-    private static void runPrompt() throws IOException {
+    private void runPrompt() throws IOException {
+        stats = RunStats.start("<prompt>", printStats);
         InputStreamReader input = new InputStreamReader(System.in);
         BufferedReader reader = new BufferedReader(input);
 
         while (true) {
-            System.out.print("> ");
+            context.out().print("> ");
             String line = reader.readLine();
             if (line == null) {
                 break;
             }
-            run(line);
-            hadError = false;
+            run(new Scanner(line, context), null);
+            context.flush();
+            context.resetError();
+        }
+        if (passStats) {
+            optimizer.report(context.err());
+        }
+        if (stats != null) {
+            stats.finish(0);
+            if (printStats) {
+                stats.report(context.err());
+            }
         }
     }
 
     /**
-     * Run lox source code.
+     * Run lox source code, parsing Tokens as they are scanned.
      * 
-     * @param source a valid lox program
+     * @param scanner a scanner over a valid lox program
+     * @param program where to collect the parsed expressions, if anywhere
      */
-    private static void run(String source) {
-        Scanner scanner = new Scanner(source);
-        List<Token> tokens = scanner.scanTokens();
+    private void run(Scanner scanner, List<Expr> program) {
+        // Scanning and parsing are timed in slices, between executions.
+        long decoding = stats == null ? 0 : stats.nanos(RunStats.Phase.DECODE);
+        int errors = context.errorCount();
+        long parsing = 0;
+        long resumed = clock();
+        Parser parser = new Parser(scanner, nodes);
+
+        while (parser.hasNext()) {
+            Expr expression = parser.next();
+            parsing += clock() - resumed;
+            if (program != null) {
+                program.add(expression);
+            }
 
-        // TODO: for now, print tokens
-        for (Token token : tokens) {
-            System.out.println(token);
+            // Keep parsing to report every syntax error, but stop printing.
+            if (!context.hadError()) {
+                execute(expression);
+            }
+            resumed = clock();
+        }
+
+        if (stats != null) {
+            parsing += clock() - resumed;
+            // Decoding is pulled by the scanner, so happened inside the slices.
+            decoding = stats.nanos(RunStats.Phase.DECODE) - decoding;
+            stats.add(RunStats.Phase.SCAN_PARSE, parsing - decoding, 0, scanner.tokenCount(),
+                    context.errorCount() - errors);
         }
     }
 
     /**
-     * Display that an error has occurred to the user.
+     * Optimize and execute one expression, timing each if stats are being
+     * kept.
      * 
-     * @param line    line of source code where the error originates
-     * @param message some helpful message for the user
+     * @param expression a parsed lox expression
      */
-    public static void error(int line, String message) {
-        report(line, "", message);
+    private void execute(Expr expression) {
+        if (stats == null) {
+            interpreter.interpret(optimizer.run(expression), context);
+            return;
+        }
+
+        long start = System.nanoTime();
+        Expr optimized = optimizer.run(expression);
+        long optimizedAt = System.nanoTime();
+        int errors = context.runtimeErrorCount();
+        interpreter.interpret(optimized, context);
+        stats.add(RunStats.Phase.OPTIMIZE, optimizedAt - start, 0, 0, 0);
+        stats.add(RunStats.Phase.EXECUTE, System.nanoTime() - optimizedAt, 0, 0,
+                context.runtimeErrorCount() - errors);
     }
 
     /**
-     * Record an error has occurred, and inform the user.
-     * 
-     * @param line    line of source code where the error originates
-     * @param where   part of the line where the error originates
-     * @param message some helpful message for the user
+     * @return the current time in nanoseconds if stats are being kept, or 0
      */
-    private static void report(int line, String where, String message) {
-        System.err.println("[line " + line + "] Error" + where + ": " + message);
-        hadError = true;
+    private long clock() {
+        return stats == null ? 0 : System.nanoTime();
     }
-}
\ No newline at end of file
+}
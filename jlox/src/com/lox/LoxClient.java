@@ -0,0 +1,71 @@
+package jlox.src.com.lox;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+
+/**
+ * Run a script on a jlox daemon (see LoxDaemon), relaying its output,
+ * diagnostics and exit code. This loads none of the interpreter, so it starts
+ * as quickly as a JVM can.
+ */
+public class LoxClient {
+    private static final String USAGE = "Usage: jlox-client socket script";
+
+    /**
+     * @param args the daemon's socket, then a valid filepath to a lox source
+     *             file
+     * @throws IOException if the daemon cannot be reached
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println(USAGE);
+            System.exit(64);
+        }
+
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(args[0]))) {
+            // The daemon has its own working directory.
+            DataOutputStream request = new DataOutputStream(Channels.newOutputStream(channel));
+            request.writeUTF(Paths.get(args[1]).toAbsolutePath().toString());
+            request.flush();
+
+            DataInputStream response = new DataInputStream(
+                    new BufferedInputStream(Channels.newInputStream(channel)));
+            byte[] buffer = new byte[0];
+            while (true) {
+                byte kind;
+                int value;
+                try {
+                    kind = response.readByte();
+                    value = response.readInt();
+                } catch (EOFException e) {
+                    System.err.println("Lost connection to the daemon.");
+                    System.exit(70);
+                    return;
+                }
+
+                if (kind == LoxDaemon.EXIT) {
+                    System.out.flush();
+                    System.exit(value);
+                }
+                if (buffer.length < value) {
+                    buffer = new byte[value];
+                }
+                response.readFully(buffer, 0, value);
+                if (kind == LoxDaemon.OUT) {
+                    System.out.write(buffer, 0, value);
+                } else {
+                    System.out.flush();
+                    System.err.write(buffer, 0, value);
+                    System.err.flush();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package jlox.src.com.lox;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Run scripts for clients over a Unix domain socket, so a run pays neither
+ * JVM startup nor warmup. Each connection is one run: the client sends the
+ * script's absolute path, and gets back the run's output, its diagnostics
+ * and the exit code runFile would have given. Runs execute concurrently,
+ * each with its own RunContext and Interpreter.
+ * 
+ * The request is the path, as written by DataOutput.writeUTF(). The response
+ * is a series of frames, each a kind byte then an int: for OUT and ERR, the
+ * int is the length of the bytes that follow for that stream; for EXIT, the
+ * last frame, it is the exit code.
+ */
+class LoxDaemon {
+    static final byte OUT = 1;
+    static final byte ERR = 2;
+    static final byte EXIT = 3;
+
+    // Exit code when the script cannot be read.
+    private static final int NO_INPUT = 66;
+    // Exit code when the run fails for any other reason.
+    private static final int SOFTWARE = 70;
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Listen on a socket until the JVM is shut down.
+     * 
+     * @param socket where to create the socket
+     * @throws IOException if the socket cannot be created
+     */
+    static void serve(Path socket) throws IOException {
+        claim(socket);
+        ServerSocketChannel server = bind(socket);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                Files.deleteIfExists(socket);
+            } catch (IOException e) {
+                // The next daemon will find it stale and remove it.
+            }
+        }));
+        System.err.println("Listening on " + socket);
+
+        ExecutorService workers = Executors.newCachedThreadPool();
+        while (true) {
+            SocketChannel client = server.accept();
+            workers.execute(() -> handle(client));
+        }
+    }
+
+    /**
+     * Create the socket so only its owner can connect: scripts run with the
+     * daemon's privileges. Where permissions are POSIX, it is bound in a
+     * directory only the owner can enter, restricted, then moved into place,
+     * so no other user can connect to it even before it is restricted.
+     */
+    private static ServerSocketChannel bind(Path socket) throws IOException {
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        if (!socket.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            return server;
+        }
+
+        Path parent = socket.toAbsolutePath().getParent();
+        Path directory = Files.createTempDirectory(parent, ".lox",
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        Path staged = directory.resolve("socket");
+        try {
+            server.bind(UnixDomainSocketAddress.of(staged));
+            Files.setPosixFilePermissions(staged, PosixFilePermissions.fromString("rw-------"));
+            Files.move(staged, socket, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        } finally {
+            Files.deleteIfExists(staged);
+            Files.delete(directory);
+        }
+        return server;
+    }
+
+    /**
+     * Remove a socket left behind by a daemon that did not shut down cleanly,
+     * but never one another daemon is listening on.
+     */
+    private static void claim(Path socket) throws IOException {
+        if (!Files.exists(socket)) {
+            return;
+        }
+        SocketChannel probe;
+        try {
+            probe = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+        } catch (ConnectException e) {
+            Files.delete(socket);
+            return;
+        }
+        probe.close();
+        throw new IOException("A daemon is already listening on " + socket + ".");
+    }
+
+    /**
+     * Serve one run.
+     */
+    private static void handle(SocketChannel client) {
+        try (client) {
+            DataInputStream request = new DataInputStream(
+                    new BufferedInputStream(Channels.newInputStream(client)));
+            String script = request.readUTF();
+
+            DataOutputStream response = new DataOutputStream(Channels.newOutputStream(client));
+            Frames out = new Frames(response, OUT, null);
+            // Flush output before each diagnostic, so the client sees them in order.
+            Frames err = new Frames(response, ERR, out);
+            RunContext context = Lox.newContext(
+                    new PrintStream(out, false, StandardCharsets.UTF_8),
+                    new PrintStream(err, true, StandardCharsets.UTF_8));
+
+            int status;
+            try {
+                status = Lox.runFile(script, context);
+            } catch (IOException e) {
+                context.err().println("Could not read " + script + ": " + e);
+                status = NO_INPUT;
+            } catch (RuntimeException | StackOverflowError e) {
+                // Fail this run, but keep serving others.
+                context.err().println("Internal error: " + e);
+                status = SOFTWARE;
+            }
+
+            context.out().flush();
+            context.err().flush();
+            response.writeByte(EXIT);
+            response.writeInt(status);
+            response.flush();
+        } catch (IOException e) {
+            // The client went away; there is no one left to tell.
+        }
+    }
+
+    /**
+     * Buffers one of a run's streams, sending it to the client as frames.
+     */
+    private static final class Frames extends OutputStream {
+        private final DataOutputStream socket;
+        private final byte kind;
+        // Another stream to flush before each frame of this one, or null.
+        private final Frames before;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int count = 0;
+
+        Frames(DataOutputStream socket, byte kind, Frames before) {
+            this.socket = socket;
+            this.kind = kind;
+            this.before = before;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flush();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    flush();
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (before != null) {
+                before.flush();
+            }
+            if (count > 0) {
+                socket.writeByte(kind);
+                socket.writeInt(count);
+                socket.write(buffer, 0, count);
+                count = 0;
+                socket.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package jlox.src.com.lox;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read a UTF-8 lox source file through a memory mapping rather than copying
+ * it onto the heap. Runs of ASCII bytes are widened straight into the
+ * caller's buffer; only non-ASCII bytes go through a CharsetDecoder.
+ */
+public class MappedSource extends Reader {
+    // Map at most this many bytes at once, as a MappedByteBuffer is int-indexed.
+    private static final long MAX_MAPPING = 1L << 30;
+    // Bytes handed to the decoder at once, so ASCII resumes the fast path soon.
+    private static final int DECODE_WINDOW = 64;
+    // Longest UTF-8 encoding of a single code point.
+    private static final int MAX_SEQUENCE = 4;
+
+    private final FileChannel channel;
+    private final long size;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private ByteBuffer bytes;
+    // File offset of the first byte of the current mapping.
+    private long base = 0;
+    // Where to record decoding, if anywhere.
+    private RunStats stats = null;
+
+    private MappedSource(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.bytes = map(0);
+    }
+
+    /**
+     * Open a lox source file for reading.
+     * 
+     * @param path a valid filepath to a UTF-8 lox source file
+     * @return a reader over the file's characters
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static MappedSource open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new MappedSource(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Record the time and bytes spent decoding into a run's stats.
+     * 
+     * @param stats the run's stats, or null to stop recording
+     */
+    void instrument(RunStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * @return the size of the file in bytes
+     */
+    long size() {
+        return size;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (stats == null) {
+            return decodeInto(cbuf, off, len);
+        }
+
+        long start = System.nanoTime();
+        long consumed = base + bytes.position();
+        int count = decodeInto(cbuf, off, len);
+        stats.add(RunStats.Phase.DECODE, System.nanoTime() - start, base + bytes.position() - consumed, 0, 0);
+        return count;
+    }
+
+    /**
+     * Decode the next characters of the file.
+     * 
+     * @return the number of chars written, or -1 at the end of the file
+     */
+    private int decodeInto(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!bytes.hasRemaining() && base + bytes.limit() >= size) {
+            return -1;
+        }
+        if (bytes.remaining() < MAX_SEQUENCE && base + bytes.limit() < size) {
+            // Remap from the current position, so no sequence is split.
+            bytes = map(base + bytes.position());
+        }
+
+        // Fast path: widen ASCII bytes directly into chars.
+        int count = 0;
+        int position = bytes.position();
+        int end = bytes.limit();
+        while (count < len && position < end) {
+            byte b = bytes.get(position);
+            if (b < 0) {
+                break;
+            }
+            cbuf[off + count++] = (char) b;
+            position++;
+        }
+        bytes.position(position);
+
+        if (count < len && position < end) {
+            count += decode(cbuf, off + count, len - count);
+        }
+        return count;
+    }
+
+    /**
+     * Decode a short window of non-ASCII input.
+     * 
+     * @return the number of chars written
+     */
+    private int decode(char[] cbuf, int off, int len) {
+        ByteBuffer window = bytes.duplicate();
+        window.limit(Math.min(bytes.position() + DECODE_WINDOW, bytes.limit()));
+        boolean endOfInput = base + window.limit() >= size;
+
+        CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        CoderResult result = decoder.decode(window, out, endOfInput);
+        if (endOfInput && result.isUnderflow()) {
+            decoder.flush(out);
+        }
+        bytes.position(window.position());
+        return out.position() - off;
+    }
+
+    private ByteBuffer map(long offset) throws IOException {
+        base = offset;
+        long length = Math.min(size - offset, MAX_MAPPING);
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,290 @@
+package jlox.src.com.lox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Scan a large in-memory source on a ForkJoinPool, producing exactly the
+ * Tokens (and errors) the sequential Scanner.scanTokens() would.
+ * 
+ * The source is split into chunks that each end just after a newline, so no
+ * comment, number, identifier or operator can straddle two chunks. Only a
+ * string literal can. Each chunk is scanned in parallel assuming it starts
+ * outside a string; the chunks are then stitched in order, and the rare chunk
+ * that turns out to start inside a string is rescanned from its first quote.
+ */
+public class ParallelScanner {
+    private static final int MIN_CHUNK_SIZE = 1 << 16;
+
+    private final char[] source;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final RunContext context;
+    private final SymbolTable symbols = new SymbolTable();
+
+    /**
+     * Scan lox source code on the common ForkJoinPool.
+     * 
+     * @param source valid lox source code
+     */
+    public ParallelScanner(String source) {
+        this(source, ForkJoinPool.commonPool(), 0);
+    }
+
+    /**
+     * Scan lox source code on a given pool.
+     * 
+     * @param source    valid lox source code
+     * @param pool      the pool to scan chunks on
+     * @param chunkSize roughly how many characters to scan per task, or 0 to
+     *                  pick a size based on the pool's parallelism
+     */
+    public ParallelScanner(String source, ForkJoinPool pool, int chunkSize) {
+        this(source, pool, chunkSize, new RunContext(System.out, System.err));
+    }
+
+    /**
+     * Scan lox source code on a given pool, reporting errors to a particular
+     * run.
+     * 
+     * @param source    valid lox source code
+     * @param pool      the pool to scan chunks on
+     * @param chunkSize roughly how many characters to scan per task, or 0 to
+     *                  pick a size based on the pool's parallelism
+     * @param context   the run to report errors to
+     */
+    public ParallelScanner(String source, ForkJoinPool pool, int chunkSize, RunContext context) {
+        this.context = context;
+        this.source = source.toCharArray();
+        this.pool = pool;
+        if (chunkSize <= 0) {
+            // A few chunks per worker, so uneven chunks balance out.
+            chunkSize = Math.max(MIN_CHUNK_SIZE, this.source.length / (pool.getParallelism() * 4));
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * The result of scanning one chunk.
+     */
+    private static class Chunk {
+        final int from;
+        final int to;
+        final TokenBuffer tokens;
+        final List<Scanner.LexError> errors;
+        // Start of a string left open at the end of the chunk, or -1.
+        final int openString;
+        // Newlines in the chunk before the scan started, and in total.
+        final int skippedNewlines;
+        final int newlines;
+
+        Chunk(int from, int to, Scanner scanner, TokenBuffer tokens, int skippedNewlines) {
+            this.from = from;
+            this.to = to;
+            this.tokens = tokens;
+            this.errors = scanner.errors();
+            this.openString = scanner.openString();
+            this.skippedNewlines = skippedNewlines;
+            this.newlines = scanner.line() - 1;
+        }
+    }
+
+    /**
+     * How a scanned chunk fits into the final list of Tokens.
+     */
+    private static class Placement {
+        final Chunk chunk;
+        // Newlines in all the chunks before this one.
+        final int lines;
+        // Index in the final list of the chunk's first Token.
+        final int offset;
+        // The chunk's symbol IDs mapped onto the final symbol table.
+        final int[] symbols;
+
+        Placement(Chunk chunk, int lines, int offset, int[] symbols) {
+            this.chunk = chunk;
+            this.lines = lines;
+            this.offset = offset;
+            this.symbols = symbols;
+        }
+    }
+
+    /**
+     * Convert the source code into a machine-readable list of Tokens.
+     * 
+     * @return the same Tokens Scanner.scanTokens() returns for the source
+     */
+    public List<Token> scanTokens() {
+        List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+        int from = 0;
+        while (from < source.length) {
+            int to = chunkEnd(from);
+            int chunkFrom = from;
+            tasks.add(pool.submit(() -> scanChunk(chunkFrom, to, 0)));
+            from = to;
+        }
+
+        // Stitch the chunks together in order, as they complete.
+        List<Placement> placements = new ArrayList<>();
+        List<Token> strings = new ArrayList<>();
+        int lines = 0;
+        int count = 0;
+        int pendingString = -1;
+        for (ForkJoinTask<Chunk> task : tasks) {
+            Chunk chunk = task.join();
+            if (pendingString >= 0) {
+                // The chunk really starts inside a string opened earlier.
+                int close = find('"', chunk.from, chunk.to);
+                if (close < 0) {
+                    lines += chunk.newlines;
+                    continue;
+                }
+                chunk = scanChunk(chunk.from, chunk.to, close + 1);
+
+                String text = new String(source, pendingString, close + 1 - pendingString);
+                Token string = new Token(TokenType.STRING, text, text.substring(1, text.length() - 1),
+                        lines + chunk.skippedNewlines + 1, column(pendingString), Token.NO_SYMBOL);
+                placements.add(new Placement(null, 0, count, null));
+                strings.add(string);
+                count++;
+                pendingString = -1;
+            }
+
+            for (Scanner.LexError error : chunk.errors) {
+                context.error(error.line + lines, error.column, error.endLine + lines, error.endColumn,
+                        error.message);
+            }
+            placements.add(new Placement(chunk, lines, count, remapSymbols(chunk)));
+            count += chunk.tokens.size();
+            pendingString = chunk.openString;
+            lines += chunk.newlines;
+        }
+
+        if (pendingString >= 0) {
+            // Span the string from its opening quote to the end of the source.
+            int startLine = lines + 1;
+            for (int i = pendingString; i < source.length; i++) {
+                if (source[i] == '\n') {
+                    startLine--;
+                }
+            }
+            context.error(startLine, column(pendingString), lines + 1, Math.max(column(source.length) - 1, 1),
+                    "Unterminated string.");
+        }
+
+        // Materialize every chunk's Tokens in parallel.
+        Token[] tokens = new Token[count + 1];
+        int string = 0;
+        List<ForkJoinTask<?>> materializing = new ArrayList<>();
+        for (Placement placement : placements) {
+            if (placement.chunk == null) {
+                tokens[placement.offset] = strings.get(string++);
+            } else {
+                materializing.add(pool.submit(() -> materialize(placement, tokens)));
+            }
+        }
+        for (ForkJoinTask<?> task : materializing) {
+            task.join();
+        }
+        tokens[count] = new Token(TokenType.EOF, "", null, lines + 1, column(source.length), Token.NO_SYMBOL);
+        context.flush();
+
+        return new ArrayList<>(Arrays.asList(tokens));
+    }
+
+    /**
+     * Return the table identifiers are interned into.
+     * 
+     * @return this scanner's symbol table
+     */
+    public SymbolTable symbols() {
+        return symbols;
+    }
+
+    /**
+     * Find where the chunk starting at from should end: just after the first
+     * newline at least chunkSize characters in, or at the end of the source.
+     */
+    private int chunkEnd(int from) {
+        if (source.length - from <= chunkSize) {
+            return source.length;
+        }
+        int newline = find('\n', from + chunkSize - 1, source.length);
+        return newline < 0 ? source.length : newline + 1;
+    }
+
+    /**
+     * Scan a chunk, starting outside of any string at offset resume.
+     * 
+     * @param from   offset of the chunk's first character
+     * @param to     offset just past the chunk's last character
+     * @param resume where to start scanning, or 0 to start at from
+     */
+    private Chunk scanChunk(int from, int to, int resume) {
+        int skipped = 0;
+        for (int i = from; i < resume; i++) {
+            if (source[i] == '\n') {
+                skipped++;
+            }
+        }
+
+        Scanner scanner = new Scanner(source, Math.max(from, resume), to, skipped + 1);
+        TokenBuffer tokens = new TokenBuffer(source, scanner.symbols());
+        scanner.scanInto(tokens);
+        return new Chunk(from, to, scanner, tokens, skipped);
+    }
+
+    /**
+     * Find the column of an offset into the source, counting from 1.
+     */
+    private int column(int offset) {
+        int lineStart = offset;
+        while (lineStart > 0 && source[lineStart - 1] != '\n') {
+            lineStart--;
+        }
+        return offset - lineStart + 1;
+    }
+
+    private int find(char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (source[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Map a chunk's own symbol IDs onto this scanner's table.
+     */
+    private int[] remapSymbols(Chunk chunk) {
+        SymbolTable chunkSymbols = chunk.tokens.symbols();
+        int[] remap = new int[chunkSymbols.size()];
+        for (int id = 0; id < remap.length; id++) {
+            remap[id] = symbols.intern(chunkSymbols.name(id));
+        }
+        return remap;
+    }
+
+    /**
+     * Build a chunk's Tokens, shifting their lines past the chunks before it.
+     */
+    private void materialize(Placement placement, Token[] tokens) {
+        TokenBuffer buffer = placement.chunk.tokens;
+        for (int i = 0; i < buffer.size(); i++) {
+            int line = buffer.line(i) + placement.lines;
+            Token token;
+            if (buffer.symbol(i) != Token.NO_SYMBOL) {
+                int symbol = placement.symbols[buffer.symbol(i)];
+                token = new Token(TokenType.IDENTIFIER, symbols.name(symbol), null, line, buffer.column(i), symbol);
+            } else {
+                String text = new String(source, buffer.start(i), buffer.length(i));
+                token = new Token(buffer.type(i), text, buffer.literal(i), line, buffer.column(i), Token.NO_SYMBOL);
+            }
+            tokens[placement.offset + i] = token;
+        }
+    }
+}
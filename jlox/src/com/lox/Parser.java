@@ -0,0 +1,300 @@
+package jlox.src.com.lox;
+
+import static jlox.src.com.lox.TokenType.*;
+
+public class Parser {
+    private static class ParseError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ParseError() {
+            // Only used to unwind, so skip the cost of a stack trace.
+            super(null, null, false, false);
+        }
+    }
+
+    private final Scanner scanner;
+    private final RunContext context;
+    private final ExprFactory factory;
+    // One Token of lookahead, plus the Token most recently consumed.
+    private Token current;
+    private Token previous;
+
+    /**
+     * Parse lox Tokens into an AST, pulling them from the scanner one at a
+     * time rather than from a fully scanned list. Syntax errors are reported
+     * to the same run as the scanner's.
+     * 
+     * @param scanner a scanner over valid lox source code
+     */
+    public Parser(Scanner scanner) {
+        this(scanner, ExprFactory.PLAIN);
+    }
+
+    /**
+     * Parse lox Tokens into an AST whose nodes are created by a particular
+     * factory, e.g. one that shares repeated literals.
+     * 
+     * @param scanner a scanner over valid lox source code
+     * @param factory what creates the AST's nodes
+     */
+    Parser(Scanner scanner, ExprFactory factory) {
+        this.scanner = scanner;
+        this.context = scanner.context();
+        this.factory = factory;
+        this.current = scanner.nextToken();
+    }
+
+    /**
+     * Check whether there are expressions left to parse.
+     * 
+     * @return if next() will parse another expression
+     */
+    boolean hasNext() {
+        return !isAtEnd();
+    }
+
+    /**
+     * Parse the next expression in the source. Expressions are separated by
+     * semicolons; the last one may omit it. Only the Tokens of the expression
+     * being parsed are held at once.
+     * 
+     * program -> ( expression ( ";" | EOF ) )* EOF ;
+     * 
+     * @return the expression's AST, or null if there was a syntax error
+     */
+    Expr next() {
+        try {
+            Expr expr = expression();
+            if (!isAtEnd()) {
+                consume(SEMICOLON, "Expect ';' after expression.");
+            }
+            return expr;
+        } catch (ParseError error) {
+            // Panic mode: skip to where parsing can sensibly resume.
+            synchronize();
+            return null;
+        }
+    }
+
+    /**
+     * expression -> equality ;
+     */
+    private Expr expression() {
+        return equality();
+    }
+
+    /**
+     * equality -> comparison ( ( "!=" | "==" ) comparison )* ;
+     */
+    private Expr equality() {
+        Expr expr = comparison();
+
+        while (match(BANG_EQUAL, EQUAL_EQUAL)) {
+            Token operator = previous();
+            Expr right = comparison();
+            expr = factory.binary(expr, operator, right);
+        }
+
+        return expr;
+    }
+
+    /**
+     * comparison -> term ( ( ">" | ">=" | "<" | "<=" ) term )* ;
+     */
+    private Expr comparison() {
+        Expr expr = term();
+
+        while (match(GREATER, GREATER_EQUAL, LESS, LESS_EQUAL)) {
+            Token operator = previous();
+            Expr right = term();
+            expr = factory.binary(expr, operator, right);
+        }
+
+        return expr;
+    }
+
+    /**
+     * term -> factor ( ( "-" | "+" ) factor )* ;
+     */
+    private Expr term() {
+        Expr expr = factor();
+
+        while (match(MINUS, PLUS)) {
+            Token operator = previous();
+            Expr right = factor();
+            expr = factory.binary(expr, operator, right);
+        }
+
+        return expr;
+    }
+
+    /**
+     * factor -> unary ( ( "/" | "*" ) unary )* ;
+     */
+    private Expr factor() {
+        Expr expr = unary();
+
+        while (match(SLASH, STAR)) {
+            Token operator = previous();
+            Expr right = unary();
+            expr = factory.binary(expr, operator, right);
+        }
+
+        return expr;
+    }
+
+    /**
+     * unary -> ( "!" | "-" ) unary | primary ;
+     */
+    private Expr unary() {
+        if (match(BANG, MINUS)) {
+            Token operator = previous();
+            Expr right = unary();
+            return factory.unary(operator, right);
+        }
+
+        return primary();
+    }
+
+    /**
+     * primary -> NUMBER | STRING | "true" | "false" | "nil" | "(" expression ")" ;
+     */
+    private Expr primary() {
+        if (match(FALSE)) {
+            return factory.boolLiteral(false);
+        }
+        if (match(TRUE)) {
+            return factory.boolLiteral(true);
+        }
+        if (match(NIL)) {
+            return factory.nilLiteral();
+        }
+
+        if (match(NUMBER)) {
+            return factory.numberLiteral((double) previous().literal);
+        }
+        if (match(STRING)) {
+            return factory.stringLiteral((String) previous().literal);
+        }
+
+        if (match(LEFT_PAREN)) {
+            Expr expr = expression();
+            consume(RIGHT_PAREN, "Expect ')' after expression.");
+            return factory.grouping(expr);
+        }
+
+        throw error(peek(), "Expect expression.");
+    }
+
+    /**
+     * Consume the current Token if it has any of the given types.
+     * 
+     * @param types the types to check for
+     * @return if a Token was consumed
+     */
+    private boolean match(TokenType... types) {
+        for (TokenType type : types) {
+            if (check(type)) {
+                advance();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Consume the current Token, which must have the expected type.
+     * 
+     * @param type    the expected type
+     * @param message the error to report if the Token has another type
+     * @return the consumed Token
+     */
+    private Token consume(TokenType type, String message) {
+        if (check(type)) {
+            return advance();
+        }
+
+        throw error(peek(), message);
+    }
+
+    /**
+     * Check the current Token's type without consuming it.
+     * 
+     * @param type the type to check for
+     * @return if the current Token has the type
+     */
+    private boolean check(TokenType type) {
+        if (isAtEnd()) {
+            return false;
+        }
+        return peek().type == type;
+    }
+
+    /**
+     * Consume the current Token, pulling the next one from the scanner.
+     * 
+     * @return the consumed Token
+     */
+    private Token advance() {
+        if (!isAtEnd()) {
+            previous = current;
+            current = scanner.nextToken();
+        }
+        return previous();
+    }
+
+    private boolean isAtEnd() {
+        return peek().type == EOF;
+    }
+
+    private Token peek() {
+        return current;
+    }
+
+    private Token previous() {
+        return previous;
+    }
+
+    /**
+     * Report a syntax error and return an exception to unwind the parser.
+     * 
+     * @param token   the Token where the error was found
+     * @param message some helpful message for the user
+     * @return the exception, for the caller to throw
+     */
+    private ParseError error(Token token, String message) {
+        context.error(token, message);
+        return new ParseError();
+    }
+
+    /**
+     * Discard Tokens until we are probably at the start of the next
+     * statement, so one mistake does not cascade into many errors.
+     */
+    private void synchronize() {
+        advance();
+
+        while (!isAtEnd()) {
+            if (previous().type == SEMICOLON) {
+                return;
+            }
+
+            switch (peek().type) {
+                case CLASS:
+                case FUN:
+                case VAR:
+                case FOR:
+                case IF:
+                case WHILE:
+                case PRINT:
+                case RETURN:
+                    return;
+                default:
+                    break;
+            }
+
+            advance();
+        }
+    }
+}
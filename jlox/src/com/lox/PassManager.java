@@ -0,0 +1,95 @@
+package jlox.src.com.lox;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Run a pipeline of ExprRewriter passes between parsing and execution, and
+ * keep statistics on how much each pass shrinks the trees it sees.
+ */
+class PassManager {
+    private final List<ExprRewriter> passes;
+    private final long[] nodesIn;
+    private final long[] nodesOut;
+    private final long[] nanos;
+    private final boolean collectStats;
+    private long trees = 0;
+
+    /**
+     * The default pipeline.
+     * 
+     * @param collectStats whether to count nodes around each pass, which
+     *                     costs an extra walk of the tree per pass
+     * @param factory      what creates the nodes the passes build
+     */
+    PassManager(boolean collectStats, ExprFactory factory) {
+        this(collectStats, new GroupingEliminator(factory), new ConstantFolder(factory),
+                new UnarySimplifier(factory));
+    }
+
+    PassManager(boolean collectStats, ExprRewriter... passes) {
+        this.passes = new ArrayList<>(Arrays.asList(passes));
+        this.nodesIn = new long[passes.length];
+        this.nodesOut = new long[passes.length];
+        this.nanos = new long[passes.length];
+        this.collectStats = collectStats;
+    }
+
+    /**
+     * Run every pass over an expression, in order.
+     * 
+     * @param expr a valid lox expression
+     * @return an equivalent, hopefully smaller, expression
+     */
+    Expr run(Expr expr) {
+        trees++;
+        for (int i = 0; i < passes.size(); i++) {
+            if (!collectStats) {
+                expr = passes.get(i).rewrite(expr);
+                continue;
+            }
+
+            nodesIn[i] += countNodes(expr);
+            long start = System.nanoTime();
+            expr = passes.get(i).rewrite(expr);
+            nanos[i] += System.nanoTime() - start;
+            nodesOut[i] += countNodes(expr);
+        }
+        return expr;
+    }
+
+    /**
+     * Print each pass's statistics so far.
+     * 
+     * @param out where to print them
+     */
+    void report(PrintStream out) {
+        out.println("pass       nodes in  nodes out   removed       time");
+        for (int i = 0; i < passes.size(); i++) {
+            long removed = nodesIn[i] - nodesOut[i];
+            double percent = nodesIn[i] == 0 ? 0 : 100.0 * removed / nodesIn[i];
+            out.printf("%-8s %10d %10d %8.1f%% %8.3f ms%n", passes.get(i).name(),
+                    nodesIn[i], nodesOut[i], percent, nanos[i] / 1e6);
+        }
+        out.println("(" + trees + " expressions)");
+    }
+
+    /**
+     * Count the nodes in a tree.
+     */
+    static long countNodes(Expr expr) {
+        if (expr instanceof Expr.Binary) {
+            Expr.Binary binary = (Expr.Binary) expr;
+            return 1 + countNodes(binary.left) + countNodes(binary.right);
+        }
+        if (expr instanceof Expr.Grouping) {
+            return 1 + countNodes(((Expr.Grouping) expr).expression);
+        }
+        if (expr instanceof Expr.Unary) {
+            return 1 + countNodes(((Expr.Unary) expr).right);
+        }
+        return 1;
+    }
+}
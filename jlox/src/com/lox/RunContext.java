@@ -0,0 +1,171 @@
+package jlox.src.com.lox;
+
+import java.io.PrintStream;
+
+/**
+ * The state of one run of lox code: where its output and diagnostics go, and
+ * whether anything has gone wrong. Every run gets its own, so runs sharing a
+ * JVM cannot see each other's errors.
+ * 
+ * Syntax and lexical diagnostics are buffered, so whoever drives the run must
+ * flush() them once it is over. Runtime errors are written at once, after any
+ * output before them.
+ */
+public class RunContext {
+    private final PrintStream out;
+    private final PrintStream err;
+    private final Diagnostics diagnostics;
+    private boolean hadError = false;
+    private boolean hadRuntimeError = false;
+    private int errorCount = 0;
+    private int runtimeErrorCount = 0;
+
+    /**
+     * @param out where the values of expressions are printed
+     * @param err where errors are reported
+     */
+    public RunContext(PrintStream out, PrintStream err) {
+        this(out, err, Diagnostics.DEFAULT_LIMIT);
+    }
+
+    /**
+     * @param out       where the values of expressions are printed
+     * @param err       where errors are reported
+     * @param maxErrors the most diagnostics to show, or 0 for no limit
+     */
+    public RunContext(PrintStream out, PrintStream err, int maxErrors) {
+        this.out = out;
+        this.err = err;
+        this.diagnostics = new Diagnostics(err, maxErrors);
+    }
+
+    /**
+     * @return where the values of expressions are printed
+     */
+    public PrintStream out() {
+        return out;
+    }
+
+    /**
+     * @return where errors are reported
+     */
+    public PrintStream err() {
+        return err;
+    }
+
+    /**
+     * @return if a syntax or lexical error has been reported
+     */
+    public boolean hadError() {
+        return hadError;
+    }
+
+    /**
+     * @return if a runtime error has been reported
+     */
+    public boolean hadRuntimeError() {
+        return hadRuntimeError;
+    }
+
+    /**
+     * @return how many syntax and lexical errors have been reported, ever
+     */
+    int errorCount() {
+        return errorCount;
+    }
+
+    /**
+     * @return how many runtime errors have been reported
+     */
+    int runtimeErrorCount() {
+        return runtimeErrorCount;
+    }
+
+    /**
+     * Forget earlier syntax and lexical errors, e.g. between lines of a REPL.
+     */
+    void resetError() {
+        hadError = false;
+    }
+
+    /**
+     * Display that an error has occurred to the user.
+     * 
+     * @param line    line of source code where the error originates
+     * @param message some helpful message for the user
+     */
+    public void error(int line, String message) {
+        error(line, 0, line, 0, message);
+    }
+
+    /**
+     * Display that an error has occurred in a span of source code.
+     * 
+     * @param line      line of the span's first character
+     * @param column    column of the span's first character, or 0 if unknown
+     * @param endLine   line of the span's last character
+     * @param endColumn column of the span's last character, or 0 if unknown
+     * @param message   some helpful message for the user
+     */
+    public void error(int line, int column, int endLine, int endColumn, String message) {
+        diagnostics.report(false, null, message, line, column, endLine, endColumn);
+        hadError = true;
+        errorCount++;
+    }
+
+    /**
+     * Display that an error has occurred at a particular Token.
+     * 
+     * @param token   the Token where the error originates
+     * @param message some helpful message for the user
+     */
+    void error(Token token, String message) {
+        report(false, token, message);
+        hadError = true;
+        errorCount++;
+    }
+
+    /**
+     * Display that an error has occurred while running lox code.
+     * 
+     * @param error the error raised by the interpreter
+     */
+    void runtimeError(RuntimeError error) {
+        // The values printed before the error come before it.
+        out.flush();
+        report(true, error.token, String.valueOf(error.getMessage()));
+        hadRuntimeError = true;
+        runtimeErrorCount++;
+    }
+
+    /**
+     * Write out every diagnostic reported so far.
+     */
+    public void flush() {
+        diagnostics.flush();
+    }
+
+    /**
+     * Report an error spanning a Token. A Token's line is the one it ends on,
+     * so one spanning lines is traced back to where it starts.
+     */
+    private void report(boolean runtime, Token token, String message) {
+        String lexeme = token.type == TokenType.EOF ? "" : token.lexeme;
+        int lastNewline = lexeme.lastIndexOf('\n');
+        if (token.column == 0 || lastNewline < 0) {
+            int endColumn = token.column == 0 ? 0 : token.column + Math.max(lexeme.length(), 1) - 1;
+            diagnostics.report(runtime, runtime ? null : lexeme, message, token.line, token.column, token.line,
+                    endColumn);
+            return;
+        }
+
+        int newlines = 0;
+        for (int i = 0; i < lexeme.length(); i++) {
+            if (lexeme.charAt(i) == '\n') {
+                newlines++;
+            }
+        }
+        diagnostics.report(runtime, runtime ? null : lexeme, message, token.line - newlines, token.column,
+                token.line, lexeme.length() - lastNewline - 1);
+    }
+}
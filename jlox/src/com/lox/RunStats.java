@@ -0,0 +1,217 @@
+package jlox.src.com.lox;
+
+import java.io.PrintStream;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Where the time of a run goes, phase by phase. A run only has one if stats
+ * were asked for or a JFR recording has the run events enabled; otherwise
+ * every caller holds null and skips the timing entirely.
+ * 
+ * Scanning and parsing are pulled Token by Token, and decoding is pulled by
+ * the scanner, so those phases are interleaved rather than sequential. Their
+ * times are accumulated in slices, and decoding is subtracted from the
+ * scanning and parsing it happened inside.
+ */
+class RunStats {
+    /**
+     * The phases of a run, in the order they start.
+     */
+    enum Phase {
+        HASH("hash"),
+        CACHE_LOAD("cache load"),
+        READ("read"),
+        DECODE("decode"),
+        SCAN_PARSE("scan+parse"),
+        CACHE_STORE("cache store"),
+        OPTIMIZE("optimize"),
+        EXECUTE("execute");
+
+        final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * One phase of one run, committed when the run ends.
+     */
+    @Name("jlox.Phase")
+    @Label("Lox Phase")
+    @Category("Lox")
+    @Description("Time and throughput of one phase of a lox run")
+    @StackTrace(false)
+    static class PhaseEvent extends Event {
+        @Label("Script")
+        String script;
+
+        @Label("Phase")
+        String phase;
+
+        @Label("Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long time;
+
+        @Label("Bytes In")
+        @DataAmount
+        long bytes;
+
+        @Label("Tokens Out")
+        long tokens;
+
+        @Label("Errors")
+        int errors;
+    }
+
+    /**
+     * A whole run, from its first phase to its exit code.
+     */
+    @Name("jlox.Run")
+    @Label("Lox Run")
+    @Category("Lox")
+    @Description("One run of a lox script")
+    @StackTrace(false)
+    static class RunEvent extends Event {
+        @Label("Script")
+        String script;
+
+        @Label("Bytes In")
+        @DataAmount
+        long bytes;
+
+        @Label("Tokens Out")
+        long tokens;
+
+        @Label("Errors")
+        int errors;
+
+        @Label("Exit Code")
+        int status;
+    }
+
+    private final String script;
+    private final RunEvent event = new RunEvent();
+    private final long[] nanos = new long[Phase.values().length];
+    private final long[] bytes = new long[Phase.values().length];
+    private final long[] tokens = new long[Phase.values().length];
+    private final int[] errors = new int[Phase.values().length];
+
+    private RunStats(String script) {
+        this.script = script;
+        event.begin();
+    }
+
+    /**
+     * Start measuring a run, if anyone will look at the measurements.
+     * 
+     * @param script what is being run, e.g. its path
+     * @param wanted if stats will be printed at the end of the run
+     * @return the run's stats, or null if they are neither wanted nor being
+     *         recorded
+     */
+    static RunStats start(String script, boolean wanted) {
+        // Loading the event classes is slow, so check for a recorder first.
+        if (!wanted && !(FlightRecorder.isInitialized() && new RunEvent().isEnabled())) {
+            return null;
+        }
+        return new RunStats(script);
+    }
+
+    /**
+     * Add a slice of a phase.
+     * 
+     * @param phase  the phase the slice belongs to
+     * @param time   nanoseconds spent
+     * @param bytes  bytes consumed
+     * @param tokens Tokens produced
+     * @param errors errors reported
+     */
+    void add(Phase phase, long time, long bytes, long tokens, int errors) {
+        int i = phase.ordinal();
+        this.nanos[i] += time;
+        this.bytes[i] += bytes;
+        this.tokens[i] += tokens;
+        this.errors[i] += errors;
+    }
+
+    /**
+     * @return nanoseconds spent in a phase so far
+     */
+    long nanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    /**
+     * End the run, committing its events to any JFR recording.
+     * 
+     * @param status the run's exit code
+     */
+    void finish(int status) {
+        long totalBytes = 0;
+        long totalTokens = 0;
+        int totalErrors = 0;
+        for (Phase phase : Phase.values()) {
+            int i = phase.ordinal();
+            // The same source bytes pass through several phases.
+            totalBytes = Math.max(totalBytes, bytes[i]);
+            totalTokens += tokens[i];
+            totalErrors += errors[i];
+
+            PhaseEvent phaseEvent = new PhaseEvent();
+            if (nanos[i] != 0 && phaseEvent.isEnabled()) {
+                phaseEvent.script = script;
+                phaseEvent.phase = phase.label;
+                phaseEvent.time = nanos[i];
+                phaseEvent.bytes = bytes[i];
+                phaseEvent.tokens = tokens[i];
+                phaseEvent.errors = errors[i];
+                phaseEvent.commit();
+            }
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.script = script;
+            event.bytes = totalBytes;
+            event.tokens = totalTokens;
+            event.errors = totalErrors;
+            event.status = status;
+            event.commit();
+        }
+    }
+
+    /**
+     * Print a table of the phases that ran.
+     * 
+     * @param out where to print the table
+     */
+    void report(PrintStream out) {
+        long total = 0;
+        for (long time : nanos) {
+            total += time;
+        }
+
+        out.println("phase              time   share        bytes     tokens    tokens/s  errors");
+        for (Phase phase : Phase.values()) {
+            int i = phase.ordinal();
+            if (nanos[i] == 0 && bytes[i] == 0) {
+                continue;
+            }
+            double share = total == 0 ? 0 : 100.0 * nanos[i] / total;
+            String rate = tokens[i] == 0 || nanos[i] == 0 ? "" : String.format("%.0f", tokens[i] / (nanos[i] / 1e9));
+            out.printf("%-11s %8.3f ms %6.1f%% %12d %10d %11s %7d%n", phase.label, nanos[i] / 1e6, share,
+                    bytes[i], tokens[i], rate, errors[i]);
+        }
+        out.printf("%-11s %8.3f ms%n", "total", total / 1e6);
+    }
+}
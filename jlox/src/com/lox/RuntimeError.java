@@ -0,0 +1,18 @@
+package jlox.src.com.lox;
+
+class RuntimeError extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    final Token token;
+
+    /**
+     * An error raised while evaluating lox code.
+     * 
+     * @param token   the Token where the error originates
+     * @param message some helpful message for the user
+     */
+    RuntimeError(Token token, String message) {
+        super(message);
+        this.token = token;
+    }
+}
@@ -1,36 +1,69 @@
 package jlox.src.com.lox;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-
-public class Scanner {
-    private final String source;
-    private final List<Token> tokens = new ArrayList<>();
+import java.util.NoSuchElementException;
+
+public class Scanner implements Iterator<Token> {
+    private static final int BUFFER_SIZE = 8192;
+    // Integers up to this magnitude are exactly representable as doubles.
+    private static final long MAX_EXACT_INTEGER = 1L << 53;
+    // Powers of ten that are exactly representable as doubles.
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22,
+    };
+
+    private final Reader reader;
+    // Where lexical errors are reported; null when scanning a chunk.
+    private final RunContext context;
+    private final SymbolTable symbols;
+    private char[] buffer;
+    // Number of valid characters in buffer.
+    private int limit;
     private int start = 0;
     private int current = 0;
     private int line = 1;
-    private static final Map<String, TokenType> keywords;
-
-    static {
-        keywords = new HashMap<>();
-        keywords.put("and", TokenType.AND);
-        keywords.put("class", TokenType.CLASS);
-        keywords.put("else", TokenType.ELSE);
-        keywords.put("false", TokenType.FALSE);
-        keywords.put("for", TokenType.FOR);
-        keywords.put("fun", TokenType.FUN);
-        keywords.put("if", TokenType.IF);
-        keywords.put("nil", TokenType.NIL);
-        keywords.put("or", TokenType.OR);
-        keywords.put("print", TokenType.PRINT);
-        keywords.put("return", TokenType.RETURN);
-        keywords.put("super", TokenType.SUPER);
-        keywords.put("this", TokenType.THIS);
-        keywords.put("true", TokenType.TRUE);
-        keywords.put("var", TokenType.VAR);
-        keywords.put("while", TokenType.WHILE);
+    // Offset in buffer of the current line's first character. It goes
+    // negative once that character has been slid out of the buffer.
+    private int lineStart = 0;
+    // Column of the lexeme being scanned.
+    private int startColumn = 1;
+    private boolean reachedEof = false;
+    // Tokens produced so far, not counting the final EOF.
+    private long tokenCount = 0;
+    // Value of the most recently scanned NUMBER Token.
+    private double number = 0;
+    // When scanning one chunk of a larger source, errors are collected here
+    // instead of being reported, as the chunk's results may be discarded.
+    private final List<LexError> errors;
+    // Start of a string left open at the end of the chunk, or -1.
+    private int openString = -1;
+
+    /**
+     * A lexical error found while scanning a chunk, to be reported later.
+     */
+    static class LexError {
+        final int line;
+        final int column;
+        final int endLine;
+        final int endColumn;
+        final String message;
+
+        LexError(int line, int column, int endLine, int endColumn, String message) {
+            this.line = line;
+            this.column = column;
+            this.endLine = endLine;
+            this.endColumn = endColumn;
+            this.message = message;
+        }
     }
 
     /**
@@ -39,7 +72,102 @@ public class Scanner {
      * @param source valid lox source code
      */
     public Scanner(String source) {
-        this.source = source;
+        this(source, new RunContext(System.out, System.err));
+    }
+
+    /**
+     * Scan lox source code, reporting errors to a particular run.
+     * 
+     * @param source  valid lox source code
+     * @param context the run to report errors to
+     */
+    public Scanner(String source, RunContext context) {
+        this.reader = null;
+        this.context = context;
+        this.symbols = new SymbolTable();
+        this.buffer = source.toCharArray();
+        this.limit = buffer.length;
+        this.errors = null;
+    }
+
+    /**
+     * Scan lox source code lazily from a character stream. Only the lexeme
+     * currently being scanned is buffered, so memory stays flat regardless of
+     * the length of the source.
+     * 
+     * @param reader a stream of valid lox source code
+     */
+    public Scanner(Reader reader) {
+        this(reader, new RunContext(System.out, System.err));
+    }
+
+    /**
+     * Scan lox source code lazily from a character stream, reporting errors
+     * to a particular run.
+     * 
+     * @param reader  a stream of valid lox source code
+     * @param context the run to report errors to
+     */
+    public Scanner(Reader reader, RunContext context) {
+        this.reader = reader;
+        this.context = context;
+        this.symbols = new SymbolTable();
+        this.buffer = new char[BUFFER_SIZE];
+        this.limit = 0;
+        this.errors = null;
+    }
+
+    /**
+     * Scan lox source code lazily from a byte channel.
+     * 
+     * @param channel a channel of encoded lox source code
+     * @param charset the encoding of the channel's bytes
+     */
+    public Scanner(ReadableByteChannel channel, Charset charset) {
+        this(Channels.newReader(channel, charset.newDecoder(), -1));
+    }
+
+    /**
+     * Scan one chunk of a larger source held in memory. Errors are collected
+     * rather than reported, and a string still open at the end of the chunk
+     * is recorded rather than treated as unterminated.
+     * 
+     * @param source the whole source
+     * @param from   offset of the chunk's first character
+     * @param to     offset just past the chunk's last character
+     * @param line   the line the chunk starts on, relative to the chunk
+     */
+    Scanner(char[] source, int from, int to, int line) {
+        this(source, from, to, line, new SymbolTable());
+    }
+
+    /**
+     * Scan one chunk of a larger source held in memory, interning
+     * identifiers into an existing table.
+     * 
+     * @param source  the whole source
+     * @param from    offset of the chunk's first character
+     * @param to      offset just past the chunk's last character
+     * @param line    the line the chunk starts on
+     * @param symbols the table to intern identifiers into
+     */
+    Scanner(char[] source, int from, int to, int line, SymbolTable symbols) {
+        this.reader = null;
+        this.context = null;
+        this.symbols = symbols;
+        this.buffer = source;
+        this.start = from;
+        this.current = from;
+        this.limit = to;
+        this.line = line;
+        this.errors = new ArrayList<>();
+
+        // The chunk may start partway through a line.
+        int lineStart = from;
+        while (lineStart > 0 && source[lineStart - 1] != '\n') {
+            lineStart--;
+        }
+        this.lineStart = lineStart;
     }
 
     /**
@@ -48,252 +176,514 @@ public class Scanner {
      * @return a machine-readable representation of the source
      */
     public List<Token> scanTokens() {
-        while (!isAtEnd()) {
-            // We are at the beginning of the next lexeme.
-            start = current;
-            scanToken();
+        List<Token> tokens = new ArrayList<>();
+        while (hasNext()) {
+            tokens.add(nextToken());
+        }
+        if (context != null) {
+            context.flush();
         }
-
-        tokens.add(new Token(TokenType.EOF, "", null, line));
         return tokens;
     }
 
     /**
-     * Check whether we have reached the end of the source code.
+     * Return the table identifiers are interned into. Every IDENTIFIER Token
+     * this Scanner produces carries a symbol ID from it.
      * 
-     * @return if we have reached the end of the source code
+     * @return this Scanner's symbol table
      */
-    private boolean isAtEnd() {
-        return current >= source.length();
+    public SymbolTable symbols() {
+        return symbols;
     }
 
     /**
-     * Take the next valid lexeme and add its corresponding Token to tokens.
+     * Check whether there are Tokens left to scan, including the final EOF.
+     * 
+     * @return if nextToken() will produce a Token not yet seen
      */
-    private void scanToken() {
-        char c = advance();
-        switch (c) {
-            case '(':
-                addToken(TokenType.LEFT_PAREN);
-                break;
-            case ')':
-                addToken(TokenType.RIGHT_PAREN);
-                break;
-            case '{':
-                addToken(TokenType.LEFT_BRACE);
-                break;
-            case '}':
-                addToken(TokenType.RIGHT_BRACE);
-                break;
-            case ',':
-                addToken(TokenType.COMMA);
-                break;
-            case '.':
-                addToken(TokenType.DOT);
-                break;
-            case '-':
-                addToken(TokenType.MINUS);
-                break;
-            case '+':
-                addToken(TokenType.PLUS);
-                break;
-            case ';':
-                addToken(TokenType.SEMICOLON);
-                break;
-            case '*':
-                addToken(TokenType.STAR);
-                break;
+    @Override
+    public boolean hasNext() {
+        return !reachedEof;
+    }
 
-            case '!':
-                addToken(match('=') ? TokenType.BANG_EQUAL : TokenType.BANG);
-                break;
-            case '=':
-                addToken(match('=') ? TokenType.EQUAL_EQUAL : TokenType.EQUAL);
-                break;
-            case '<':
-                addToken(match('=') ? TokenType.LESS_EQUAL : TokenType.LESS);
-                break;
-            case '>':
-                addToken(match('=') ? TokenType.GREATER_EQUAL : TokenType.GREATER);
-                break;
-            case '/':
-                if (match('/')) {
-                    // A comment goes until the end of the line.
-                    while (peek() != '\n' && !isAtEnd()) {
-                        advance();
-                    }
-                } else {
-                    addToken(TokenType.SLASH);
-                }
-                break;
+    /**
+     * Scan and return the next Token, ending with the final EOF.
+     * 
+     * @return the next Token in the source
+     * @throws NoSuchElementException once the EOF has been returned
+     */
+    @Override
+    public Token next() {
+        if (reachedEof) {
+            throw new NoSuchElementException();
+        }
+        return nextToken();
+    }
 
-            case ' ':
-            case '\r':
-            case '\t':
-                // Ignore whitespace.
-                break;
+    /**
+     * Scan and return the next Token. Once the source is exhausted, every
+     * further call returns an EOF Token, unlike next().
+     * 
+     * @return the next Token in the source
+     */
+    public Token nextToken() {
+        TokenType type = scanNext();
+        if (type == TokenType.EOF) {
+            reachedEof = true;
+            return new Token(TokenType.EOF, "", null, line, startColumn, Token.NO_SYMBOL);
+        }
+        tokenCount++;
+        return makeToken(type);
+    }
 
-            case '\n':
-                line++;
-                break;
+    /**
+     * Scan the whole source into a compact TokenBuffer, rather than
+     * allocating a Token object per lexeme. Only available for sources held
+     * fully in memory, as the buffer's lexemes are views over the source.
+     * 
+     * @return a machine-readable representation of the source
+     */
+    public TokenBuffer scanTokenBuffer() {
+        if (reader != null) {
+            throw new IllegalStateException("Cannot buffer Tokens from a stream.");
+        }
 
-            case '"':
-                string();
-                break;
+        TokenBuffer tokens = new TokenBuffer(buffer, symbols);
+        scanInto(tokens);
+        tokens.add(TokenType.EOF, start, 0, line, startColumn, Token.NO_SYMBOL);
+        if (context != null) {
+            context.flush();
+        }
+        return tokens;
+    }
 
-            default:
-                // This avoids explicitly enumerating cases for 0-9
-                if (isDigit(c)) {
-                    number();
-                } else if (isAlpha(c)) {
-                    identifier();
-                } else {
-                    // Note:
-                    // - we consume the unexpected character to prevent
-                    // an infinite loop
-                    // - we continue scanning to provide the user with
-                    // all lexical errors present in one go
-                    // As hadError in Lox still gets set, this is safe.
-                    Lox.error(line, "Unexpected character.");
-                }
-                break;
+    /**
+     * Scan the rest of the source into a TokenBuffer, without a final EOF.
+     * 
+     * @param tokens the buffer to append to
+     */
+    void scanInto(TokenBuffer tokens) {
+        while (scanNextInto(tokens)) {
+            // Keep going until the end of the source.
         }
     }
 
     /**
-     * Handle scanning identifiers (variable names, true/false, etc).
+     * Scan the next Token into a TokenBuffer, without a final EOF.
+     * 
+     * @param tokens the buffer to append to
+     * @return if a Token was appended; false at the end of the source
      */
-    private void identifier() {
-        while (isAlphaNumeric(peek())) {
-            advance();
+    boolean scanNextInto(TokenBuffer tokens) {
+        TokenType type = scanNext();
+        if (type == TokenType.EOF) {
+            reachedEof = true;
+            return false;
         }
 
-        String text = source.substring(start, current);
-        // Check if the token is a reserved keyword
-        TokenType type = keywords.get(text);
-        if (type == null) {
-            type = TokenType.IDENTIFIER;
+        int symbol = Token.NO_SYMBOL;
+        if (type == TokenType.IDENTIFIER) {
+            symbol = symbols.intern(buffer, start, current - start);
         }
+        tokens.add(type, start, current - start, line, startColumn, symbol);
+        tokenCount++;
+        return true;
+    }
 
-        addToken(type);
+    /**
+     * @return the run this Scanner reports errors to
+     */
+    RunContext context() {
+        return context;
     }
 
     /**
-     * Handle scanning number literals.
+     * @return the number of Tokens produced so far, not counting the EOF
      */
-    private void number() {
-        while (isDigit(peek())) {
-            advance();
-        }
+    long tokenCount() {
+        return tokenCount;
+    }
 
-        // Look for a fractional part.
-        if (peek() == '.' && isDigit(peekNext())) {
-            // Consume the "."
-            advance();
+    /**
+     * @return the line the scanner has reached
+     */
+    int line() {
+        return line;
+    }
 
-            while (isDigit(peek())) {
-                advance();
-            }
-        }
+    /**
+     * @return the column of the last lexeme scanned, or of the end of the
+     *         source once it is reached
+     */
+    int column() {
+        return startColumn;
+    }
 
-        addToken(TokenType.NUMBER, Double.parseDouble(source.substring(start, current)));
+    /**
+     * @return errors collected while scanning a chunk
+     */
+    List<LexError> errors() {
+        return errors;
     }
 
     /**
-     * Handle scanning string literals.
+     * @return start of a string left open at the end of a chunk, or -1
+     */
+    int openString() {
+        return openString;
+    }
+
+    /**
+     * Advance past the next lexeme that produces a Token, leaving start and
+     * current around it.
+     * 
+     * @return the type of the Token scanned
      */
-    private void string() {
-        while (peek() != '"' && !isAtEnd()) {
-            if (peek() == '\n') {
-                line++;
+    private TokenType scanNext() {
+        while (!isAtEnd()) {
+            // We are at the beginning of the next lexeme.
+            start = current;
+            startColumn = start - lineStart + 1;
+            TokenType type = scanToken();
+            if (type != null) {
+                return type;
             }
-            advance();
         }
 
-        if (isAtEnd()) {
-            Lox.error(line, "Unterminated string.");
-            return;
-        }
+        start = current;
+        startColumn = start - lineStart + 1;
+        return TokenType.EOF;
+    }
 
-        // The closing ".
-        advance();
+    /**
+     * Check whether we have reached the end of the source code.
+     * 
+     * @return if we have reached the end of the source code
+     */
+    private boolean isAtEnd() {
+        return !ensure(1);
+    }
 
-        // Trim the surrounding quotes
-        String value = source.substring(start + 1, current - 1);
-        addToken(TokenType.STRING, value);
+    /**
+     * Make sure at least n characters from current onwards are buffered,
+     * reading more from the underlying stream if needed.
+     * 
+     * @param n the number of characters needed
+     * @return if n characters are available
+     */
+    private boolean ensure(int n) {
+        while (current + n > limit) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
-     * For multi-character lexemes. Check the following character matches
-     * what we would expect.
+     * Read more characters into buffer, discarding everything before the
+     * start of the current lexeme.
      * 
-     * @param expected the character to match
-     * @return if current matches expected
+     * @return if any characters were read
      */
-    private boolean match(char expected) {
-        if (isAtEnd()) {
+    private boolean fill() {
+        if (reader == null) {
             return false;
         }
-        if (source.charAt(current) != expected) {
-            return false;
+
+        if (start > 0) {
+            // Slide the current lexeme to the front of the buffer.
+            System.arraycopy(buffer, start, buffer, 0, limit - start);
+            limit -= start;
+            current -= start;
+            lineStart -= start;
+            start = 0;
         }
 
-        current++;
-        return true;
+        try {
+            int read;
+            do {
+                if (buffer.length - limit < 2) {
+                    // A single lexeme fills the whole buffer, so grow it.
+                    // Keep room for a surrogate pair, which cannot be split.
+                    char[] grown = new char[buffer.length * 2];
+                    System.arraycopy(buffer, 0, grown, 0, limit);
+                    buffer = grown;
+                }
+                read = reader.read(buffer, limit, buffer.length - limit);
+            } while (read == 0);
+
+            if (read < 0) {
+                return false;
+            }
+            limit += read;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
-     * Return current without consuming it.
+     * Scan the next lexeme. The lexer DFA recognises it, and the rule it
+     * matched says which Token it produces; strings, comments and whitespace
+     * only match their first characters, and are finished off here by the
+     * bulk loops.
      * 
-     * @return current
+     * @return the type of the Token scanned, or null if the lexeme produces
+     *         no Token (whitespace, comments and errors)
      */
-    private char peek() {
-        if (isAtEnd()) {
-            return '\0';
+    private TokenType scanToken() {
+        int rule = longestMatch();
+        if (rule < 0) {
+            // Note:
+            // - we consume the unexpected character to prevent
+            // an infinite loop
+            // - we continue scanning to provide the user with
+            // all lexical errors present in one go
+            // The error still sets hadError in this run's RunContext (a
+            // chunk scanner collects it for ParallelScanner or TokenBuffer
+            // to report), so the run fails without this Token.
+            advance();
+            error(line, "Unexpected character.");
+            return null;
+        }
+
+        switch (LexerTables.ACTIONS[rule]) {
+            case LexerTables.NUMBER:
+                number = parseNumber(buffer, start, current - start);
+                break;
+            case LexerTables.STRING:
+                return string();
+            case LexerTables.COMMENT:
+                // A comment goes until the end of the line.
+                skipLineComment();
+                break;
+            case LexerTables.WHITESPACE:
+                if (buffer[start] == '\n') {
+                    line++;
+                    lineStart = current;
+                }
+                skipWhitespace();
+                break;
         }
-        return source.charAt(current);
+        return LexerTables.TYPES[rule];
     }
 
     /**
-     * Return the character *after* current without consuming it.
+     * Run the lexer DFA from the start of the lexeme until it dies or reaches
+     * a dead end, leaving current at the end of the longest lexeme it accepted
+     * on the way.
      * 
-     * @return the character after current
+     * @return the rule that matched, or -1 if none matches at start
      */
-    private char peekNext() {
-        if (current + 1 >= source.length()) {
-            return '\0';
+    private int longestMatch() {
+        byte[] classes = LexerTables.CLASSES;
+        short[] transitions = LexerTables.TRANSITIONS;
+        int state = LexerTables.START;
+        int last;
+
+        char[] chars = buffer;
+        int end = limit;
+        int i = current;
+        do {
+            if (i == end) {
+                current = i;
+                if (!fill()) {
+                    // Filling may still have slid the buffer.
+                    return acceptedBefore(state, current);
+                }
+                chars = buffer;
+                end = limit;
+                i = current;
+            }
+            last = state;
+            char c = chars[i++];
+            state = transitions[state + (c < 128 ? classes[c] : 0)];
+            // Run along a state that loops back to itself, as the bodies of
+            // identifiers and numbers do. Stepping from last rather than from
+            // state keeps each lookup from waiting on the one before.
+            while (state == last && i < end) {
+                c = chars[i++];
+                state = transitions[last + (c < 128 ? classes[c] : 0)];
+            }
+        } while (state > LexerTables.LAST_DEAD_END);
+
+        if (state == LexerTables.DEAD) {
+            return acceptedBefore(last, i - 1);
         }
-        return source.charAt(current + 1);
+        // A dead end, so the lexeme cannot go on.
+        return acceptedBefore(state, i);
     }
 
     /**
-     * Return whether c is an alphabetical character.
+     * Find the rule the DFA accepted last, given where it stopped. That is
+     * nearly always the state it stopped in; otherwise it passed through an
+     * accepting state earlier (as in "1." before a non-digit), so rerun it up
+     * to there.
      * 
-     * @param c
-     * @return if c is an alphabetical character
+     * @param state the last state the DFA was alive in
+     * @param end   the offset just after the character that led to it
+     * @return the rule that matched, or -1 if none matches at start
      */
-    private boolean isAlpha(char c) {
-        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    private int acceptedBefore(int state, int end) {
+        int rule = LexerTables.TRANSITIONS[state + LexerTables.ACCEPT];
+        if (rule >= 0) {
+            current = end;
+            return rule;
+        }
+
+        state = LexerTables.START;
+        current = start;
+        for (int i = start; i < end; i++) {
+            char c = buffer[i];
+            state = LexerTables.TRANSITIONS[state + (c < 128 ? LexerTables.CLASSES[c] : 0)];
+            int accept = LexerTables.TRANSITIONS[state + LexerTables.ACCEPT];
+            if (accept >= 0) {
+                rule = accept;
+                current = i + 1;
+            }
+        }
+        return rule;
+    }
+
+    /**
+     * Skip the rest of a run of whitespace, counting the newlines in it. Like
+     * the other bulk loops, this scans straight through the buffer, only
+     * stopping at its end to read more.
+     */
+    private void skipWhitespace() {
+        do {
+            char[] chars = buffer;
+            int end = limit;
+            int i = current;
+            while (i < end) {
+                char c = chars[i];
+                if (c == '\n') {
+                    line++;
+                    lineStart = i + 1;
+                } else if (c != ' ' && c != '\r' && c != '\t') {
+                    current = i;
+                    return;
+                }
+                i++;
+            }
+            current = i;
+            // Nothing skipped needs to stay buffered.
+            start = current;
+        } while (fill());
+    }
+
+    /**
+     * Skip the rest of a line comment, up to but not including its newline.
+     */
+    private void skipLineComment() {
+        do {
+            char[] chars = buffer;
+            int end = limit;
+            int i = current;
+            while (i < end && chars[i] != '\n') {
+                i++;
+            }
+            current = i;
+            if (i < end) {
+                return;
+            }
+            // Nothing skipped needs to stay buffered.
+            start = current;
+        } while (fill());
     }
 
     /**
-     * Return whether c is an alphanumerical character.
+     * Return the value of the most recently scanned NUMBER Token, without
+     * boxing it.
      * 
-     * @param c
-     * @return if c is an alphanumerical character
+     * @return the value of the last number literal returned by nextToken()
      */
-    private boolean isAlphaNumeric(char c) {
-        return isAlpha(c) || isDigit(c);
+    public double numberValue() {
+        return number;
     }
 
     /**
-     * Return whether c is a numerical digit.
+     * Convert a number literal to a double. Digits are accumulated directly
+     * into a long; when that long and the power of ten it is scaled by are
+     * both exact doubles, a single correctly rounded division gives the same
+     * result as Double.parseDouble(). Anything else falls back to it.
      * 
-     * @param c the character
-     * @return if c is a numerical digit
+     * @param chars  the characters containing the literal
+     * @param start  offset of the literal's first character
+     * @param length number of characters in the literal
+     * @return the literal's value
+     */
+    static double parseNumber(char[] chars, int start, int length) {
+        long mantissa = 0;
+        int fractionDigits = -1;
+        int end = start + length;
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (c == '.') {
+                fractionDigits = 0;
+                continue;
+            }
+            if (mantissa > (Long.MAX_VALUE - 9) / 10) {
+                // Too many digits to accumulate without overflow.
+                return Double.parseDouble(new String(chars, start, length));
+            }
+            mantissa = mantissa * 10 + (c - '0');
+            if (fractionDigits >= 0) {
+                fractionDigits++;
+            }
+        }
+
+        if (fractionDigits <= 0) {
+            // An integer (that fits in a long) converts with correct rounding.
+            return mantissa;
+        }
+        if (mantissa <= MAX_EXACT_INTEGER && fractionDigits < POWERS_OF_TEN.length) {
+            return mantissa / POWERS_OF_TEN[fractionDigits];
+        }
+        return Double.parseDouble(new String(chars, start, length));
+    }
+
+    /**
+     * Handle scanning string literals.
      */
-    private boolean isDigit(char c) {
-        return c >= '0' && c <= '9';
+    private TokenType string() {
+        int startLine = line;
+        do {
+            char[] chars = buffer;
+            int end = limit;
+            int i = current;
+            while (i < end) {
+                char c = chars[i];
+                if (c == '"') {
+                    break;
+                }
+                if (c == '\n') {
+                    line++;
+                    lineStart = i + 1;
+                }
+                i++;
+            }
+            current = i;
+            if (i < end) {
+                break;
+            }
+        } while (fill());
+
+        if (isAtEnd()) {
+            if (errors != null) {
+                // The string may continue in the next chunk.
+                openString = start;
+                return null;
+            }
+            error(startLine, "Unterminated string.");
+            return null;
+        }
+
+        // The closing ".
+        advance();
+
+        return TokenType.STRING;
     }
 
     /**
@@ -302,26 +692,55 @@ public class Scanner {
      * @return the first character of the next lexeme
      */
     private char advance() {
-        return source.charAt(current++);
+        return buffer[current++];
     }
 
     /**
-     * Add the next Token to tokens (wrapper for non-literals).
+     * Report a lexical error spanning the lexeme being scanned, or collect it
+     * if scanning a chunk.
      * 
-     * @param type see TokenType
+     * @param startLine the line the lexeme starts on
+     * @param message   some helpful message for the user
      */
-    private void addToken(TokenType type) {
-        addToken(type, null);
+    private void error(int startLine, String message) {
+        int endColumn = Math.max(current - lineStart, 1);
+        if (errors != null) {
+            errors.add(new LexError(startLine, startColumn, line, endColumn, message));
+        } else {
+            context.error(startLine, startColumn, line, endColumn, message);
+        }
     }
 
     /**
-     * Add the next Token to tokens.
+     * Return the raw text of the lexeme being scanned.
      * 
-     * @param type    see TokenType
-     * @param literal token value if it is a literal; null otherwise
+     * @return the characters from start up to current
      */
-    private void addToken(TokenType type, Object literal) {
-        String text = source.substring(start, current);
-        tokens.add(new Token(type, text, literal, line));
+    private String lexeme() {
+        return new String(buffer, start, current - start);
+    }
+
+    /**
+     * Build the Token for the lexeme just scanned.
+     * 
+     * @param type see TokenType
+     * @return the scanned Token, with its literal value if it has one
+     */
+    private Token makeToken(TokenType type) {
+        if (type == TokenType.IDENTIFIER) {
+            // Share one String per distinct name.
+            int symbol = symbols.intern(buffer, start, current - start);
+            return new Token(type, symbols.name(symbol), null, line, startColumn, symbol);
+        }
+
+        String text = lexeme();
+        Object literal = null;
+        if (type == TokenType.STRING) {
+            // Trim the surrounding quotes
+            literal = text.substring(1, text.length() - 1);
+        } else if (type == TokenType.NUMBER) {
+            literal = number;
+        }
+        return new Token(type, text, literal, line, startColumn, Token.NO_SYMBOL);
     }
 }
@@ -0,0 +1,112 @@
+package jlox.src.com.lox;
+
+import java.util.Arrays;
+
+/**
+ * Intern identifier names into dense integer IDs, so later stages can compare
+ * and key names by int and each distinct name is stored only once.
+ */
+public class SymbolTable {
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Open-addressed hash table of symbol IDs plus one; zero marks a free slot.
+    private int[] slots = new int[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Return the ID of a name, adding it to the table if it is new. Looking up
+     * a name already in the table does not allocate.
+     * 
+     * @param chars  the characters containing the name
+     * @param start  offset of the name's first character
+     * @param length number of characters in the name
+     * @return the name's symbol ID
+     */
+    public int intern(char[] chars, int start, int length) {
+        int hash = hash(chars, start, length);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != 0) {
+            int id = slots[slot] - 1;
+            if (hashes[id] == hash && matches(names[id], chars, start, length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int id = size++;
+        if (id == names.length) {
+            names = Arrays.copyOf(names, id * 2);
+            hashes = Arrays.copyOf(hashes, id * 2);
+        }
+        names[id] = new String(chars, start, length);
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+
+        // Keep the table at most half full.
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * Return the ID of a name, adding it to the table if it is new.
+     * 
+     * @param name the name
+     * @return the name's symbol ID
+     */
+    public int intern(String name) {
+        return intern(name.toCharArray(), 0, name.length());
+    }
+
+    /**
+     * @param id a symbol ID handed out by this table
+     * @return the name the ID stands for
+     */
+    public String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return the number of distinct names in the table
+     */
+    public int size() {
+        return size;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    private static int hash(char[] chars, int start, int length) {
+        // Same as String.hashCode(), spread so the low bits are well mixed.
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(String name, char[] chars, int start, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != chars[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
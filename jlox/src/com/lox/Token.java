@@ -1,10 +1,17 @@
 package jlox.src.com.lox;
 
 public class Token {
+    // Symbol ID of Tokens that are not identifiers.
+    public static final int NO_SYMBOL = -1;
+
     public final TokenType type;
     public final String lexeme;
     public final Object literal;
     public final int line;
+    // Column of the token's first character on the line it starts on, from 1,
+    // or 0 if unknown.
+    public final int column;
+    public final int symbol;
 
     /**
      * Implement lox tokens.
@@ -15,10 +22,39 @@ public class Token {
      * @param line    the token's line in source code
      */
     public Token(TokenType type, String lexeme, Object literal, int line) {
+        this(type, lexeme, literal, line, NO_SYMBOL);
+    }
+
+    /**
+     * Implement lox tokens for identifiers.
+     * 
+     * @param type    see TokenType
+     * @param lexeme  the raw substring of source code corresponding to the token
+     * @param literal the token's value if it is a literal; null otherwise
+     * @param line    the token's line in source code
+     * @param symbol  the identifier's ID in its SymbolTable; NO_SYMBOL otherwise
+     */
+    public Token(TokenType type, String lexeme, Object literal, int line, int symbol) {
+        this(type, lexeme, literal, line, 0, symbol);
+    }
+
+    /**
+     * Implement lox tokens that know where on their line they start.
+     * 
+     * @param type    see TokenType
+     * @param lexeme  the raw substring of source code corresponding to the token
+     * @param literal the token's value if it is a literal; null otherwise
+     * @param line    the token's line in source code
+     * @param column  the column of the token's first character, from 1
+     * @param symbol  the identifier's ID in its SymbolTable; NO_SYMBOL otherwise
+     */
+    public Token(TokenType type, String lexeme, Object literal, int line, int column, int symbol) {
         this.type = type;
         this.lexeme = lexeme;
         this.literal = literal;
         this.line = line;
+        this.column = column;
+        this.symbol = symbol;
     }
 
     /**
@@ -0,0 +1,327 @@
+package jlox.src.com.lox;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * A compact, struct-of-arrays list of Tokens. Instead of one object per
+ * Token, each Token is a row across parallel primitive arrays, and lexemes
+ * are views over the original source that are only copied on demand.
+ */
+public class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final char[] source;
+    private final SymbolTable symbols;
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int[] starts = new int[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private int[] lines = new int[INITIAL_CAPACITY];
+    private int[] columns = new int[INITIAL_CAPACITY];
+    private int[] symbolIds = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Create an empty buffer of Tokens scanned from source.
+     * 
+     * @param source  the characters every Token's offsets refer to
+     * @param symbols the table identifiers' symbol IDs refer to
+     */
+    TokenBuffer(char[] source, SymbolTable symbols) {
+        this.source = source;
+        this.symbols = symbols;
+    }
+
+    /**
+     * Append a Token to the end of the buffer.
+     * 
+     * @param type   see TokenType
+     * @param start  offset of the first character of the lexeme in source
+     * @param length number of characters in the lexeme
+     * @param line   the token's line in source code
+     * @param column the column of the token's first character, from 1
+     * @param symbol the identifier's symbol ID; Token.NO_SYMBOL otherwise
+     */
+    void add(TokenType type, int start, int length, int line, int column, int symbol) {
+        ensureCapacity(size + 1);
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = line;
+        columns[size] = column;
+        symbolIds[size] = symbol;
+        size++;
+    }
+
+    /**
+     * Append a run of Tokens copied from another buffer.
+     * 
+     * @param from       the buffer to copy from
+     * @param index      position of the first Token to copy
+     * @param count      number of Tokens to copy
+     * @param startShift added to every copied Token's start
+     * @param lineShift  added to every copied Token's line
+     */
+    private void addAll(TokenBuffer from, int index, int count, int startShift, int lineShift) {
+        ensureCapacity(size + count);
+        System.arraycopy(from.types, index, types, size, count);
+        System.arraycopy(from.starts, index, starts, size, count);
+        System.arraycopy(from.lengths, index, lengths, size, count);
+        System.arraycopy(from.lines, index, lines, size, count);
+        System.arraycopy(from.columns, index, columns, size, count);
+        System.arraycopy(from.symbolIds, index, symbolIds, size, count);
+        for (int i = size; i < size + count; i++) {
+            starts[i] += startShift;
+            lines[i] += lineShift;
+        }
+        size += count;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > types.length) {
+            capacity = Math.max(capacity, types.length * 2);
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+            symbolIds = Arrays.copyOf(symbolIds, capacity);
+        }
+    }
+
+    /**
+     * Apply an edit to the source, re-lexing only the Tokens it can affect.
+     * Scanning restarts after the last Token the edit cannot change, and
+     * stops as soon as a new Token starts where an old one did after the
+     * edit: from there on the source is unchanged, so the old Tokens are
+     * reused with their offsets and lines shifted. An edit that opens or
+     * closes a string rescans until the Tokens line up again.
+     * 
+     * The buffer must end with an EOF, as Scanner.scanTokenBuffer() leaves
+     * it. Lexical errors in the rescanned text are not reported. This buffer
+     * is left unchanged, and shares its symbol table with the result.
+     * 
+     * @param offset   where the edit starts in source
+     * @param removed  number of characters the edit removes
+     * @param inserted the characters the edit inserts at offset
+     * @return the Tokens Scanner.scanTokenBuffer() produces for the edited
+     *         source
+     */
+    public TokenBuffer edit(int offset, int removed, CharSequence inserted) {
+        int end = offset + removed;
+        if (offset < 0 || removed < 0 || end > source.length) {
+            throw new IndexOutOfBoundsException("Edit outside of the source.");
+        }
+        int shift = inserted.length() - removed;
+
+        char[] edited = new char[source.length + shift];
+        System.arraycopy(source, 0, edited, 0, offset);
+        for (int i = 0; i < inserted.length(); i++) {
+            edited[offset + i] = inserted.charAt(i);
+        }
+        System.arraycopy(source, end, edited, offset + inserted.length(), source.length - end);
+
+        TokenBuffer tokens = new TokenBuffer(edited, symbols);
+        tokens.ensureCapacity(size);
+        int kept = unaffectedBefore(offset);
+        tokens.addAll(this, 0, kept, 0, 0);
+
+        // Between Tokens, the scanner's only state is its offset and line.
+        int from = kept == 0 ? 0 : starts[kept - 1] + lengths[kept - 1];
+        int line = kept == 0 ? 1 : lines[kept - 1];
+        Scanner scanner = new Scanner(edited, from, edited.length, line, symbols);
+
+        // The old Token that a scanned Token may line up with. The final EOF
+        // never needs to be reused.
+        int old = kept;
+        int eof = size - 1;
+        while (scanner.scanNextInto(tokens)) {
+            int scanned = tokens.size - 1;
+            int oldStart = tokens.starts[scanned] - shift;
+            while (old < eof && starts[old] < oldStart) {
+                old++;
+            }
+
+            if (old < eof && starts[old] == oldStart && oldStart >= end) {
+                // Back in step: the rest of the Tokens are the old ones.
+                int lineShift = tokens.lines[scanned] - lines[old];
+                tokens.size--;
+                tokens.addAll(this, old, size - old, shift, lineShift);
+                tokens.fixColumns(scanned);
+                return tokens;
+            }
+        }
+
+        tokens.add(TokenType.EOF, edited.length, 0, scanner.line(), scanner.column(), Token.NO_SYMBOL);
+        return tokens;
+    }
+
+    /**
+     * Recompute the columns of reused Tokens that share a line with the
+     * edit. Past the next newline, every line starts where it did, shifted
+     * along with its Tokens, so their columns still hold.
+     * 
+     * @param from position of the first reused Token
+     */
+    private void fixColumns(int from) {
+        int lineStart = starts[from];
+        while (lineStart > 0 && source[lineStart - 1] != '\n') {
+            lineStart--;
+        }
+        for (int i = from; i < size && (i == from || noNewline(starts[i - 1], starts[i])); i++) {
+            columns[i] = starts[i] - lineStart + 1;
+        }
+    }
+
+    /**
+     * @return if there is no newline in source between two offsets
+     */
+    private boolean noNewline(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (source[i] == '\n') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Count the Tokens an edit at offset cannot change. The scanner looks at
+     * most two characters past the end of a lexeme (as in "1.5") to decide
+     * where it ends, so Tokens ending at least that far before the edit are
+     * safe.
+     * 
+     * @param offset where the edit starts in source
+     * @return how many Tokens, from the first, are unaffected
+     */
+    private int unaffectedBefore(int offset) {
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] + lengths[mid] + 2 <= offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the number of Tokens in the buffer, including the final EOF
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index position of the Token in the buffer
+     * @return the Token's type
+     */
+    public TokenType type(int index) {
+        return TYPES[types[index]];
+    }
+
+    /**
+     * @param index position of the Token in the buffer
+     * @return offset of the first character of the Token's lexeme in source
+     */
+    public int start(int index) {
+        return starts[index];
+    }
+
+    /**
+     * @param index position of the Token in the buffer
+     * @return number of characters in the Token's lexeme
+     */
+    public int length(int index) {
+        return lengths[index];
+    }
+
+    /**
+     * @param index position of the Token in the buffer
+     * @return the Token's line in source code
+     */
+    public int line(int index) {
+        return lines[index];
+    }
+
+    /**
+     * @param index position of the Token in the buffer
+     * @return the column of the Token's first character, from 1
+     */
+    public int column(int index) {
+        return columns[index];
+    }
+
+    /**
+     * @param index position of the Token in the buffer
+     * @return the identifier's symbol ID; Token.NO_SYMBOL otherwise
+     */
+    public int symbol(int index) {
+        return symbolIds[index];
+    }
+
+    /**
+     * @return the table identifiers' symbol IDs refer to
+     */
+    public SymbolTable symbols() {
+        return symbols;
+    }
+
+    /**
+     * Return the Token's lexeme as a view over source, without copying it.
+     * 
+     * @param index position of the Token in the buffer
+     * @return the raw characters of the Token's lexeme
+     */
+    public CharSequence lexeme(int index) {
+        return CharBuffer.wrap(source, starts[index], lengths[index]);
+    }
+
+    /**
+     * Materialize the Token's literal value.
+     * 
+     * @param index position of the Token in the buffer
+     * @return the Token's value if it is a literal; null otherwise
+     */
+    public Object literal(int index) {
+        switch (type(index)) {
+            case STRING:
+                // Trim the surrounding quotes
+                return new String(source, starts[index] + 1, lengths[index] - 2);
+            case NUMBER:
+                return number(index);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Return the value of a NUMBER Token, without boxing it.
+     * 
+     * @param index position of a NUMBER Token in the buffer
+     * @return the Token's value
+     */
+    public double number(int index) {
+        return Scanner.parseNumber(source, starts[index], lengths[index]);
+    }
+
+    /**
+     * Materialize a single Token object.
+     * 
+     * @param index position of the Token in the buffer
+     * @return an equivalent Token to the one Scanner.scanTokens() produces
+     */
+    public Token token(int index) {
+        if (symbolIds[index] != Token.NO_SYMBOL) {
+            int symbol = symbolIds[index];
+            return new Token(type(index), symbols.name(symbol), null, lines[index], columns[index], symbol);
+        }
+
+        String text = new String(source, starts[index], lengths[index]);
+        return new Token(type(index), text, literal(index), lines[index], columns[index], Token.NO_SYMBOL);
+    }
+}
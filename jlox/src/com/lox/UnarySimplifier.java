@@ -0,0 +1,100 @@
+package jlox.src.com.lox;
+
+/**
+ * Cancel out doubled unary operators: -(-x) becomes x when x can only produce
+ * a number, and !!x becomes x when x can only produce a boolean. Any error x
+ * raises is raised by x itself, so it is unaffected.
+ */
+class UnarySimplifier extends ExprRewriter {
+    UnarySimplifier(ExprFactory factory) {
+        super(factory);
+    }
+
+    @Override
+    String name() {
+        return "unary";
+    }
+
+    @Override
+    public Expr visitUnaryExpr(Expr.Unary expr) {
+        Expr rewritten = super.visitUnaryExpr(expr);
+        if (!(rewritten instanceof Expr.Unary)) {
+            return rewritten;
+        }
+
+        Expr.Unary outer = (Expr.Unary) rewritten;
+        Expr operand = unwrap(outer.right);
+        if (!(operand instanceof Expr.Unary)) {
+            return outer;
+        }
+
+        Expr.Unary inner = (Expr.Unary) operand;
+        if (outer.operator.type != inner.operator.type) {
+            return outer;
+        }
+        if (outer.operator.type == TokenType.MINUS && isNumber(inner.right)) {
+            return inner.right;
+        }
+        if (outer.operator.type == TokenType.BANG && isBoolean(inner.right)) {
+            return inner.right;
+        }
+        return outer;
+    }
+
+    /**
+     * Check whether an expression either produces a number or raises an
+     * error.
+     */
+    private static boolean isNumber(Expr expr) {
+        expr = unwrap(expr);
+        if (expr instanceof Expr.NumberLiteral) {
+            return true;
+        }
+        if (expr instanceof Expr.Unary) {
+            return ((Expr.Unary) expr).operator.type == TokenType.MINUS;
+        }
+        if (expr instanceof Expr.Binary) {
+            Expr.Binary binary = (Expr.Binary) expr;
+            switch (binary.operator.type) {
+                case MINUS:
+                case STAR:
+                case SLASH:
+                    return true;
+                case PLUS:
+                    // Could also concatenate strings.
+                    return isNumber(binary.left) && isNumber(binary.right);
+                default:
+                    return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check whether an expression either produces a boolean or raises an
+     * error.
+     */
+    private static boolean isBoolean(Expr expr) {
+        expr = unwrap(expr);
+        if (expr instanceof Expr.BoolLiteral) {
+            return true;
+        }
+        if (expr instanceof Expr.Unary) {
+            return ((Expr.Unary) expr).operator.type == TokenType.BANG;
+        }
+        if (expr instanceof Expr.Binary) {
+            switch (((Expr.Binary) expr).operator.type) {
+                case GREATER:
+                case GREATER_EQUAL:
+                case LESS:
+                case LESS_EQUAL:
+                case EQUAL_EQUAL:
+                case BANG_EQUAL:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+        return false;
+    }
+}
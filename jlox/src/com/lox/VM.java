@@ -0,0 +1,164 @@
+package jlox.src.com.lox;
+
+import java.util.Arrays;
+
+import static jlox.src.com.lox.Chunk.*;
+
+/**
+ * Run compiled Chunks with a switch-dispatched loop over a stack. Each stack
+ * slot has a numeric and an object half: numbers live unboxed in the numeric
+ * half, with the NUMBER marker in the object half.
+ */
+class VM {
+    // Marks a stack slot whose value is in numbers rather than objects.
+    private static final Object NUMBER = new Object();
+
+    private double[] numbers = new double[16];
+    private Object[] objects = new Object[16];
+
+    /**
+     * Run a chunk of bytecode.
+     * 
+     * @param chunk the compiled expression
+     * @return the expression's value
+     */
+    Object run(Chunk chunk) {
+        if (chunk.maxStack > objects.length) {
+            numbers = new double[chunk.maxStack];
+            objects = new Object[chunk.maxStack];
+        }
+        byte[] code = chunk.code;
+        double[] numberConstants = chunk.numbers;
+        Object[] constants = chunk.constants;
+        double[] numbers = this.numbers;
+        Object[] objects = this.objects;
+        int ip = 0;
+        int sp = 0;
+
+        try {
+            while (true) {
+                byte op = code[ip++];
+                switch (op) {
+                    case OP_NUMBER:
+                        numbers[sp] = numberConstants[readInt(code, ip)];
+                        objects[sp++] = NUMBER;
+                        ip += 4;
+                        break;
+                    case OP_CONSTANT:
+                        objects[sp++] = constants[readInt(code, ip)];
+                        ip += 4;
+                        break;
+                    case OP_NIL:
+                        objects[sp++] = null;
+                        break;
+                    case OP_TRUE:
+                        objects[sp++] = Boolean.TRUE;
+                        break;
+                    case OP_FALSE:
+                        objects[sp++] = Boolean.FALSE;
+                        break;
+
+                    case OP_NEGATE:
+                        if (objects[sp - 1] != NUMBER) {
+                            throw new RuntimeError(chunk.tokenAt(ip - 1), "Operand must be a number.");
+                        }
+                        numbers[sp - 1] = -numbers[sp - 1];
+                        break;
+                    case OP_NOT:
+                        // The NUMBER marker is truthy, as every number is.
+                        objects[sp - 1] = !Interpreter.isTruthy(objects[sp - 1]);
+                        break;
+
+                    case OP_ADD:
+                        if (objects[sp - 2] == NUMBER && objects[sp - 1] == NUMBER) {
+                            numbers[sp - 2] += numbers[sp - 1];
+                        } else if (objects[sp - 2] instanceof String && objects[sp - 1] instanceof String) {
+                            objects[sp - 2] = (String) objects[sp - 2] + (String) objects[sp - 1];
+                        } else {
+                            throw new RuntimeError(chunk.tokenAt(ip - 1),
+                                    "Operands must be two numbers or two strings.");
+                        }
+                        sp--;
+                        break;
+                    case OP_SUBTRACT:
+                        checkNumbers(chunk, objects, sp, ip);
+                        numbers[sp - 2] -= numbers[sp - 1];
+                        sp--;
+                        break;
+                    case OP_MULTIPLY:
+                        checkNumbers(chunk, objects, sp, ip);
+                        numbers[sp - 2] *= numbers[sp - 1];
+                        sp--;
+                        break;
+                    case OP_DIVIDE:
+                        checkNumbers(chunk, objects, sp, ip);
+                        numbers[sp - 2] /= numbers[sp - 1];
+                        sp--;
+                        break;
+
+                    case OP_GREATER:
+                        checkNumbers(chunk, objects, sp, ip);
+                        objects[sp - 2] = numbers[sp - 2] > numbers[sp - 1];
+                        sp--;
+                        break;
+                    case OP_GREATER_EQUAL:
+                        checkNumbers(chunk, objects, sp, ip);
+                        objects[sp - 2] = numbers[sp - 2] >= numbers[sp - 1];
+                        sp--;
+                        break;
+                    case OP_LESS:
+                        checkNumbers(chunk, objects, sp, ip);
+                        objects[sp - 2] = numbers[sp - 2] < numbers[sp - 1];
+                        sp--;
+                        break;
+                    case OP_LESS_EQUAL:
+                        checkNumbers(chunk, objects, sp, ip);
+                        objects[sp - 2] = numbers[sp - 2] <= numbers[sp - 1];
+                        sp--;
+                        break;
+                    case OP_EQUAL:
+                        objects[sp - 2] = isEqual(numbers, objects, sp);
+                        sp--;
+                        break;
+                    case OP_NOT_EQUAL:
+                        objects[sp - 2] = !isEqual(numbers, objects, sp);
+                        sp--;
+                        break;
+
+                    case OP_RETURN:
+                        return objects[sp - 1] == NUMBER ? (Object) numbers[sp - 1] : objects[sp - 1];
+                    default:
+                        throw new IllegalStateException("Unknown opcode " + op + ".");
+                }
+            }
+        } finally {
+            // Don't keep the values alive after the run, however it ends.
+            Arrays.fill(objects, 0, chunk.maxStack, null);
+        }
+    }
+
+    private static int readInt(byte[] code, int ip) {
+        return (code[ip] & 0xff) << 24 | (code[ip + 1] & 0xff) << 16
+                | (code[ip + 2] & 0xff) << 8 | (code[ip + 3] & 0xff);
+    }
+
+    private static void checkNumbers(Chunk chunk, Object[] objects, int sp, int ip) {
+        if (objects[sp - 2] != NUMBER || objects[sp - 1] != NUMBER) {
+            throw new RuntimeError(chunk.tokenAt(ip - 1), "Operands must be numbers.");
+        }
+    }
+
+    /**
+     * Compare the top two stack slots as Interpreter.isEqual() would.
+     */
+    private static boolean isEqual(double[] numbers, Object[] objects, int sp) {
+        Object a = objects[sp - 2];
+        Object b = objects[sp - 1];
+        if (a == NUMBER || b == NUMBER) {
+            // Double.equals() compares bits: NaN equals NaN, 0.0 isn't -0.0.
+            return a == b && Double.doubleToLongBits(numbers[sp - 2])
+                    == Double.doubleToLongBits(numbers[sp - 1]);
+        }
+        return Interpreter.isEqual(a, b);
+    }
+}
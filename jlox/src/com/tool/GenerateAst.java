@@ -2,8 +2,12 @@ package jlox.src.com.tool;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class GenerateAst {
     /**
@@ -19,11 +23,18 @@ public class GenerateAst {
             System.exit(64);
         }
         String outputDir = args[0];
-        defineAst(outputDir, "Expr", Arrays.asList(
-                "Binary   : Expr left, Token operator, Expr right",
-                "Grouping : Expr expression",
-                "Literal  : Object value",
-                "Unary    : Token operator, Expr right"));
+        List<String> exprTypes = Arrays.asList(
+                "Binary        : Expr left, Token operator, Expr right",
+                "Grouping      : Expr expression",
+                "NumberLiteral : double value",
+                "StringLiteral : String value",
+                "BoolLiteral   : boolean value",
+                "NilLiteral    : ",
+                "Unary         : Token operator, Expr right");
+        defineAst(outputDir, "Expr", exprTypes);
+        defineArena(outputDir, "Expr", exprTypes);
+        defineCodec(outputDir, "Expr", exprTypes);
+        defineFactory(outputDir, "Expr", exprTypes);
     }
 
     /**
@@ -84,7 +95,9 @@ public class GenerateAst {
     }
 
     /**
-     * Output boilerplate code for an AST expression type
+     * Output boilerplate code for an AST expression type. A type without
+     * fields has a single instance, INSTANCE, and a type whose only field is
+     * a boolean has two, TRUE and FALSE.
      * 
      * @param writer    the writer in charge of creating the .java file
      * @param baseName  the output filename and name of the outer abstract class
@@ -95,8 +108,29 @@ public class GenerateAst {
             PrintWriter writer, String baseName, String className, String fieldList) {
         writer.println(" static class " + className + " extends " + baseName + " {");
 
+        if (fieldList.isEmpty()) {
+            writer.println(" static final " + className + " INSTANCE = new " + className + "();");
+            writer.println();
+            writer.println(" private " + className + "() {");
+            writer.println(" }");
+            writer.println();
+            writer.println(" @Override");
+            writer.println(" <R> R accept(Visitor<R> visitor) {");
+            writer.println(" return visitor.visit" + className + baseName + "(this);");
+            writer.println(" }");
+            writer.println(" }");
+            return;
+        }
+
         // Constructor
-        writer.println(" " + className + "(" + fieldList + ") {");
+        if (isBooleanOnly(fieldList)) {
+            writer.println(" static final " + className + " TRUE = new " + className + "(true);");
+            writer.println(" static final " + className + " FALSE = new " + className + "(false);");
+            writer.println();
+            writer.println(" private " + className + "(" + fieldList + ") {");
+        } else {
+            writer.println(" " + className + "(" + fieldList + ") {");
+        }
 
         // Store parameters in fields.
         String[] fields = fieldList.split(", ");
@@ -122,4 +156,908 @@ public class GenerateAst {
 
         writer.println(" }");
     }
+
+    /**
+     * Write a flat, index-based arena representation of the AST to a set
+     * output directory, alongside the object representation from defineAst.
+     * Nodes are rows across primitive arrays: a kind, child node indices,
+     * indices into a Token table, primitive values and indices into a literal
+     * table. Fields of the base type become child columns, Token fields token
+     * columns, primitive fields columns of their own type, and anything else
+     * literal columns.
+     * 
+     * @param outputDir the output directory
+     * @param baseName  the name of the AST's base class; the arena is written
+     *                  to baseName + "Arena.java"
+     * @param types     the expression types
+     * @throws IOException if the .java file cannot be written
+     */
+    private static void defineArena(
+            String outputDir, String baseName, List<String> types) throws IOException {
+        String arenaName = baseName + "Arena";
+        String path = outputDir + "/" + arenaName + ".java";
+        PrintWriter writer = new PrintWriter(path, "UTF-8");
+
+        // Work out how many columns of each kind the widest type needs.
+        Map<String, Integer> columns = new LinkedHashMap<>();
+        columns.put("children", 0);
+        columns.put("tokens", 0);
+        for (String type : types) {
+            Map<String, Integer> counts = new HashMap<>();
+            for (String[] field : arenaFields(type)) {
+                String kind = columnKind(baseName, field[0]);
+                counts.merge(kind, 1, Integer::sum);
+                columns.merge(kind, counts.get(kind), Math::max);
+            }
+        }
+        int childColumns = columns.get("children");
+
+        writer.println("package jlox.src.com.lox;");
+        writer.println();
+        writer.println("import java.util.ArrayDeque;");
+        writer.println("import java.util.ArrayList;");
+        writer.println("import java.util.Arrays;");
+        writer.println("import java.util.Deque;");
+        writer.println("import java.util.IdentityHashMap;");
+        writer.println("import java.util.List;");
+        writer.println("import java.util.Map;");
+        writer.println();
+        writer.println("/**");
+        writer.println(" * A flat, index-based representation of " + baseName + " trees, generated by");
+        writer.println(" * GenerateAst. Nodes are rows across primitive arrays rather than objects, and");
+        writer.println(" * every traversal uses an explicit stack, so deep trees cannot overflow the");
+        writer.println(" * call stack. A node's children are always added before the node itself.");
+        writer.println(" */");
+        writer.println("class " + arenaName + " {");
+
+        // Node kinds.
+        for (int i = 0; i < types.size(); i++) {
+            writer.println("    static final byte " + kindName(types.get(i)) + " = " + i + ";");
+        }
+
+        // The visitor for walk().
+        writer.println();
+        writer.println("    interface Visitor {");
+        for (int i = 0; i < types.size(); i++) {
+            if (i > 0) {
+                writer.println();
+            }
+            writer.println("        void visit" + className(types.get(i)) + "(int node);");
+        }
+        writer.println("    }");
+
+        // Columns.
+        writer.println();
+        writer.println("    private static final int INITIAL_CAPACITY = 16;");
+        writer.println("    // The most children any kind of node has.");
+        writer.println("    private static final int MAX_CHILDREN = " + childColumns + ";");
+        writer.println();
+        writer.println("    private int size = 0;");
+        writer.println("    private byte[] kinds = new byte[INITIAL_CAPACITY];");
+        for (Map.Entry<String, Integer> column : columns.entrySet()) {
+            String elementType = columnType(column.getKey());
+            for (int i = 0; i < column.getValue(); i++) {
+                writer.println("    private " + elementType + "[] " + column.getKey() + i + " = new " + elementType
+                        + "[INITIAL_CAPACITY];");
+            }
+        }
+        writer.println("    private Token[] tokenTable = new Token[INITIAL_CAPACITY];");
+        writer.println("    private int tokenCount = 0;");
+        writer.println("    private Object[] literalTable = new Object[INITIAL_CAPACITY];");
+        writer.println("    private int literalCount = 0;");
+
+        // Basic accessors.
+        writer.println();
+        writer.println("    /**");
+        writer.println("     * @return the number of nodes in the arena");
+        writer.println("     */");
+        writer.println("    int size() {");
+        writer.println("        return size;");
+        writer.println("    }");
+        writer.println();
+        writer.println("    /**");
+        writer.println("     * @param node a node's index");
+        writer.println("     * @return the node's kind");
+        writer.println("     */");
+        writer.println("    byte kind(int node) {");
+        writer.println("        return kinds[node];");
+        writer.println("    }");
+
+        // Adders.
+        for (String type : types) {
+            defineArenaAdder(writer, baseName, type);
+        }
+
+        // Typed views.
+        for (String type : types) {
+            defineArenaView(writer, baseName, type);
+        }
+
+        defineArenaWalk(writer, baseName, types);
+        defineArenaConversions(writer, baseName, types);
+        defineArenaStorage(writer, columns);
+
+        writer.println("}");
+        writer.close();
+    }
+
+    /**
+     * Output the method that appends a node of one type to the arena.
+     */
+    private static void defineArenaAdder(PrintWriter writer, String baseName, String type) {
+        String className = className(type);
+        List<String[]> fields = arenaFields(type);
+
+        List<String> params = new ArrayList<>();
+        for (String[] field : fields) {
+            String paramType = columnKind(baseName, field[0]).equals("children") ? "int" : field[0];
+            params.add(paramType + " " + field[1]);
+        }
+
+        writer.println();
+        writer.println("    /**");
+        writer.println("     * Append a " + className + " node.");
+        writer.println("     * ");
+        writer.println("     * @return the new node's index");
+        writer.println("     */");
+        writer.println("    int add" + className + "(" + String.join(", ", params) + ") {");
+        writer.println("        int node = allocate(" + kindName(type) + ");");
+        Map<String, Integer> counts = new HashMap<>();
+        for (String[] field : fields) {
+            String kind = columnKind(baseName, field[0]);
+            String column = column(kind, counts);
+            switch (kind) {
+                case "tokens":
+                    writer.println("        " + column + "[node] = storeToken(" + field[1] + ");");
+                    break;
+                case "literals":
+                    writer.println("        " + column + "[node] = storeLiteral(" + field[1] + ");");
+                    break;
+                default:
+                    writer.println("        " + column + "[node] = " + field[1] + ";");
+                    break;
+            }
+        }
+        writer.println("        return node;");
+        writer.println("    }");
+    }
+
+    /**
+     * Output a reusable, typed view of one type's columns. Views are cursors:
+     * at() moves one to another node without allocating.
+     */
+    private static void defineArenaView(PrintWriter writer, String baseName, String type) {
+        String className = className(type);
+
+        writer.println();
+        writer.println("    /**");
+        writer.println("     * A typed view of " + className + " nodes.");
+        writer.println("     */");
+        writer.println("    final class " + className + "View {");
+        writer.println("        private int node;");
+        writer.println();
+        writer.println("        " + className + "View at(int node) {");
+        writer.println("            this.node = node;");
+        writer.println("            return this;");
+        writer.println("        }");
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (String[] field : arenaFields(type)) {
+            String kind = columnKind(baseName, field[0]);
+            String column = column(kind, counts);
+            writer.println();
+            switch (kind) {
+                case "children":
+                    writer.println("        int " + field[1] + "() {");
+                    writer.println("            return " + column + "[node];");
+                    break;
+                case "tokens":
+                    writer.println("        Token " + field[1] + "() {");
+                    writer.println("            return tokenTable[" + column + "[node]];");
+                    break;
+                case "literals":
+                    writer.println("        " + field[0] + " " + field[1] + "() {");
+                    if (field[0].equals("Object")) {
+                        writer.println("            return literalTable[" + column + "[node]];");
+                    } else {
+                        writer.println("            return (" + field[0] + ") literalTable[" + column + "[node]];");
+                    }
+                    break;
+                default:
+                    writer.println("        " + field[0] + " " + field[1] + "() {");
+                    writer.println("            return " + column + "[node];");
+                    break;
+            }
+            writer.println("        }");
+        }
+        writer.println("    }");
+    }
+
+    /**
+     * Output the non-recursive, post-order walk over a tree in the arena.
+     */
+    private static void defineArenaWalk(PrintWriter writer, String baseName, List<String> types) {
+        writer.println();
+        writer.println("    /**");
+        writer.println("     * Visit every node of a tree, children before parents, using an explicit");
+        writer.println("     * stack rather than recursion.");
+        writer.println("     * ");
+        writer.println("     * @param root    the index of the tree's root");
+        writer.println("     * @param visitor called once per node");
+        writer.println("     */");
+        writer.println("    void walk(int root, Visitor visitor) {");
+        writer.println("        int[] stack = new int[INITIAL_CAPACITY];");
+        writer.println("        int top = 0;");
+        writer.println("        stack[top++] = root;");
+        writer.println();
+        writer.println("        while (top > 0) {");
+        writer.println("            int node = stack[--top];");
+        writer.println("            if (node < 0) {");
+        writer.println("                // The node's children have all been visited.");
+        writer.println("                dispatch(~node, visitor);");
+        writer.println("                continue;");
+        writer.println("            }");
+        writer.println();
+        writer.println("            if (top + 1 + MAX_CHILDREN > stack.length) {");
+        writer.println("                stack = Arrays.copyOf(stack, stack.length * 2 + 1);");
+        writer.println("            }");
+        writer.println("            // Come back to the node once its children are done. Push the");
+        writer.println("            // last child first, so the first child is visited first.");
+        writer.println("            stack[top++] = ~node;");
+        writer.println("            switch (kinds[node]) {");
+        for (String type : types) {
+            List<String> children = new ArrayList<>();
+            int count = 0;
+            for (String[] field : arenaFields(type)) {
+                if (columnKind(baseName, field[0]).equals("children")) {
+                    children.add("children" + count++);
+                }
+            }
+            if (children.isEmpty()) {
+                continue;
+            }
+            writer.println("                case " + kindName(type) + ":");
+            for (int i = children.size() - 1; i >= 0; i--) {
+                writer.println("                    stack[top++] = " + children.get(i) + "[node];");
+            }
+            writer.println("                    break;");
+        }
+        writer.println("                default:");
+        writer.println("                    break;");
+        writer.println("            }");
+        writer.println("        }");
+        writer.println("    }");
+
+        writer.println();
+        writer.println("    private void dispatch(int node, Visitor visitor) {");
+        writer.println("        switch (kinds[node]) {");
+        for (String type : types) {
+            writer.println("            case " + kindName(type) + ":");
+            writer.println("                visitor.visit" + className(type) + "(node);");
+            writer.println("                break;");
+        }
+        writer.println("            default:");
+        writer.println("                throw new IllegalStateException(\"Unknown node kind.\");");
+        writer.println("        }");
+        writer.println("    }");
+    }
+
+    /**
+     * Output conversions between the arena and the object representation,
+     * neither of which recurses.
+     */
+    private static void defineArenaConversions(
+            PrintWriter writer, String baseName, List<String> types) {
+        writer.println();
+        writer.println("    /**");
+        writer.println("     * Copy an object tree into the arena.");
+        writer.println("     * ");
+        writer.println("     * @param root the root of the tree");
+        writer.println("     * @return the index of the root's node");
+        writer.println("     */");
+        writer.println("    int add(" + baseName + " root) {");
+        writer.println("        // List the nodes parents-first, then add them children-first.");
+        writer.println("        List<" + baseName + "> order = new ArrayList<>();");
+        writer.println("        Deque<" + baseName + "> pending = new ArrayDeque<>();");
+        writer.println("        pending.push(root);");
+        writer.println("        while (!pending.isEmpty()) {");
+        writer.println("            " + baseName + " expr = pending.pop();");
+        writer.println("            order.add(expr);");
+        boolean firstParent = true;
+        for (String type : types) {
+            String className = className(type);
+            List<String> children = new ArrayList<>();
+            for (String[] field : arenaFields(type)) {
+                if (columnKind(baseName, field[0]).equals("children")) {
+                    children.add(field[1]);
+                }
+            }
+            if (children.isEmpty()) {
+                continue;
+            }
+            writer.println("            " + (firstParent ? "" : "} else ") + "if (expr instanceof " + baseName + "." + className + ") {");
+            firstParent = false;
+            for (String child : children) {
+                writer.println("                pending.push(((" + baseName + "." + className + ") expr)." + child + ");");
+            }
+        }
+        writer.println("            }");
+        writer.println("        }");
+        writer.println();
+        writer.println("        Map<" + baseName + ", Integer> nodes = new IdentityHashMap<>();");
+        writer.println("        for (int i = order.size() - 1; i >= 0; i--) {");
+        writer.println("            " + baseName + " expr = order.get(i);");
+        boolean first = true;
+        for (String type : types) {
+            String className = className(type);
+            List<String> args = new ArrayList<>();
+            for (String[] field : arenaFields(type)) {
+                if (columnKind(baseName, field[0]).equals("children")) {
+                    args.add("nodes.get(node." + field[1] + ")");
+                } else {
+                    args.add("node." + field[1]);
+                }
+            }
+            writer.println("            " + (first ? "" : "} else ") + "if (expr instanceof " + baseName + "." + className + ") {");
+            if (!args.isEmpty()) {
+                writer.println("                " + baseName + "." + className + " node = (" + baseName + "." + className + ") expr;");
+            }
+            writer.println("                nodes.put(expr, add" + className + "(" + String.join(", ", args) + "));");
+            first = false;
+        }
+        writer.println("            }");
+        writer.println("        }");
+        writer.println("        return nodes.get(root);");
+        writer.println("    }");
+
+        writer.println();
+        writer.println("    /**");
+        writer.println("     * Build an object tree from a tree in the arena.");
+        writer.println("     * ");
+        writer.println("     * @param root    the index of the tree's root");
+        writer.println("     * @param factory what creates the nodes");
+        writer.println("     * @return the root of the object tree");
+        writer.println("     */");
+        writer.println("    " + baseName + " to" + baseName + "(int root, " + baseName + "Factory factory) {");
+        writer.println("        " + baseName + "[] built = new " + baseName + "[size];");
+        writer.println("        walk(root, new Visitor() {");
+        first = true;
+        for (String type : types) {
+            String className = className(type);
+            List<String> args = new ArrayList<>();
+            Map<String, Integer> counts = new HashMap<>();
+            for (String[] field : arenaFields(type)) {
+                String kind = columnKind(baseName, field[0]);
+                String column = column(kind, counts);
+                switch (kind) {
+                    case "children":
+                        args.add("built[" + column + "[node]]");
+                        break;
+                    case "tokens":
+                        args.add("tokenTable[" + column + "[node]]");
+                        break;
+                    case "literals":
+                        String cast = field[0].equals("Object") ? "" : "(" + field[0] + ") ";
+                        args.add(cast + "literalTable[" + column + "[node]]");
+                        break;
+                    default:
+                        args.add(column + "[node]");
+                        break;
+                }
+            }
+            if (!first) {
+                writer.println();
+            }
+            first = false;
+            writer.println("            @Override");
+            writer.println("            public void visit" + className + "(int node) {");
+            writer.println("                built[node] = factory." + factoryMethod(type) + "(" + String.join(", ", args) + ");");
+            writer.println("            }");
+        }
+        writer.println("        });");
+        writer.println("        return built[root];");
+        writer.println("    }");
+    }
+
+    /**
+     * Output the helpers that grow the columns and tables.
+     */
+    private static void defineArenaStorage(PrintWriter writer, Map<String, Integer> columns) {
+        writer.println();
+        writer.println("    private int allocate(byte kind) {");
+        writer.println("        if (size == kinds.length) {");
+        writer.println("            int capacity = size * 2;");
+        writer.println("            kinds = Arrays.copyOf(kinds, capacity);");
+        for (Map.Entry<String, Integer> column : columns.entrySet()) {
+            for (int i = 0; i < column.getValue(); i++) {
+                String name = column.getKey() + i;
+                writer.println("            " + name + " = Arrays.copyOf(" + name + ", capacity);");
+            }
+        }
+        writer.println("        }");
+        writer.println("        kinds[size] = kind;");
+        writer.println("        return size++;");
+        writer.println("    }");
+        writer.println();
+        writer.println("    private int storeToken(Token token) {");
+        writer.println("        if (tokenCount == tokenTable.length) {");
+        writer.println("            tokenTable = Arrays.copyOf(tokenTable, tokenCount * 2);");
+        writer.println("        }");
+        writer.println("        tokenTable[tokenCount] = token;");
+        writer.println("        return tokenCount++;");
+        writer.println("    }");
+        writer.println();
+        writer.println("    private int storeLiteral(Object value) {");
+        writer.println("        if (literalCount == literalTable.length) {");
+        writer.println("            literalTable = Arrays.copyOf(literalTable, literalCount * 2);");
+        writer.println("        }");
+        writer.println("        literalTable[literalCount] = value;");
+        writer.println("        return literalCount++;");
+        writer.println("    }");
+    }
+
+    /**
+     * Write a compact binary serialization of the AST to a set output
+     * directory, for CompileCache. Nodes are written in post-order, each as
+     * its kind followed by its fields other than children, so reading them
+     * back only needs a stack. FORMAT changes whenever the types do, so
+     * stale serializations are never misread.
+     * 
+     * @param outputDir the output directory
+     * @param baseName  the name of the AST's base class; the codec is written
+     *                  to baseName + "Codec.java"
+     * @param types     the expression types
+     * @throws IOException if the .java file cannot be written
+     */
+    private static void defineCodec(
+            String outputDir, String baseName, List<String> types) throws IOException {
+        String codecName = baseName + "Codec";
+        String path = outputDir + "/" + codecName + ".java";
+        PrintWriter writer = new PrintWriter(path, "UTF-8");
+
+        StringBuilder description = new StringBuilder(baseName);
+        for (String type : types) {
+            description.append(';').append(type.replaceAll("\\s+", " ").trim());
+        }
+
+        writer.println("package jlox.src.com.lox;");
+        writer.println();
+        writer.println("import java.util.ArrayDeque;");
+        writer.println("import java.util.ArrayList;");
+        writer.println("import java.util.Deque;");
+        writer.println("import java.util.List;");
+        writer.println();
+        writer.println("/**");
+        writer.println(" * A compact binary serialization of " + baseName + " trees, generated by");
+        writer.println(" * GenerateAst. Nodes are written in post-order, each as its kind followed by");
+        writer.println(" * its fields other than children, so neither direction recurses.");
+        writer.println(" */");
+        writer.println("final class " + codecName + " {");
+        writer.println("    // Fingerprint of the node types; changes whenever they do.");
+        writer.println("    static final int FORMAT = " + String.format("0x%08x", description.toString().hashCode()) + ";");
+        writer.println();
+        for (int i = 0; i < types.size(); i++) {
+            writer.println("    private static final byte " + kindName(types.get(i)) + " = " + i + ";");
+        }
+        writer.println();
+        writer.println("    private " + codecName + "() {");
+        writer.println("    }");
+
+        // Writing.
+        writer.println();
+        writer.println("    /**");
+        writer.println("     * Serialize a tree.");
+        writer.println("     * ");
+        writer.println("     * @param root the root of the tree");
+        writer.println("     * @param out  where to write it");
+        writer.println("     */");
+        writer.println("    static void write(" + baseName + " root, CompileCache.Encoder out) {");
+        writer.println("        // Visiting the last child first gives the reverse of a post-order.");
+        writer.println("        List<" + baseName + "> order = new ArrayList<>();");
+        writer.println("        Deque<" + baseName + "> pending = new ArrayDeque<>();");
+        writer.println("        pending.push(root);");
+        writer.println("        while (!pending.isEmpty()) {");
+        writer.println("            " + baseName + " expr = pending.pop();");
+        writer.println("            order.add(expr);");
+        boolean first = true;
+        for (String type : types) {
+            String className = className(type);
+            List<String> children = new ArrayList<>();
+            for (String[] field : arenaFields(type)) {
+                if (field[0].equals(baseName)) {
+                    children.add(field[1]);
+                }
+            }
+            if (children.isEmpty()) {
+                continue;
+            }
+            writer.println("            " + (first ? "" : "} else ") + "if (expr instanceof " + baseName + "." + className + ") {");
+            first = false;
+            for (String child : children) {
+                writer.println("                pending.push(((" + baseName + "." + className + ") expr)." + child + ");");
+            }
+        }
+        writer.println("            }");
+        writer.println("        }");
+        writer.println();
+        writer.println("        out.writeVarInt(order.size());");
+        writer.println("        for (int i = order.size() - 1; i >= 0; i--) {");
+        writer.println("            " + baseName + " expr = order.get(i);");
+        first = true;
+        for (String type : types) {
+            String className = className(type);
+            writer.println("            " + (first ? "" : "} else ") + "if (expr instanceof " + baseName + "." + className + ") {");
+            first = false;
+            List<String[]> values = new ArrayList<>();
+            for (String[] field : arenaFields(type)) {
+                if (!field[0].equals(baseName)) {
+                    values.add(field);
+                }
+            }
+            if (!values.isEmpty()) {
+                writer.println("                " + baseName + "." + className + " node = (" + baseName + "." + className + ") expr;");
+            }
+            writer.println("                out.writeByte(" + kindName(type) + ");");
+            for (String[] field : values) {
+                writer.println("                out.write" + codecMethod(field[0]) + "(node." + field[1] + ");");
+            }
+        }
+        writer.println("            } else {");
+        writer.println("                throw new IllegalArgumentException(\"Unknown node type.\");");
+        writer.println("            }");
+        writer.println("        }");
+        writer.println("    }");
+
+        // Reading.
+        writer.println();
+        writer.println("    /**");
+        writer.println("     * Deserialize a tree written by write().");
+        writer.println("     * ");
+        writer.println("     * @param in      where to read it from");
+        writer.println("     * @param factory what creates the nodes");
+        writer.println("     * @return the root of the tree");
+        writer.println("     */");
+        writer.println("    static " + baseName + " read(CompileCache.Decoder in, " + baseName + "Factory factory) {");
+        writer.println("        int count = in.readSize();");
+        writer.println("        " + baseName + "[] stack = new " + baseName + "[count];");
+        writer.println("        int top = 0;");
+        writer.println("        for (int i = 0; i < count; i++) {");
+        writer.println("            switch (in.readByte()) {");
+        for (String type : types) {
+            String className = className(type);
+            List<String[]> fields = arenaFields(type);
+            writer.println("                case " + kindName(type) + ": {");
+            int children = 0;
+            for (String[] field : fields) {
+                if (field[0].equals(baseName)) {
+                    children++;
+                }
+            }
+            if (children > 0) {
+                writer.println("                    if (top < " + children + ") {");
+                writer.println("                        throw new IllegalStateException(\"Malformed tree.\");");
+                writer.println("                    }");
+            }
+            for (int i = fields.size() - 1; i >= 0; i--) {
+                String[] field = fields.get(i);
+                if (field[0].equals(baseName)) {
+                    writer.println("                    " + baseName + " " + field[1] + " = stack[--top];");
+                }
+            }
+            List<String> args = new ArrayList<>();
+            for (String[] field : fields) {
+                if (!field[0].equals(baseName)) {
+                    writer.println("                    " + field[0] + " " + field[1] + " = in.read" + codecMethod(field[0]) + "();");
+                }
+                args.add(field[1]);
+            }
+            writer.println("                    stack[top++] = factory." + factoryMethod(type) + "(" + String.join(", ", args) + ");");
+            writer.println("                    break;");
+            writer.println("                }");
+        }
+        writer.println("                default:");
+        writer.println("                    throw new IllegalStateException(\"Unknown node kind.\");");
+        writer.println("            }");
+        writer.println("        }");
+        writer.println();
+        writer.println("        if (top != 1) {");
+        writer.println("            throw new IllegalStateException(\"Malformed tree.\");");
+        writer.println("        }");
+        writer.println("        return stack[0];");
+        writer.println("    }");
+
+        writer.println("}");
+        writer.close();
+    }
+
+    /**
+     * @return the suffix of the CompileCache.Encoder and Decoder methods
+     *         that write and read a field of the given type
+     */
+    private static String codecMethod(String fieldType) {
+        if (fieldType.equals("Object")) {
+            return "Value";
+        }
+        if (fieldType.equals("double")) {
+            // Numbers are written in as few bytes as represent them.
+            return "Number";
+        }
+        return Character.toUpperCase(fieldType.charAt(0)) + fieldType.substring(1);
+    }
+
+    /**
+     * Split a type description into its fields.
+     * 
+     * @param type a type description, e.g. "Unary : Token operator, Expr right"
+     * @return each field's type and name
+     */
+    private static List<String[]> arenaFields(String type) {
+        List<String[]> fields = new ArrayList<>();
+        String list = parameters(type);
+        if (list.isEmpty()) {
+            return fields;
+        }
+        for (String field : list.split(", ")) {
+            fields.add(field.trim().split(" "));
+        }
+        return fields;
+    }
+
+    /**
+     * @return which arena columns a field of the given type is stored in,
+     *         e.g. "tokens", or "doubles" for a double field
+     */
+    private static String columnKind(String baseName, String fieldType) {
+        if (fieldType.equals(baseName)) {
+            return "children";
+        }
+        if (fieldType.equals("Token")) {
+            return "tokens";
+        }
+        if (isPrimitive(fieldType)) {
+            return fieldType + "s";
+        }
+        return "literals";
+    }
+
+    /**
+     * @return the element type of a kind of arena column
+     */
+    private static String columnType(String kind) {
+        switch (kind) {
+            case "children":
+            case "tokens":
+            case "literals":
+                return "int";
+            default:
+                // A primitive column holds the values themselves.
+                return kind.substring(0, kind.length() - 1);
+        }
+    }
+
+    /**
+     * Name the next column of a kind a type uses, e.g. "children1".
+     * 
+     * @param kind   the kind of column
+     * @param counts how many columns of each kind the type has used so far
+     */
+    private static String column(String kind, Map<String, Integer> counts) {
+        int index = counts.getOrDefault(kind, 0);
+        counts.put(kind, index + 1);
+        return kind + index;
+    }
+
+    private static boolean isPrimitive(String fieldType) {
+        return Character.isLowerCase(fieldType.charAt(0));
+    }
+
+    /**
+     * Write a factory that every node is created through. The plain factory
+     * makes a new node each time; a hash-consing one hands back an existing,
+     * structurally identical node where it remembers one, so repeated
+     * literals and subtrees are shared. It remembers nodes in a direct-mapped
+     * table per type, compared field by field against the node being asked
+     * for: children by identity, which is enough as they came from the same
+     * factory, primitives by value and other fields by equals(). Types with a
+     * Token field are never shared, since a Token's position is part of what
+     * the node means, and types without fields are singletons anyway.
+     * 
+     * @param outputDir the output directory
+     * @param baseName  the name of the AST's base class; the factory is
+     *                  written to baseName + "Factory.java"
+     * @param types     the expression types
+     * @throws IOException if the .java file cannot be written
+     */
+    private static void defineFactory(
+            String outputDir, String baseName, List<String> types) throws IOException {
+        String factoryName = baseName + "Factory";
+        String path = outputDir + "/" + factoryName + ".java";
+        PrintWriter writer = new PrintWriter(path, "UTF-8");
+
+        writer.println("package jlox.src.com.lox;");
+        writer.println();
+        writer.println("import java.util.Objects;");
+        writer.println();
+        writer.println("/**");
+        writer.println(" * Creates " + baseName + " nodes; generated by GenerateAst. The plain factory makes");
+        writer.println(" * a new node every time. A hash-consing factory hands back the node it made");
+        writer.println(" * before for a structurally identical one, if it still remembers it, so");
+        writer.println(" * repeated literals and the subtrees built from them are shared. It remembers");
+        writer.println(" * nodes in fixed-size tables, where a node simply replaces any other that");
+        writer.println(" * hashes to the same slot. Nodes holding a Token are never shared: the");
+        writer.println(" * Token's position is reported by errors, so nodes from different places in");
+        writer.println(" * the source differ.");
+        writer.println(" */");
+        writer.println("class " + factoryName + " {");
+        writer.println("    // The factory that shares nothing.");
+        writer.println("    static final " + factoryName + " PLAIN = new " + factoryName + "();");
+        writer.println();
+        writer.println("    // Slots per node type in a hash-consing factory's tables, by default.");
+        writer.println("    static final int DEFAULT_CAPACITY = 4096;");
+        writer.println();
+        writer.println("    private " + factoryName + "() {");
+        writer.println("    }");
+        writer.println();
+        writer.println("    /**");
+        writer.println("     * @param capacity slots per node type, rounded up to a power of two");
+        writer.println("     * @return a new factory that shares the nodes it remembers");
+        writer.println("     */");
+        writer.println("    static " + factoryName + " hashConsing(int capacity) {");
+        writer.println("        return new HashConsing(capacity);");
+        writer.println("    }");
+
+        for (String type : types) {
+            String className = className(type);
+            writer.println();
+            writer.println("    " + baseName + "." + className + " " + factoryMethod(type) + "(" + parameters(type) + ") {");
+            if (arenaFields(type).isEmpty()) {
+                writer.println("        return " + baseName + "." + className + ".INSTANCE;");
+            } else if (isBooleanOnly(parameters(type))) {
+                writer.println("        return " + arguments(type) + " ? " + baseName + "." + className + ".TRUE : "
+                        + baseName + "." + className + ".FALSE;");
+            } else {
+                writer.println("        return new " + baseName + "." + className + "(" + arguments(type) + ");");
+            }
+            writer.println("    }");
+        }
+
+        List<String> shareable = new ArrayList<>();
+        for (String type : types) {
+            // Types without fields have but one node already, and types of a
+            // single boolean two.
+            if (isShareable(type) && !arenaFields(type).isEmpty() && !isBooleanOnly(parameters(type))) {
+                shareable.add(type);
+            }
+        }
+
+        writer.println();
+        writer.println("    private static final class HashConsing extends " + factoryName + " {");
+        writer.println("        // Shifts a mixed hash down to a slot.");
+        writer.println("        private final int shift;");
+        for (String type : shareable) {
+            writer.println("        private final " + baseName + "." + className(type) + "[] " + tableName(type) + ";");
+        }
+        writer.println();
+        writer.println("        HashConsing(int capacity) {");
+        writer.println("            this.shift = Integer.numberOfLeadingZeros(Math.max(capacity, 2) - 1);");
+        for (String type : shareable) {
+            writer.println("            this." + tableName(type) + " = new " + baseName + "." + className(type) + "[1 << (32 - shift)];");
+        }
+        writer.println("        }");
+        writer.println();
+        writer.println("        /**");
+        writer.println("         * Pick a slot by Fibonacci hashing, which also spreads hashes that");
+        writer.println("         * only differ in their high bits, as those of Doubles do.");
+        writer.println("         */");
+        writer.println("        private int slot(int hash) {");
+        writer.println("            return (hash * 0x9E3779B9) >>> shift;");
+        writer.println("        }");
+        for (String type : shareable) {
+            String className = className(type);
+            String nodeType = baseName + "." + className;
+            String table = tableName(type);
+
+            List<String> hashes = new ArrayList<>();
+            List<String> mismatches = new ArrayList<>();
+            for (String[] field : arenaFields(type)) {
+                if (field[0].equals(baseName)) {
+                    hashes.add("System.identityHashCode(" + field[1] + ")");
+                    mismatches.add("node." + field[1] + " != " + field[1]);
+                } else if (field[0].equals("double")) {
+                    // Tell 0.0 from -0.0, as Double.equals() does.
+                    hashes.add("Double.hashCode(" + field[1] + ")");
+                    mismatches.add("Double.compare(node." + field[1] + ", " + field[1] + ") != 0");
+                } else if (isPrimitive(field[0])) {
+                    String boxed = field[0].equals("int") ? "Integer"
+                            : Character.toUpperCase(field[0].charAt(0)) + field[0].substring(1);
+                    hashes.add(boxed + ".hashCode(" + field[1] + ")");
+                    mismatches.add("node." + field[1] + " != " + field[1]);
+                } else {
+                    hashes.add("Objects.hashCode(" + field[1] + ")");
+                    mismatches.add("!Objects.equals(node." + field[1] + ", " + field[1] + ")");
+                }
+            }
+            String hash = hashes.get(0);
+            for (int i = 1; i < hashes.size(); i++) {
+                hash = "31 * " + (i > 1 ? "(" + hash + ")" : hash) + " + " + hashes.get(i);
+            }
+
+            writer.println();
+            writer.println("        @Override");
+            writer.println("        " + nodeType + " " + factoryMethod(type) + "(" + parameters(type) + ") {");
+            writer.println("            int slot = slot(" + hash + ");");
+            writer.println("            " + nodeType + " node = " + table + "[slot];");
+            writer.println("            if (node == null || " + String.join(" || ", mismatches) + ") {");
+            writer.println("                node = super." + factoryMethod(type) + "(" + arguments(type) + ");");
+            writer.println("                " + table + "[slot] = node;");
+            writer.println("            }");
+            writer.println("            return node;");
+            writer.println("        }");
+        }
+        writer.println("    }");
+
+        writer.println("}");
+        writer.close();
+    }
+
+    /**
+     * @return the name of a hash-consing factory's table of a type, e.g.
+     *         "literals"
+     */
+    private static String tableName(String type) {
+        return factoryMethod(type) + "s";
+    }
+
+    /**
+     * @return whether a field list is a single boolean, e.g. "boolean value"
+     */
+    private static boolean isBooleanOnly(String fieldList) {
+        return fieldList.matches("boolean \\w+");
+    }
+
+    /**
+     * @return whether a hash-consing factory may share nodes of a type
+     */
+    private static boolean isShareable(String type) {
+        for (String[] field : arenaFields(type)) {
+            if (field[0].equals("Token")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the type's fields as a parameter list, e.g. "Token operator, Expr right"
+     */
+    private static String parameters(String type) {
+        return type.split(":")[1].trim();
+    }
+
+    /**
+     * @return the type's field names as an argument list, e.g. "operator, right"
+     */
+    private static String arguments(String type) {
+        List<String> names = new ArrayList<>();
+        for (String[] field : arenaFields(type)) {
+            names.add(field[1]);
+        }
+        return String.join(", ", names);
+    }
+
+    /**
+     * @return the name of the factory method creating a type, e.g. "binary"
+     */
+    private static String factoryMethod(String type) {
+        String className = className(type);
+        return Character.toLowerCase(className.charAt(0)) + className.substring(1);
+    }
+
+    private static String className(String type) {
+        return type.split(":")[0].trim();
+    }
+
+    private static String kindName(String type) {
+        return className(type).toUpperCase();
+    }
 }
@@ -0,0 +1,582 @@
+package jlox.src.com.tool;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class GenerateLexer {
+    // Only ASCII characters can appear in a rule; everything else is class 0.
+    private static final int ALPHABET = 128;
+
+    /**
+     * Generate the tables of a DFA that recognises lox lexemes, from a
+     * declarative spec of the rules for each Token.
+     * 
+     * Each rule is "NAME : pattern" or "NAME : pattern -> action". NAME is the
+     * TokenType produced, or "-" for lexemes that produce none. Patterns are
+     * made of 'quoted text', [character sets] with ranges, (groups), "|", and
+     * the postfix operators "*", "+" and "?". The longest match wins, and
+     * between rules matching the same text the earlier one wins. An action
+     * names what the Scanner does once a rule has matched; without one it
+     * just produces the Token.
+     * 
+     * @param args the output directory
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: generate_lexer <output directory>");
+            System.exit(64);
+        }
+        String outputDir = args[0];
+        List<String> rules = Arrays.asList(
+                // Single-character tokens.
+                "LEFT_PAREN    : '('",
+                "RIGHT_PAREN   : ')'",
+                "LEFT_BRACE    : '{'",
+                "RIGHT_BRACE   : '}'",
+                "COMMA         : ','",
+                "DOT           : '.'",
+                "MINUS         : '-'",
+                "PLUS          : '+'",
+                "SEMICOLON     : ';'",
+                "SLASH         : '/'",
+                "STAR          : '*'",
+
+                // One or two character tokens.
+                "BANG          : '!'",
+                "BANG_EQUAL    : '!='",
+                "EQUAL         : '='",
+                "EQUAL_EQUAL   : '=='",
+                "GREATER       : '>'",
+                "GREATER_EQUAL : '>='",
+                "LESS          : '<'",
+                "LESS_EQUAL    : '<='",
+
+                // Keywords, ahead of the identifiers they would also match.
+                "AND           : 'and'",
+                "CLASS         : 'class'",
+                "ELSE          : 'else'",
+                "FALSE         : 'false'",
+                "FUN           : 'fun'",
+                "FOR           : 'for'",
+                "IF            : 'if'",
+                "NIL           : 'nil'",
+                "OR            : 'or'",
+                "PRINT         : 'print'",
+                "RETURN        : 'return'",
+                "SUPER         : 'super'",
+                "THIS          : 'this'",
+                "TRUE          : 'true'",
+                "VAR           : 'var'",
+                "WHILE         : 'while'",
+
+                // Literals. Strings, comments and whitespace only match their
+                // first characters; the Scanner's bulk loops consume the rest.
+                "IDENTIFIER    : [a-zA-Z_] [a-zA-Z_0-9]*",
+                "NUMBER        : [0-9]+ ('.' [0-9]+)?     -> number",
+                "STRING        : '\"'                      -> string",
+                "-             : '//'                     -> comment",
+                "-             : [ \\t\\r\\n]               -> whitespace");
+        defineLexer(outputDir, "LexerTables", rules);
+    }
+
+    /**
+     * Build the DFA for a token spec and write out its tables.
+     * 
+     * @param outputDir the output directory
+     * @param className the output filename and name of the class
+     * @param rules     the token spec, in priority order
+     * @throws IOException if the .java file cannot be written
+     */
+    private static void defineLexer(
+            String outputDir, String className, List<String> rules) throws IOException {
+        Nfa nfa = new Nfa();
+        int nfaStart = nfa.state();
+        List<String> names = new ArrayList<>();
+        List<String> actions = new ArrayList<>();
+        // Actions in the order they are first used, numbered from 0.
+        Map<String, Integer> actionCodes = new LinkedHashMap<>();
+        actionCodes.put("token", 0);
+        for (int i = 0; i < rules.size(); i++) {
+            String rule = rules.get(i);
+            int colon = rule.indexOf(':');
+            int arrow = rule.lastIndexOf("->");
+            String name = rule.substring(0, colon).trim();
+            String pattern = rule.substring(colon + 1, arrow < 0 ? rule.length() : arrow);
+            String action = arrow < 0 ? "token" : rule.substring(arrow + 2).trim();
+
+            int[] fragment = new PatternParser(nfa, pattern).parse();
+            nfa.epsilon(nfaStart, fragment[0]);
+            nfa.accepts.set(fragment[1], i);
+            names.add(name);
+            actions.add(action);
+            actionCodes.putIfAbsent(action, actionCodes.size());
+        }
+
+        int[] classes = characterClasses(nfa);
+        int classCount = 0;
+        for (int c : classes) {
+            classCount = Math.max(classCount, c + 1);
+        }
+        // A representative character for each class, to step the NFA on.
+        char[] representatives = new char[classCount];
+        for (int c = ALPHABET - 1; c >= 0; c--) {
+            representatives[classes[c]] = (char) c;
+        }
+
+        // Subset construction. State 0 is the dead state and state 1 the start,
+        // until they are renumbered below.
+        List<BitSet> states = new ArrayList<>();
+        Map<BitSet, Integer> stateIds = new HashMap<>();
+        states.add(new BitSet());
+        stateIds.put(states.get(0), 0);
+        BitSet start = new BitSet();
+        start.set(nfaStart);
+        start = nfa.closure(start);
+        states.add(start);
+        stateIds.put(start, 1);
+        List<int[]> transitions = new ArrayList<>();
+        for (int s = 0; s < states.size(); s++) {
+            int[] row = new int[classCount];
+            // Class 0 matches nothing, so it always leads to the dead state.
+            for (int k = 1; k < classCount && s != 0; k++) {
+                BitSet next = nfa.closure(nfa.move(states.get(s), representatives[k]));
+                Integer id = stateIds.get(next);
+                if (id == null) {
+                    id = states.size();
+                    states.add(next);
+                    stateIds.put(next, id);
+                }
+                row[k] = id;
+            }
+            transitions.add(row);
+        }
+
+        int[] accepts = new int[states.size()];
+        for (int s = 0; s < states.size(); s++) {
+            accepts[s] = -1;
+            BitSet set = states.get(s);
+            for (int n = set.nextSetBit(0); n >= 0; n = set.nextSetBit(n + 1)) {
+                int rule = nfa.accepts.get(n);
+                if (rule >= 0 && (accepts[s] < 0 || rule < accepts[s])) {
+                    accepts[s] = rule;
+                }
+            }
+        }
+        // Renumber the states so that dead ends, where every transition leads
+        // to the dead state, come straight after it. The scanner can then stop
+        // at a dead end without reading the character that would kill it.
+        int[] renumbered = new int[states.size()];
+        int deadEnds = 0;
+        for (int s = 1; s < states.size(); s++) {
+            if (isDeadEnd(transitions.get(s))) {
+                renumbered[s] = ++deadEnds;
+            }
+        }
+        int next = deadEnds;
+        for (int s = 1; s < states.size(); s++) {
+            if (!isDeadEnd(transitions.get(s))) {
+                renumbered[s] = ++next;
+            }
+        }
+        List<int[]> oldTransitions = transitions;
+        int[] oldAccepts = accepts;
+        transitions = new ArrayList<>(oldTransitions);
+        accepts = new int[states.size()];
+        for (int s = 0; s < states.size(); s++) {
+            int[] row = oldTransitions.get(s);
+            for (int k = 0; k < classCount; k++) {
+                row[k] = renumbered[row[k]];
+            }
+            transitions.set(renumbered[s], row);
+            accepts[renumbered[s]] = oldAccepts[s];
+        }
+
+        // Each row ends with the rule its state accepts, so that is found
+        // without another lookup.
+        int rowLength = classCount + 1;
+        if (states.size() * rowLength > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Token spec is too large for the table types.");
+        }
+
+        String path = outputDir + "/" + className + ".java";
+        PrintWriter writer = new PrintWriter(path, "UTF-8");
+
+        writer.println("package jlox.src.com.lox;");
+        writer.println();
+        writer.println("/**");
+        writer.println(" * The tables of a DFA that recognises lox lexemes, generated by");
+        writer.println(" * GenerateLexer from its token spec. Characters are mapped to classes of");
+        writer.println(" * characters that no rule tells apart, and the DFA steps on classes. A");
+        writer.println(" * state accepts the rule of the longest lexeme that ends there, and the");
+        writer.println(" * rule says which Token, if any, the lexeme produces and what the scanner");
+        writer.println(" * does next.");
+        writer.println(" */");
+        writer.println("final class " + className + " {");
+        writer.println("    // Actions, run once a rule has matched.");
+        for (Map.Entry<String, Integer> action : actionCodes.entrySet()) {
+            writer.println("    static final int " + action.getKey().toUpperCase() + " = " + action.getValue() + ";");
+        }
+        writer.println();
+        writer.println("    static final int CLASS_COUNT = " + classCount + ";");
+        writer.println("    // Each state's row holds its next state for each class, then the rule");
+        writer.println("    // it accepts or -1.");
+        writer.println("    static final int ACCEPT = CLASS_COUNT;");
+        writer.println("    static final int ROW_LENGTH = CLASS_COUNT + 1;");
+        writer.println();
+        writer.println("    // States are numbered by their rows' offsets in TRANSITIONS, saving a");
+        writer.println("    // multiplication per character.");
+        writer.println("    static final int DEAD = 0;");
+        writer.println("    // Dead ends, where no character can extend the lexeme, are numbered");
+        writer.println("    // from just after DEAD up to this.");
+        writer.println("    static final int LAST_DEAD_END = " + deadEnds + " * ROW_LENGTH;");
+        writer.println("    static final int START = " + renumbered[1] + " * ROW_LENGTH;");
+        writer.println();
+        writer.println("    // Class of each ASCII character. Any other character is class 0,");
+        writer.println("    // which no rule matches.");
+        writer.println("    static final byte[] CLASSES = {");
+        for (int c = 0; c < ALPHABET; c += 16) {
+            StringBuilder line = new StringBuilder("            ");
+            for (int i = c; i < c + 16; i++) {
+                line.append(classes[i]).append(i + 1 < c + 16 ? ", " : ",");
+            }
+            writer.println(line);
+        }
+        writer.println("    };");
+        writer.println();
+        writer.println("    // Next state, indexed by state + class, and accepted rule, at state + ACCEPT.");
+        writer.println("    static final short[] TRANSITIONS = {");
+        for (int s = 0; s < states.size(); s++) {
+            StringBuilder line = new StringBuilder("            ");
+            int[] row = transitions.get(s);
+            for (int k = 0; k < classCount; k++) {
+                line.append(row[k] * rowLength).append(", ");
+            }
+            line.append(accepts[s]).append(",");
+            writer.println(line + " // " + s * rowLength + describe(accepts[s], names, actions));
+        }
+        writer.println("    };");
+        writer.println();
+        writer.println("    // Token produced by each rule, or null.");
+        writer.println("    static final TokenType[] TYPES = {");
+        for (int i = 0; i < rules.size(); i++) {
+            String name = names.get(i);
+            writer.println("            " + (name.equals("-") ? "null" : "TokenType." + name) + ",");
+        }
+        writer.println("    };");
+        writer.println();
+        writer.println("    // Action of each rule.");
+        writer.println("    static final byte[] ACTIONS = {");
+        for (int i = 0; i < rules.size(); i++) {
+            String rule = rules.get(i).replaceAll("\\s+", " ");
+            writer.println("            " + actions.get(i).toUpperCase() + ", // " + rule);
+        }
+        writer.println("    };");
+        writer.println();
+        writer.println("    private " + className + "() {");
+        writer.println("    }");
+        writer.println("}");
+        writer.close();
+    }
+
+    /**
+     * Partition the ASCII characters into classes that every character set in
+     * an NFA either wholly contains or wholly excludes. Characters in no set
+     * at all form class 0.
+     * 
+     * @param nfa the NFA
+     * @return the class of each character
+     */
+    private static int[] characterClasses(Nfa nfa) {
+        int[] classes = new int[ALPHABET];
+        Map<BitSet, Integer> bySignature = new HashMap<>();
+        bySignature.put(new BitSet(), 0);
+        for (int c = 0; c < ALPHABET; c++) {
+            // The set of NFA edges the character can take.
+            BitSet signature = new BitSet();
+            for (int n = 0; n < nfa.edges.size(); n++) {
+                BitSet edge = nfa.edges.get(n);
+                if (edge != null && edge.get(c)) {
+                    signature.set(n);
+                }
+            }
+            Integer id = bySignature.get(signature);
+            if (id == null) {
+                id = bySignature.size();
+                bySignature.put(signature, id);
+            }
+            classes[c] = id;
+        }
+        return classes;
+    }
+
+    /**
+     * @return whether every transition in a row leads to the dead state
+     */
+    private static boolean isDeadEnd(int[] row) {
+        for (int next : row) {
+            if (next != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Name the rule a state accepts, for the generated comments.
+     */
+    private static String describe(int rule, List<String> names, List<String> actions) {
+        if (rule < 0) {
+            return "";
+        }
+        String name = names.get(rule);
+        return " accepts " + (name.equals("-") ? actions.get(rule) : name);
+    }
+
+    /**
+     * A Thompson NFA, built up fragment by fragment. Each state has at most
+     * one edge on a set of characters, and any number of epsilon edges.
+     */
+    private static class Nfa {
+        // Characters on each state's edge, or null.
+        final List<BitSet> edges = new ArrayList<>();
+        final List<Integer> targets = new ArrayList<>();
+        final List<List<Integer>> epsilons = new ArrayList<>();
+        // Rule each state accepts, or -1.
+        final List<Integer> accepts = new ArrayList<>();
+
+        int state() {
+            edges.add(null);
+            targets.add(-1);
+            epsilons.add(new ArrayList<>());
+            accepts.add(-1);
+            return edges.size() - 1;
+        }
+
+        void edge(int from, BitSet chars, int to) {
+            edges.set(from, chars);
+            targets.set(from, to);
+        }
+
+        void epsilon(int from, int to) {
+            epsilons.get(from).add(to);
+        }
+
+        /**
+         * @return the states reachable from a set of states by epsilon edges
+         */
+        BitSet closure(BitSet states) {
+            BitSet closure = (BitSet) states.clone();
+            List<Integer> work = new ArrayList<>();
+            for (int n = states.nextSetBit(0); n >= 0; n = states.nextSetBit(n + 1)) {
+                work.add(n);
+            }
+            while (!work.isEmpty()) {
+                int n = work.remove(work.size() - 1);
+                for (int next : epsilons.get(n)) {
+                    if (!closure.get(next)) {
+                        closure.set(next);
+                        work.add(next);
+                    }
+                }
+            }
+            return closure;
+        }
+
+        /**
+         * @return the states a set of states steps to on a character
+         */
+        BitSet move(BitSet states, char c) {
+            BitSet moved = new BitSet();
+            for (int n = states.nextSetBit(0); n >= 0; n = states.nextSetBit(n + 1)) {
+                if (edges.get(n) != null && edges.get(n).get(c)) {
+                    moved.set(targets.get(n));
+                }
+            }
+            return moved;
+        }
+    }
+
+    /**
+     * Parse a rule's pattern into an NFA fragment, by recursive descent:
+     * 
+     * alternation -> sequence ( "|" sequence )*
+     * sequence -> postfix*
+     * postfix -> atom ( "*" | "+" | "?" )*
+     * atom -> 'text' | [set] | "(" alternation ")"
+     * 
+     * Fragments are {start state, end state} pairs.
+     */
+    private static class PatternParser {
+        private final Nfa nfa;
+        private final String pattern;
+        private int current = 0;
+
+        PatternParser(Nfa nfa, String pattern) {
+            this.nfa = nfa;
+            this.pattern = pattern;
+        }
+
+        int[] parse() {
+            int[] fragment = alternation();
+            skipSpaces();
+            if (current < pattern.length()) {
+                throw error("Unexpected '" + pattern.charAt(current) + "'.");
+            }
+            return fragment;
+        }
+
+        private int[] alternation() {
+            int[] fragment = sequence();
+            skipSpaces();
+            while (current < pattern.length() && pattern.charAt(current) == '|') {
+                current++;
+                int[] right = sequence();
+                int start = nfa.state();
+                int end = nfa.state();
+                nfa.epsilon(start, fragment[0]);
+                nfa.epsilon(start, right[0]);
+                nfa.epsilon(fragment[1], end);
+                nfa.epsilon(right[1], end);
+                fragment = new int[] { start, end };
+                skipSpaces();
+            }
+            return fragment;
+        }
+
+        private int[] sequence() {
+            int start = nfa.state();
+            int[] fragment = { start, start };
+            skipSpaces();
+            while (current < pattern.length() && "|)".indexOf(pattern.charAt(current)) < 0) {
+                int[] next = postfix();
+                nfa.epsilon(fragment[1], next[0]);
+                fragment[1] = next[1];
+                skipSpaces();
+            }
+            return fragment;
+        }
+
+        private int[] postfix() {
+            int[] fragment = atom();
+            while (current < pattern.length() && "*+?".indexOf(pattern.charAt(current)) >= 0) {
+                char operator = pattern.charAt(current++);
+                int start = nfa.state();
+                int end = nfa.state();
+                nfa.epsilon(start, fragment[0]);
+                nfa.epsilon(fragment[1], end);
+                if (operator != '+') {
+                    // Zero times.
+                    nfa.epsilon(start, end);
+                }
+                if (operator != '?') {
+                    // Again.
+                    nfa.epsilon(fragment[1], fragment[0]);
+                }
+                fragment = new int[] { start, end };
+            }
+            return fragment;
+        }
+
+        private int[] atom() {
+            char c = pattern.charAt(current++);
+            if (c == '(') {
+                int[] fragment = alternation();
+                expect(')');
+                return fragment;
+            }
+            if (c == '[') {
+                return chars(set());
+            }
+            if (c == '\'') {
+                int start = nfa.state();
+                int end = start;
+                while (current < pattern.length() && pattern.charAt(current) != '\'') {
+                    BitSet chars = new BitSet();
+                    chars.set(character());
+                    int next = nfa.state();
+                    nfa.edge(end, chars, next);
+                    end = next;
+                }
+                expect('\'');
+                return new int[] { start, end };
+            }
+            throw error("Unexpected '" + c + "'.");
+        }
+
+        private BitSet set() {
+            BitSet chars = new BitSet();
+            while (current < pattern.length() && pattern.charAt(current) != ']') {
+                char from = character();
+                char to = from;
+                if (current + 1 < pattern.length() && pattern.charAt(current) == '-'
+                        && pattern.charAt(current + 1) != ']') {
+                    current++;
+                    to = character();
+                }
+                chars.set(from, to + 1);
+            }
+            expect(']');
+            return chars;
+        }
+
+        private int[] chars(BitSet chars) {
+            int start = nfa.state();
+            int end = nfa.state();
+            nfa.edge(start, chars, end);
+            return new int[] { start, end };
+        }
+
+        /**
+         * Read one character of text or of a set, undoing any escape.
+         */
+        private char character() {
+            if (current >= pattern.length()) {
+                throw error("Unterminated text or set.");
+            }
+            char c = pattern.charAt(current++);
+            if (c == '\\' && current < pattern.length()) {
+                c = pattern.charAt(current++);
+                switch (c) {
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                    case 't':
+                        c = '\t';
+                        break;
+                }
+            }
+            if (c >= ALPHABET) {
+                throw error("Only ASCII characters can be matched.");
+            }
+            return c;
+        }
+
+        private void expect(char c) {
+            if (current >= pattern.length() || pattern.charAt(current) != c) {
+                throw error("Expected '" + c + "'.");
+            }
+            current++;
+        }
+
+        private void skipSpaces() {
+            while (current < pattern.length() && pattern.charAt(current) == ' ') {
+                current++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " In pattern: " + pattern.trim());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package jlox.src.com.lox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that AstPrinter's streaming print writes exactly what the original
+ * recursive printer returned, and that it handles trees far too deep for
+ * recursion.
+ */
+class AstPrinterTest {
+    private final AstPrinter printer = new AstPrinter();
+
+    @Test
+    void randomTrees() throws IOException {
+        Random random = new Random(13);
+        for (int i = 0; i < 100_000; i++) {
+            Expr tree = Trees.random(random, ExprFactory.PLAIN, random.nextInt(9));
+            String expected = recursive(tree);
+
+            StringWriter out = new StringWriter();
+            printer.print(tree, out);
+            assertEquals(expected, out.toString());
+            assertEquals(expected, printer.print(tree));
+        }
+    }
+
+    @Test
+    void deepGroupings() throws IOException {
+        int depth = 100_000;
+        Expr tree = new Expr.NumberLiteral(1);
+        for (int i = 0; i < depth; i++) {
+            tree = new Expr.Grouping(tree);
+        }
+
+        String expected = "(group ".repeat(depth) + "1.0" + ")".repeat(depth);
+        StringWriter out = new StringWriter();
+        printer.print(tree, out);
+        assertEquals(expected, out.toString());
+        assertEquals(expected, printer.print(tree));
+    }
+
+    @Test
+    void deepOperators() throws IOException {
+        int depth = 100_000;
+        Expr tree = new Expr.StringLiteral("s");
+        // How each node's printed form starts, innermost first.
+        String[] opens = new String[depth];
+        for (int i = 0; i < depth; i++) {
+            if (i % 2 == 0) {
+                tree = new Expr.Binary(new Expr.NumberLiteral(i), Trees.token(TokenType.PLUS), tree);
+                opens[i] = "(+ " + (double) i + " ";
+            } else {
+                tree = new Expr.Unary(Trees.token(TokenType.BANG), tree);
+                opens[i] = "(! ";
+            }
+        }
+        StringBuilder expected = new StringBuilder();
+        for (int i = depth - 1; i >= 0; i--) {
+            expected.append(opens[i]);
+        }
+        expected.append("s").append(")".repeat(depth));
+
+        StringWriter out = new StringWriter();
+        printer.print(tree, out);
+        assertEquals(expected.toString(), out.toString());
+    }
+
+    /**
+     * Print a tree as AstPrinter did before it streamed: one String per node,
+     * built by recursion.
+     */
+    private static String recursive(Expr expr) {
+        if (expr instanceof Expr.Binary) {
+            Expr.Binary binary = (Expr.Binary) expr;
+            return "(" + binary.operator.lexeme + " " + recursive(binary.left) + " " + recursive(binary.right) + ")";
+        }
+        if (expr instanceof Expr.Grouping) {
+            return "(group " + recursive(((Expr.Grouping) expr).expression) + ")";
+        }
+        if (expr instanceof Expr.Unary) {
+            Expr.Unary unary = (Expr.Unary) expr;
+            return "(" + unary.operator.lexeme + " " + recursive(unary.right) + ")";
+        }
+        Object value = new Interpreter().evaluate(expr);
+        return value == null ? "nil" : value.toString();
+    }
+}
@@ -0,0 +1,189 @@
+package jlox.src.com.lox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that the CompileCache gives back the programs stored in it, and
+ * that an entry from another version, or a truncated or corrupt one, is a
+ * miss rather than an error.
+ */
+class CompileCacheTest {
+    private static final String KEY = "entry";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void hit() throws IOException {
+        CompileCache cache = new CompileCache(directory, CompileCache.DEFAULT_MAX_BYTES);
+        List<Expr> program = program(new Random(16));
+        cache.store(KEY, program);
+
+        assertSamePrograms(program, cache.load(KEY, ExprFactory.PLAIN));
+        // Loading leaves the entry in place, for the next run.
+        assertSamePrograms(program, cache.load(KEY, ExprFactory.hashConsing(ExprFactory.DEFAULT_CAPACITY)));
+        assertNull(cache.load("other", ExprFactory.PLAIN));
+    }
+
+    @Test
+    void parsedProgram() throws IOException {
+        String source = "1 + 2 * -3;\n\"a\" + \"a\" + \"b\";\n!(nil == false) != true;\n\n(4 >= 4.5) == !1;\n";
+        List<Expr> program = new ArrayList<>();
+        Parser parser = new Parser(new Scanner(source));
+        while (parser.hasNext()) {
+            program.add(parser.next());
+        }
+
+        CompileCache cache = new CompileCache(directory, CompileCache.DEFAULT_MAX_BYTES);
+        cache.store(KEY, program);
+        assertSamePrograms(program, cache.load(KEY, ExprFactory.PLAIN));
+    }
+
+    @Test
+    void otherVersions() throws IOException {
+        CompileCache cache = new CompileCache(directory, CompileCache.DEFAULT_MAX_BYTES);
+        List<Expr> program = program(new Random(17));
+        // The magic number, the entry version, then the ExprCodec format.
+        for (int header = 0; header < 12; header += 4) {
+            cache.store(KEY, program);
+            byte[] entry = Files.readAllBytes(entry());
+            entry[header + 3]++;
+            Files.write(entry(), entry);
+
+            assertNull(cache.load(KEY, ExprFactory.PLAIN));
+            assertFalse(Files.exists(entry()));
+        }
+    }
+
+    @Test
+    void truncated() throws IOException {
+        CompileCache cache = new CompileCache(directory, CompileCache.DEFAULT_MAX_BYTES);
+        cache.store(KEY, program(new Random(18)));
+        byte[] entry = Files.readAllBytes(entry());
+        for (int length = 0; length < entry.length; length++) {
+            int truncated = length;
+            Files.write(entry(), Arrays.copyOf(entry, truncated));
+            assertNull(cache.load(KEY, ExprFactory.PLAIN), () -> "truncated to " + truncated);
+            assertFalse(Files.exists(entry()));
+        }
+    }
+
+    @Test
+    void corrupt() throws IOException {
+        CompileCache cache = new CompileCache(directory, CompileCache.DEFAULT_MAX_BYTES);
+        cache.store(KEY, program(new Random(19)));
+        byte[] entry = Files.readAllBytes(entry());
+        Random random = new Random(20);
+        for (int i = 0; i < 20_000; i++) {
+            byte[] corrupted = entry.clone();
+            for (int flips = 1 + random.nextInt(3); flips > 0; flips--) {
+                // Past the header, which otherwise just makes a miss.
+                corrupted[12 + random.nextInt(corrupted.length - 12)] = (byte) random.nextInt(256);
+            }
+            Files.write(entry(), corrupted);
+            // Whatever the entry now decodes to, loading must not throw.
+            cache.load(KEY, ExprFactory.PLAIN);
+        }
+    }
+
+    @Test
+    void hugeSizesAndIndices() throws IOException {
+        CompileCache cache = new CompileCache(directory, CompileCache.DEFAULT_MAX_BYTES);
+        cache.store(KEY, List.of(new Expr.NumberLiteral(1)));
+        byte[] header = Arrays.copyOf(Files.readAllBytes(entry()), 12);
+
+        // A program of Integer.MAX_VALUE expressions.
+        assertMiss(cache, header, varInt(Integer.MAX_VALUE));
+        // An expression of Integer.MAX_VALUE nodes.
+        assertMiss(cache, header, varInt(1), varInt(Integer.MAX_VALUE), new byte[] { 2, 5, 1 });
+        // A negative count.
+        assertMiss(cache, header, varInt(-1));
+        // A string as long as the largest array.
+        assertMiss(cache, header, varInt(1), varInt(1), new byte[] { 3, 0 }, varInt(Integer.MAX_VALUE - 8));
+        // A reference to a string never written.
+        assertMiss(cache, header, varInt(1), varInt(1), new byte[] { 3 }, varInt(7));
+        // An operator of no TokenType, and of a negative one.
+        assertMiss(cache, header, varInt(1), varInt(3), new byte[] { 2, 5, 1, 2, 5, 1, 0 }, varInt(9999));
+        assertMiss(cache, header, varInt(1), varInt(3), new byte[] { 2, 5, 1, 2, 5, 1, 0 }, varInt(-5));
+        // An operator with too few operands.
+        assertMiss(cache, header, varInt(1), varInt(2), new byte[] { 2, 5, 1, 0 },
+                varInt(TokenType.PLUS.ordinal()), new byte[] { 0, 1, 0x2b, 0, 0, 0 });
+
+        // The well-formed version of the last, as a check on the encoding.
+        write(header, varInt(1), varInt(3), new byte[] { 2, 5, 1, 2, 5, 2, 0 },
+                varInt(TokenType.PLUS.ordinal()), new byte[] { 0, 1, 0x2b, 0, 2, 1 });
+        List<Expr> loaded = cache.load(KEY, ExprFactory.PLAIN);
+        assertNotNull(loaded);
+        assertEquals("(+ 1.0 2.0)", new AstPrinter().print(loaded.get(0)));
+    }
+
+    private Path entry() {
+        return directory.resolve(KEY + ".loxc");
+    }
+
+    private void assertMiss(CompileCache cache, byte[]... parts) throws IOException {
+        write(parts);
+        assertNull(cache.load(KEY, ExprFactory.PLAIN));
+        assertFalse(Files.exists(entry()));
+    }
+
+    private void write(byte[]... parts) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part);
+        }
+        Files.write(entry(), out.toByteArray());
+    }
+
+    private static byte[] varInt(int value) {
+        ByteBuffer buffer = ByteBuffer.allocate(5);
+        while ((value & ~0x7f) != 0) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    private static List<Expr> program(Random random) {
+        List<Expr> program = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            program.add(Trees.random(random, ExprFactory.PLAIN, random.nextInt(6)));
+        }
+        return program;
+    }
+
+    /**
+     * Check two programs print alike, and run alike down to where their
+     * runtime errors happen.
+     */
+    private static void assertSamePrograms(List<Expr> expected, List<Expr> actual) {
+        assertNotNull(actual);
+        assertEquals(expected.size(), actual.size());
+        AstPrinter printer = new AstPrinter();
+        Interpreter interpreter = new Interpreter();
+        for (int i = 0; i < expected.size(); i++) {
+            Expr original = expected.get(i);
+            Expr loaded = actual.get(i);
+            assertEquals(printer.print(original), printer.print(loaded));
+            assertEquals(Trees.run(() -> interpreter.evaluate(original)).toString(),
+                    Trees.run(() -> interpreter.evaluate(loaded)).toString());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package jlox.src.com.lox;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the self-specializing EvalNode tree evaluates exactly as the
+ * tree-walking Interpreter does, values and runtime errors alike, both when
+ * it first specializes and once it has.
+ */
+class EvalNodeTest {
+    private final Interpreter reference = new Interpreter(Interpreter.Mode.TREE);
+    // Which of its values every Switch produces.
+    private int run = 0;
+
+    @Test
+    void randomTrees() {
+        Random random = new Random(9);
+        Interpreter nodes = new Interpreter(Interpreter.Mode.NODES);
+        for (int i = 0; i < 200_000; i++) {
+            Expr tree = Trees.random(random, ExprFactory.PLAIN, 1 + random.nextInt(7));
+            Trees.Outcome expected = Trees.run(() -> reference.evaluate(tree));
+
+            // Once to specialize, then on the specialized tree it keeps.
+            Trees.assertSameOutcome(expected, Trees.run(() -> nodes.execute(tree)), tree);
+            Trees.assertSameOutcome(expected, Trees.run(() -> nodes.execute(tree)), tree);
+        }
+    }
+
+    @Test
+    void operandTypesChangeAfterSpecializing() {
+        Random random = new Random(10);
+        for (int i = 0; i < 50_000; i++) {
+            Expr first = Trees.random(random, ExprFactory.PLAIN, 1 + random.nextInt(6));
+            Expr second = retype(random, first);
+            EvalNode.Root root = new EvalNode.Root(build(first, second));
+
+            Trees.Outcome firstOutcome = Trees.run(() -> reference.evaluate(first));
+            Trees.Outcome secondOutcome = Trees.run(() -> reference.evaluate(second));
+            for (int pass = 0; pass < 2; pass++) {
+                run = 0;
+                Trees.assertSameOutcome(firstOutcome, Trees.run(root::execute), first);
+                Trees.assertSameOutcome(firstOutcome, Trees.run(root::execute), first);
+                // Some operands now have other types, so nodes generalize.
+                run = 1;
+                Trees.assertSameOutcome(secondOutcome, Trees.run(root::execute), second);
+                Trees.assertSameOutcome(secondOutcome, Trees.run(root::execute), second);
+            }
+        }
+    }
+
+    /**
+     * Copy a tree, swapping some of its literals for literals of any type.
+     * The operators, and their Tokens, stay the same.
+     */
+    private static Expr retype(Random random, Expr tree) {
+        if (tree instanceof Expr.Binary) {
+            Expr.Binary binary = (Expr.Binary) tree;
+            return new Expr.Binary(retype(random, binary.left), binary.operator, retype(random, binary.right));
+        }
+        if (tree instanceof Expr.Grouping) {
+            return new Expr.Grouping(retype(random, ((Expr.Grouping) tree).expression));
+        }
+        if (tree instanceof Expr.Unary) {
+            Expr.Unary unary = (Expr.Unary) tree;
+            return new Expr.Unary(unary.operator, retype(random, unary.right));
+        }
+        return random.nextInt(3) == 0 ? Trees.random(random, ExprFactory.PLAIN, 0) : tree;
+    }
+
+    /**
+     * Build the uninitialized EvalNodes for two trees of the same shape, as
+     * EvalNode.build() would for one. Where their literals differ, a Switch
+     * produces one or the other depending on the run.
+     */
+    private EvalNode build(Expr first, Expr second) {
+        if (first instanceof Expr.Binary) {
+            Expr.Binary a = (Expr.Binary) first;
+            Expr.Binary b = (Expr.Binary) second;
+            return new EvalNode.UninitializedBinary(a.operator, build(a.left, b.left), build(a.right, b.right));
+        }
+        if (first instanceof Expr.Grouping) {
+            return build(((Expr.Grouping) first).expression, ((Expr.Grouping) second).expression);
+        }
+        if (first instanceof Expr.Unary) {
+            Expr.Unary a = (Expr.Unary) first;
+            return new EvalNode.UninitializedUnary(a.operator, build(a.right, ((Expr.Unary) second).right));
+        }
+        if (first != second) {
+            return new Switch(reference.evaluate(first), reference.evaluate(second));
+        }
+        if (first instanceof Expr.NumberLiteral) {
+            return new EvalNode.NumberLiteral(((Expr.NumberLiteral) first).value);
+        }
+        return new EvalNode.ObjectLiteral(reference.evaluate(first));
+    }
+
+    /**
+     * A leaf whose value, and so perhaps type, changes between runs.
+     */
+    private final class Switch extends EvalNode {
+        private final Object[] values;
+
+        Switch(Object... values) {
+            this.values = values;
+        }
+
+        @Override
+        Object execute() {
+            return values[run];
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package jlox.src.com.lox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that copying trees into an ExprArena and back gives the trees that
+ * went in.
+ */
+class ExprArenaTest {
+    private final AstPrinter printer = new AstPrinter();
+    private final Interpreter interpreter = new Interpreter(Interpreter.Mode.TREE);
+
+    @Test
+    void plainTrees() {
+        assertRoundTrips(new Random(12), ExprFactory.PLAIN);
+    }
+
+    @Test
+    void hashConsedTrees() {
+        // Shared subtrees are copied once per parent.
+        assertRoundTrips(new Random(112), ExprFactory.hashConsing(ExprFactory.DEFAULT_CAPACITY));
+    }
+
+    @Test
+    void deepTree() {
+        ExprFactory factory = ExprFactory.PLAIN;
+        Expr tree = factory.numberLiteral(1);
+        for (int i = 0; i < 100_000; i++) {
+            tree = i % 3 == 0
+                    ? factory.unary(Trees.token(TokenType.MINUS), tree)
+                    : factory.grouping(tree);
+        }
+
+        ExprArena arena = new ExprArena();
+        int root = arena.add(tree);
+        assertEquals(100_001, arena.size());
+        assertEquals(printer.print(tree), printer.print(arena.toExpr(root, factory)));
+    }
+
+    /**
+     * Add many random trees to one arena, then rebuild each, checking it
+     * prints and evaluates as the original did.
+     */
+    private void assertRoundTrips(Random random, ExprFactory factory) {
+        for (int round = 0; round < 100; round++) {
+            ExprArena arena = new ExprArena();
+            List<Expr> trees = new ArrayList<>();
+            List<Integer> roots = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                Expr tree = Trees.random(random, factory, random.nextInt(8));
+                trees.add(tree);
+                roots.add(arena.add(tree));
+            }
+
+            for (int i = 0; i < trees.size(); i++) {
+                Expr tree = trees.get(i);
+                Expr copy = arena.toExpr(roots.get(i), random.nextBoolean() ? factory : ExprFactory.PLAIN);
+                assertEquals(printer.print(tree), printer.print(copy));
+                Trees.assertSameOutcome(Trees.run(() -> interpreter.evaluate(tree)),
+                        Trees.run(() -> interpreter.evaluate(copy)), tree);
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package jlox.src.com.lox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks which nodes the factories share.
+ */
+class ExprFactoryTest {
+    @Test
+    void booleansAndNilAreSingletons() {
+        for (ExprFactory factory : new ExprFactory[] { ExprFactory.PLAIN, ExprFactory.hashConsing(16) }) {
+            assertSame(Expr.BoolLiteral.TRUE, factory.boolLiteral(true));
+            assertSame(Expr.BoolLiteral.FALSE, factory.boolLiteral(false));
+            assertSame(Expr.NilLiteral.INSTANCE, factory.nilLiteral());
+        }
+        assertEquals(true, Expr.BoolLiteral.TRUE.value);
+        assertEquals(false, Expr.BoolLiteral.FALSE.value);
+    }
+
+    @Test
+    void hashConsingSharesOnlyTokenFreeNodes() {
+        ExprFactory factory = ExprFactory.hashConsing(ExprFactory.DEFAULT_CAPACITY);
+        Expr one = factory.numberLiteral(1);
+        assertSame(one, factory.numberLiteral(1));
+        assertNotSame(factory.numberLiteral(0.0), factory.numberLiteral(-0.0));
+        assertSame(factory.stringLiteral("a"), factory.stringLiteral("a"));
+        assertSame(factory.grouping(one), factory.grouping(one));
+
+        Token plus = Trees.token(TokenType.PLUS);
+        assertNotSame(factory.binary(one, plus, one), factory.binary(one, plus, one));
+        assertNotSame(factory.unary(plus, one), factory.unary(plus, one));
+
+        assertNotSame(ExprFactory.PLAIN.numberLiteral(1), ExprFactory.PLAIN.numberLiteral(1));
+    }
+}
@@ -0,0 +1,139 @@
+package jlox.src.com.lox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Random lox sources for differential tests of the scanners, and the means
+ * to compare what they produce.
+ */
+final class Fuzz {
+    private static final String[] KEYWORDS = {
+            "and", "class", "else", "false", "for", "fun", "if", "nil", "or", "print", "return", "super", "this",
+            "true", "var", "while",
+    };
+    private static final String OPERATORS = "(){},.-+;*!=<>/";
+    // Characters no lexeme starts with, ASCII and not.
+    private static final String STRAY = "@#$%^&|~?:[]\\'`\u0000\u00e9\u00a0\u4e16\ud83d\ude00";
+    private static final String[] PIECES = {
+            " ", "  ", "\t", "\n", "\r\n", "\n\n", "1", "1.", "1.a", "1.5", ".5", "123.456", "007", "x", "_",
+            "abc", "A1_b2", "//", "// comment\n", "//x", "\"\"", "\"str\"", "\"a\nb\"", "\"\r\n\"",
+    };
+
+    private Fuzz() {
+    }
+
+    /**
+     * Build a source out of random pieces: keywords and their prefixes and
+     * extensions, number forms such as "1." and "1.a", every operator pair,
+     * strings and comments spanning lines, CRLFs, and stray ASCII and
+     * non-ASCII characters.
+     * 
+     * @param random where to draw the pieces from
+     * @param pieces how many pieces to join
+     * @return lox source code, possibly with lexical errors
+     */
+    static String source(Random random, int pieces) {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < pieces; i++) {
+            switch (random.nextInt(8)) {
+                case 0:
+                    String keyword = KEYWORDS[random.nextInt(KEYWORDS.length)];
+                    int cut = random.nextInt(keyword.length() + 1);
+                    source.append(keyword, 0, random.nextBoolean() ? keyword.length() : cut);
+                    if (random.nextInt(4) == 0) {
+                        source.append(random.nextBoolean() ? "_" : "s9");
+                    }
+                    break;
+                case 1:
+                    source.append(OPERATORS.charAt(random.nextInt(OPERATORS.length())));
+                    source.append(OPERATORS.charAt(random.nextInt(OPERATORS.length())));
+                    break;
+                case 2:
+                    source.append(STRAY.charAt(random.nextInt(STRAY.length())));
+                    break;
+                case 3:
+                    source.append(random.nextInt(100_000));
+                    if (random.nextBoolean()) {
+                        source.append('.').append(random.nextInt(1000));
+                    }
+                    break;
+                default:
+                    source.append(PIECES[random.nextInt(PIECES.length)]);
+                    break;
+            }
+            if (random.nextInt(3) == 0) {
+                source.append(random.nextInt(5) == 0 ? '\n' : ' ');
+            }
+        }
+        if (random.nextInt(10) == 0) {
+            // A string left open at the end of the source.
+            source.append("\"open\nto the end");
+        }
+        return source.toString();
+    }
+
+    /**
+     * Describe everything about a Token the scanners promise to agree on.
+     * 
+     * @param token a scanned Token
+     * @return its type, position, lexeme, literal and symbol
+     */
+    static String describe(Token token) {
+        return token.type + " " + token.line + ":" + token.column + " " + token.lexeme + " " + token.literal + " "
+                + token.symbol;
+    }
+
+    /**
+     * Check that two scans of the same source produced the same Tokens.
+     * 
+     * @param expected the Tokens of the reference scan
+     * @param actual   the Tokens of the scan under test
+     * @param source   the source both scanned, to show on failure
+     */
+    static void assertSameTokens(List<Token> expected, List<Token> actual, String source) {
+        assertEquals(describeAll(expected), describeAll(actual), () -> "Tokens of " + quote(source));
+    }
+
+    /**
+     * Create a run whose diagnostics are kept, with no limit on them.
+     * 
+     * @param err where to keep the diagnostics
+     * @return a fresh context for one scan
+     */
+    static RunContext capture(ByteArrayOutputStream err) {
+        return new RunContext(new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8),
+                new PrintStream(err, true, StandardCharsets.UTF_8), 0);
+    }
+
+    private static List<String> describeAll(List<Token> tokens) {
+        List<String> described = new ArrayList<>();
+        for (Token token : tokens) {
+            described.add(describe(token));
+        }
+        return described;
+    }
+
+    private static String quote(String source) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (c == '\n') {
+                quoted.append("\\n");
+            } else if (c == '\r') {
+                quoted.append("\\r");
+            } else if (c < ' ' || c > '~') {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
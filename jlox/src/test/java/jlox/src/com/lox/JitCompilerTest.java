@@ -0,0 +1,61 @@
+package jlox.src.com.lox;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that trees compiled to JVM bytecode evaluate exactly as the
+ * tree-walking Interpreter does, values and runtime errors alike, whether
+ * compiled on their first run or after running on EvalNodes.
+ */
+class JitCompilerTest {
+    private final Interpreter reference = new Interpreter(Interpreter.Mode.TREE);
+
+    @Test
+    void compiledOnFirstRun() {
+        Random random = new Random(24);
+        JitCompiler jit = new JitCompiler(0);
+        for (int i = 0; i < 20_000; i++) {
+            Expr tree = Trees.random(random, ExprFactory.PLAIN, 1 + random.nextInt(7));
+            Trees.Outcome expected = Trees.run(() -> reference.evaluate(tree));
+            Trees.assertSameOutcome(expected, Trees.run(() -> jit.execute(tree)), tree);
+            Trees.assertSameOutcome(expected, Trees.run(() -> jit.execute(tree)), tree);
+        }
+    }
+
+    @Test
+    void compiledAfterRunningOnNodes() {
+        Random random = new Random(25);
+        Interpreter interpreter = new Interpreter(Interpreter.Mode.JIT, 2);
+        for (int i = 0; i < 5_000; i++) {
+            Expr tree = Trees.random(random, ExprFactory.PLAIN, 1 + random.nextInt(7));
+            Trees.Outcome expected = Trees.run(() -> reference.evaluate(tree));
+            // Twice on EvalNodes, then compiled.
+            for (int run = 0; run < 4; run++) {
+                Trees.assertSameOutcome(expected, Trees.run(() -> interpreter.execute(tree)), tree);
+            }
+        }
+    }
+
+    @Test
+    void largeTrees() {
+        Random random = new Random(26);
+        TokenType[] operators = { TokenType.PLUS, TokenType.MINUS, TokenType.STAR, TokenType.EQUAL_EQUAL };
+        for (int i = 0; i < 50; i++) {
+            // Deep and long enough that the code is split across methods.
+            Expr tree = Trees.random(random, ExprFactory.PLAIN, 3);
+            for (int level = 0; level < 400; level++) {
+                Token operator = Trees.token(operators[random.nextInt(operators.length)]);
+                tree = new Expr.Binary(Trees.random(random, ExprFactory.PLAIN, 2), operator, tree);
+            }
+            Expr large = tree;
+
+            JitCompiler.Compiled compiled = JitCompiler.compile(large);
+            assertNotNull(compiled);
+            Trees.assertSameOutcome(Trees.run(() -> reference.evaluate(large)), Trees.run(compiled::execute), large);
+        }
+    }
+}
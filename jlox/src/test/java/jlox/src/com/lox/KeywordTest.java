@@ -0,0 +1,132 @@
+package jlox.src.com.lox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that words are classified exactly as the original keyword HashMap
+ * did: both by the allocation-free keyword trie that replaced it (kept in
+ * ReferenceScanner), and by the Scanner, whose lexer DFA now recognises
+ * keywords itself.
+ */
+class KeywordTest {
+    // The keyword table the Scanner used to look every identifier up in.
+    private static final Map<String, TokenType> KEYWORDS = new HashMap<>();
+
+    static {
+        KEYWORDS.put("and", TokenType.AND);
+        KEYWORDS.put("class", TokenType.CLASS);
+        KEYWORDS.put("else", TokenType.ELSE);
+        KEYWORDS.put("false", TokenType.FALSE);
+        KEYWORDS.put("for", TokenType.FOR);
+        KEYWORDS.put("fun", TokenType.FUN);
+        KEYWORDS.put("if", TokenType.IF);
+        KEYWORDS.put("nil", TokenType.NIL);
+        KEYWORDS.put("or", TokenType.OR);
+        KEYWORDS.put("print", TokenType.PRINT);
+        KEYWORDS.put("return", TokenType.RETURN);
+        KEYWORDS.put("super", TokenType.SUPER);
+        KEYWORDS.put("this", TokenType.THIS);
+        KEYWORDS.put("true", TokenType.TRUE);
+        KEYWORDS.put("var", TokenType.VAR);
+        KEYWORDS.put("while", TokenType.WHILE);
+    }
+
+    // The letters of the keywords, plus a few that start or continue none.
+    private static final String ALPHABET = "acdefhilnoprstuvwxAZ_9";
+
+    @Test
+    void shortWords() {
+        List<String> words = new ArrayList<>();
+        words(new StringBuilder(), 4, words);
+        for (String word : words) {
+            assertClassified(word);
+        }
+    }
+
+    @Test
+    void nearKeywords() {
+        for (String keyword : KEYWORDS.keySet()) {
+            assertClassified(keyword);
+            assertClassified(keyword + "x");
+            assertClassified(keyword + "_");
+            assertClassified(keyword + "1");
+            assertClassified("_" + keyword);
+            assertClassified(keyword.toUpperCase());
+            for (int length = 1; length < keyword.length(); length++) {
+                assertClassified(keyword.substring(0, length));
+                assertClassified(keyword.substring(length));
+            }
+            for (int i = 0; i < keyword.length(); i++) {
+                for (char c : ALPHABET.toCharArray()) {
+                    char[] changed = keyword.toCharArray();
+                    changed[i] = c;
+                    assertClassified(new String(changed));
+                }
+            }
+        }
+    }
+
+    @Test
+    void keywordsInContext() {
+        StringBuilder source = new StringBuilder();
+        List<String> words = new ArrayList<>();
+        for (String keyword : KEYWORDS.keySet()) {
+            words.add(keyword);
+            words.add(keyword + "s");
+        }
+        for (String word : words) {
+            source.append(word).append("(").append(word).append(");").append(word).append("\n");
+        }
+
+        List<Token> tokens = new Scanner(source.toString()).scanTokens();
+        int i = 0;
+        for (String word : words) {
+            TokenType expected = KEYWORDS.getOrDefault(word, TokenType.IDENTIFIER);
+            assertEquals(expected, tokens.get(i).type, word);
+            assertEquals(expected, tokens.get(i + 2).type, word);
+            assertEquals(expected, tokens.get(i + 5).type, word);
+            i += 6;
+        }
+        assertEquals(TokenType.EOF, tokens.get(i).type);
+    }
+
+    /**
+     * Collect every word over ALPHABET of up to depth characters that would
+     * scan as a single identifier or keyword.
+     */
+    private static void words(StringBuilder prefix, int depth, List<String> out) {
+        if (prefix.length() > 0 && !Character.isDigit(prefix.charAt(0))) {
+            out.add(prefix.toString());
+        }
+        if (depth == 0) {
+            return;
+        }
+        for (char c : ALPHABET.toCharArray()) {
+            prefix.append(c);
+            words(prefix, depth - 1, out);
+            prefix.setLength(prefix.length() - 1);
+        }
+    }
+
+    private static void assertClassified(String word) {
+        if (word.isEmpty() || Character.isDigit(word.charAt(0))) {
+            return;
+        }
+        TokenType expected = KEYWORDS.getOrDefault(word, TokenType.IDENTIFIER);
+        // The trie reads the word in place, between other characters.
+        char[] chars = ("k" + word + "e").toCharArray();
+        assertEquals(expected, ReferenceScanner.keyword(chars, 1, word.length()), word);
+
+        List<Token> tokens = new Scanner(word).scanTokens();
+        assertEquals(2, tokens.size(), word);
+        assertEquals(expected, tokens.get(0).type, word);
+        assertEquals(word, tokens.get(0).lexeme);
+    }
+}
@@ -0,0 +1,81 @@
+package jlox.src.com.lox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that ParallelScanner produces exactly the Tokens and diagnostics of
+ * the sequential Scanner, however the source is split into chunks.
+ */
+class ParallelScannerTest {
+    private static final int[] CHUNK_SIZES = { 1, 2, 7, 64, 1000, 1 << 16 };
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void fuzzedSources() {
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            assertSameAsSequential(Fuzz.source(random, 1 + random.nextInt(3000)));
+        }
+    }
+
+    @Test
+    void stringsAcrossChunks() {
+        String lines = "a\nbb\nccc\n".repeat(50);
+        assertSameAsSequential("print \"" + lines + "\";\nx = 1;\n");
+        assertSameAsSequential("\"" + lines + "\"\"" + lines + "\" y\n");
+        assertSameAsSequential("one;\n  \"" + lines + "  @ \"\n@\n");
+        // Left open to the end of the source, from the first chunk or later.
+        assertSameAsSequential("\"" + lines);
+        assertSameAsSequential(lines + "  \"" + lines + "end");
+        assertSameAsSequential(lines + "\"\n");
+    }
+
+    @Test
+    void edgeShapes() {
+        assertSameAsSequential("");
+        assertSameAsSequential("\n");
+        assertSameAsSequential("no newline at all, just one long line of tokens + 1 * 2.5");
+        assertSameAsSequential("x\r\ny\r\n\r\n  z");
+        assertSameAsSequential("// only a comment");
+        assertSameAsSequential("@@@\n@@@\n\t@\n");
+        assertSameAsSequential("1.\n1.a\n.5\n12345678901234567890.123456789012345678901234\n");
+    }
+
+    /**
+     * Scan a source sequentially and then in parallel at every chunk size,
+     * checking the Tokens (down to their columns) and diagnostics agree.
+     */
+    private static void assertSameAsSequential(String source) {
+        ByteArrayOutputStream expectedErrors = new ByteArrayOutputStream();
+        List<Token> expected = new Scanner(source, Fuzz.capture(expectedErrors)).scanTokens();
+
+        for (int chunkSize : CHUNK_SIZES) {
+            ByteArrayOutputStream errors = new ByteArrayOutputStream();
+            List<Token> tokens = new ParallelScanner(source, pool, chunkSize, Fuzz.capture(errors)).scanTokens();
+            Fuzz.assertSameTokens(expected, tokens, source);
+            assertEquals(expectedErrors.toString(StandardCharsets.UTF_8), errors.toString(StandardCharsets.UTF_8),
+                    "Diagnostics with chunks of " + chunkSize);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package jlox.src.com.lox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that Scanner.parseNumber gives bit for bit the double that
+ * Double.parseDouble does, on both sides of each of its fast paths.
+ */
+class ParseNumberTest {
+    private static final long SEED = 0x5ca9;
+
+    @Test
+    void aroundTwoToThe53() {
+        BigInteger limit = BigInteger.ONE.shiftLeft(53);
+        for (int delta = -50; delta <= 50; delta++) {
+            String digits = limit.add(BigInteger.valueOf(delta)).toString();
+            assertParsed(digits);
+            // The same digits with the point moved along them.
+            for (int point = 1; point < digits.length(); point++) {
+                assertParsed(digits.substring(0, point) + "." + digits.substring(point));
+            }
+            assertParsed(digits + ".5");
+            assertParsed(digits + ".0");
+        }
+    }
+
+    @Test
+    void aroundLongMaxValue() {
+        BigInteger max = BigInteger.valueOf(Long.MAX_VALUE);
+        for (int delta = -50; delta <= 50; delta++) {
+            String digits = max.add(BigInteger.valueOf(delta)).toString();
+            assertParsed(digits);
+            assertParsed(digits + "0");
+            assertParsed(digits.substring(0, 1) + "." + digits.substring(1));
+            assertParsed(digits.substring(0, 10) + "." + digits.substring(10));
+            assertParsed("0." + digits);
+        }
+        // Where the overflow check stops accumulating.
+        String guard = Long.toString((Long.MAX_VALUE - 9) / 10);
+        for (int last = 0; last <= 9; last++) {
+            assertParsed(guard + last);
+            assertParsed(guard + "." + last);
+            assertParsed("1" + guard + last);
+        }
+    }
+
+    @Test
+    void twentyTwoAndTwentyThreeFractionDigits() {
+        Random random = new Random(SEED);
+        for (int fractionDigits = 21; fractionDigits <= 24; fractionDigits++) {
+            assertParsed("0." + "0".repeat(fractionDigits - 1) + "1");
+            assertParsed("1." + "0".repeat(fractionDigits));
+            assertParsed("0." + "9".repeat(fractionDigits));
+            for (int i = 0; i < 2000; i++) {
+                String whole = random.nextBoolean() ? "0" : digits(random, 1 + random.nextInt(6));
+                assertParsed(whole + "." + digits(random, fractionDigits));
+            }
+        }
+    }
+
+    @Test
+    void longDigitStrings() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < 500; i++) {
+            int length = 20 + random.nextInt(800);
+            String digits = digits(random, length);
+            assertParsed(digits);
+            int point = 1 + random.nextInt(length - 1);
+            assertParsed(digits.substring(0, point) + "." + digits.substring(point));
+            assertParsed("0." + digits);
+        }
+        // Past the largest double, and below the smallest.
+        assertParsed("1" + "0".repeat(400));
+        assertParsed("0." + "0".repeat(400) + "1");
+        // Halfway between two doubles, then just either side of it.
+        String halfway = new BigDecimal(1.0).add(new BigDecimal(Math.ulp(1.0) / 2)).toPlainString();
+        assertParsed(halfway);
+        assertParsed(halfway + "0000000000000000000001");
+        assertParsed(halfway.substring(0, halfway.length() - 1) + "4" + "9".repeat(30));
+    }
+
+    @Test
+    void randomLiterals() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < 100_000; i++) {
+            String whole = digits(random, 1 + random.nextInt(19));
+            if (random.nextBoolean()) {
+                assertParsed(whole);
+            } else {
+                assertParsed(whole + "." + digits(random, 1 + random.nextInt(25)));
+            }
+        }
+    }
+
+    @Test
+    void literalInsideLargerSource() {
+        char[] source = "1+12.375;9007199254740993.5 ".toCharArray();
+        assertEquals(1.0, Scanner.parseNumber(source, 0, 1));
+        assertEquals(12.375, Scanner.parseNumber(source, 2, 6));
+        assertEquals(Double.parseDouble("9007199254740993.5"), Scanner.parseNumber(source, 9, 18));
+    }
+
+    private static String digits(Random random, int count) {
+        StringBuilder digits = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            digits.append((char) ('0' + random.nextInt(10)));
+        }
+        return digits.toString();
+    }
+
+    private static void assertParsed(String literal) {
+        double expected = Double.parseDouble(literal);
+        double actual = Scanner.parseNumber(literal.toCharArray(), 0, literal.length());
+        assertEquals(Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(actual), literal);
+    }
+}
@@ -0,0 +1,42 @@
+package jlox.src.com.lox;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the rewriting passes preserve meaning: a rewritten tree
+ * evaluates to the same value as the original, or fails with the same
+ * RuntimeError at the same Token.
+ */
+class PassManagerTest {
+    private final Interpreter interpreter = new Interpreter(Interpreter.Mode.TREE);
+
+    @Test
+    void plainNodes() {
+        assertPassesPreserveMeaning(new Random(11), ExprFactory.PLAIN);
+    }
+
+    @Test
+    void hashConsedNodes() {
+        assertPassesPreserveMeaning(new Random(111), ExprFactory.hashConsing(ExprFactory.DEFAULT_CAPACITY));
+    }
+
+    private void assertPassesPreserveMeaning(Random random, ExprFactory factory) {
+        PassManager pipeline = new PassManager(true, factory);
+        ExprRewriter[] passes = {
+                new GroupingEliminator(factory), new ConstantFolder(factory), new UnarySimplifier(factory),
+        };
+        for (int i = 0; i < 100_000; i++) {
+            Expr tree = Trees.random(random, factory, 1 + random.nextInt(7));
+            Trees.Outcome expected = Trees.run(() -> interpreter.evaluate(tree));
+
+            Expr rewritten = pipeline.run(tree);
+            Trees.assertSameOutcome(expected, Trees.run(() -> interpreter.evaluate(rewritten)), tree);
+            // Each pass on its own, as it would see trees no other pass has.
+            ExprRewriter pass = passes[i % passes.length];
+            Expr alone = pass.rewrite(tree);
+            Trees.assertSameOutcome(expected, Trees.run(() -> interpreter.evaluate(alone)), tree);
+        }
+    }
+}
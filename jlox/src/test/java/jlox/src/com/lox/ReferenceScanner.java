@@ -0,0 +1,617 @@
+package jlox.src.com.lox;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The Scanner as it was before its lexemes were recognised by the generated
+ * lexer DFA: a hand-written switch on each lexeme's first character, with
+ * keywords classified by a hand-written trie. It is kept as the oracle the
+ * DFA-driven Scanner is tested against, so it only scans whole strings and
+ * Readers, and parses numbers with Double.parseDouble.
+ */
+class ReferenceScanner implements Iterator<Token> {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final RunContext context;
+    private final SymbolTable symbols;
+    private char[] buffer;
+    // Number of valid characters in buffer.
+    private int limit;
+    private int start = 0;
+    private int current = 0;
+    private int line = 1;
+    // Offset in buffer of the current line's first character. It goes
+    // negative once that character has been slid out of the buffer.
+    private int lineStart = 0;
+    // Column of the lexeme being scanned.
+    private int startColumn = 1;
+    private boolean reachedEof = false;
+    // Value of the most recently scanned NUMBER Token.
+    private double number = 0;
+
+    /**
+     * Scan lox source code, reporting errors to a particular run.
+     * 
+     * @param source  valid lox source code
+     * @param context the run to report errors to
+     */
+    ReferenceScanner(String source, RunContext context) {
+        this.reader = null;
+        this.context = context;
+        this.symbols = new SymbolTable();
+        this.buffer = source.toCharArray();
+        this.limit = buffer.length;
+    }
+
+    /**
+     * Scan lox source code lazily from a character stream, reporting errors
+     * to a particular run.
+     * 
+     * @param reader  a stream of valid lox source code
+     * @param context the run to report errors to
+     */
+    ReferenceScanner(Reader reader, RunContext context) {
+        this.reader = reader;
+        this.context = context;
+        this.symbols = new SymbolTable();
+        this.buffer = new char[BUFFER_SIZE];
+        this.limit = 0;
+    }
+
+    /**
+     * Convert the source code into a machine-readable list of Tokens.
+     * 
+     * @return a machine-readable representation of the source
+     */
+    List<Token> scanTokens() {
+        List<Token> tokens = new ArrayList<>();
+        while (hasNext()) {
+            tokens.add(nextToken());
+        }
+        context.flush();
+        return tokens;
+    }
+
+    /**
+     * Check whether there are Tokens left to scan, including the final EOF.
+     * 
+     * @return if nextToken() will produce a Token not yet seen
+     */
+    @Override
+    public boolean hasNext() {
+        return !reachedEof;
+    }
+
+    @Override
+    public Token next() {
+        return nextToken();
+    }
+
+    /**
+     * Scan and return the next Token. Once the source is exhausted, every
+     * further call returns an EOF Token.
+     * 
+     * @return the next Token in the source
+     */
+    Token nextToken() {
+        TokenType type = scanNext();
+        if (type == TokenType.EOF) {
+            reachedEof = true;
+            return new Token(TokenType.EOF, "", null, line, startColumn, Token.NO_SYMBOL);
+        }
+        return makeToken(type);
+    }
+
+    /**
+     * Advance past the next lexeme that produces a Token, leaving start and
+     * current around it.
+     * 
+     * @return the type of the Token scanned
+     */
+    private TokenType scanNext() {
+        while (!isAtEnd()) {
+            // We are at the beginning of the next lexeme.
+            start = current;
+            startColumn = start - lineStart + 1;
+            TokenType type = scanToken();
+            if (type != null) {
+                return type;
+            }
+        }
+
+        start = current;
+        startColumn = start - lineStart + 1;
+        return TokenType.EOF;
+    }
+
+    /**
+     * Check whether we have reached the end of the source code.
+     * 
+     * @return if we have reached the end of the source code
+     */
+    private boolean isAtEnd() {
+        return !ensure(1);
+    }
+
+    /**
+     * Make sure at least n characters from current onwards are buffered,
+     * reading more from the underlying stream if needed.
+     * 
+     * @param n the number of characters needed
+     * @return if n characters are available
+     */
+    private boolean ensure(int n) {
+        while (current + n > limit) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read more characters into buffer, discarding everything before the
+     * start of the current lexeme.
+     * 
+     * @return if any characters were read
+     */
+    private boolean fill() {
+        if (reader == null) {
+            return false;
+        }
+
+        if (start > 0) {
+            // Slide the current lexeme to the front of the buffer.
+            System.arraycopy(buffer, start, buffer, 0, limit - start);
+            limit -= start;
+            current -= start;
+            lineStart -= start;
+            start = 0;
+        }
+
+        try {
+            int read;
+            do {
+                if (buffer.length - limit < 2) {
+                    // A single lexeme fills the whole buffer, so grow it.
+                    // Keep room for a surrogate pair, which cannot be split.
+                    char[] grown = new char[buffer.length * 2];
+                    System.arraycopy(buffer, 0, grown, 0, limit);
+                    buffer = grown;
+                }
+                read = reader.read(buffer, limit, buffer.length - limit);
+            } while (read == 0);
+
+            if (read < 0) {
+                return false;
+            }
+            limit += read;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Scan the next lexeme.
+     * 
+     * @return the type of the Token scanned, or null if the lexeme produces
+     *         no Token (whitespace, comments and errors)
+     */
+    private TokenType scanToken() {
+        char c = advance();
+        switch (c) {
+            case '(':
+                return TokenType.LEFT_PAREN;
+            case ')':
+                return TokenType.RIGHT_PAREN;
+            case '{':
+                return TokenType.LEFT_BRACE;
+            case '}':
+                return TokenType.RIGHT_BRACE;
+            case ',':
+                return TokenType.COMMA;
+            case '.':
+                return TokenType.DOT;
+            case '-':
+                return TokenType.MINUS;
+            case '+':
+                return TokenType.PLUS;
+            case ';':
+                return TokenType.SEMICOLON;
+            case '*':
+                return TokenType.STAR;
+
+            case '!':
+                return match('=') ? TokenType.BANG_EQUAL : TokenType.BANG;
+            case '=':
+                return match('=') ? TokenType.EQUAL_EQUAL : TokenType.EQUAL;
+            case '<':
+                return match('=') ? TokenType.LESS_EQUAL : TokenType.LESS;
+            case '>':
+                return match('=') ? TokenType.GREATER_EQUAL : TokenType.GREATER;
+            case '/':
+                if (match('/')) {
+                    // A comment goes until the end of the line.
+                    skipLineComment();
+                    return null;
+                }
+                return TokenType.SLASH;
+
+            case ' ':
+            case '\r':
+            case '\t':
+                // Ignore whitespace.
+                skipWhitespace();
+                return null;
+
+            case '\n':
+                line++;
+                lineStart = current;
+                skipWhitespace();
+                return null;
+
+            case '"':
+                return string();
+
+            default:
+                // This avoids explicitly enumerating cases for 0-9
+                if (isDigit(c)) {
+                    return number();
+                } else if (isAlpha(c)) {
+                    return identifier();
+                } else {
+                    // Note:
+                    // - we consume the unexpected character to prevent
+                    // an infinite loop
+                    // - we continue scanning to provide the user with
+                    // all lexical errors present in one go
+                    // As hadError in Lox still gets set, this is safe.
+                    error(line, "Unexpected character.");
+                    return null;
+                }
+        }
+    }
+
+    /**
+     * Skip the rest of a run of whitespace, counting the newlines in it. Like
+     * the other bulk loops, this scans straight through the buffer, only
+     * stopping at its end to read more.
+     */
+    private void skipWhitespace() {
+        do {
+            char[] chars = buffer;
+            int end = limit;
+            int i = current;
+            while (i < end) {
+                char c = chars[i];
+                if (c == '\n') {
+                    line++;
+                    lineStart = i + 1;
+                } else if (c != ' ' && c != '\r' && c != '\t') {
+                    current = i;
+                    return;
+                }
+                i++;
+            }
+            current = i;
+            // Nothing skipped needs to stay buffered.
+            start = current;
+        } while (fill());
+    }
+
+    /**
+     * Skip the rest of a line comment, up to but not including its newline.
+     */
+    private void skipLineComment() {
+        do {
+            char[] chars = buffer;
+            int end = limit;
+            int i = current;
+            while (i < end && chars[i] != '\n') {
+                i++;
+            }
+            current = i;
+            if (i < end) {
+                return;
+            }
+            // Nothing skipped needs to stay buffered.
+            start = current;
+        } while (fill());
+    }
+
+    /**
+     * Handle scanning identifiers (variable names, true/false, etc).
+     */
+    private TokenType identifier() {
+        do {
+            char[] chars = buffer;
+            int end = limit;
+            int i = current;
+            while (i < end && isAlphaNumeric(chars[i])) {
+                i++;
+            }
+            current = i;
+            if (i < end) {
+                break;
+            }
+        } while (fill());
+
+        // Check if the token is a reserved keyword
+        return keyword(buffer, start, current - start);
+    }
+
+    /**
+     * Classify an identifier as a reserved keyword straight from its
+     * characters, without building a String or hashing it.
+     * 
+     * @param chars  the characters containing the identifier
+     * @param start  offset of the identifier's first character
+     * @param length number of characters in the identifier
+     * @return the keyword's TokenType, or IDENTIFIER if it is not reserved
+     */
+    static TokenType keyword(char[] chars, int start, int length) {
+        switch (chars[start]) {
+            case 'a':
+                return checkKeyword(chars, start, length, "and", TokenType.AND);
+            case 'c':
+                return checkKeyword(chars, start, length, "class", TokenType.CLASS);
+            case 'e':
+                return checkKeyword(chars, start, length, "else", TokenType.ELSE);
+            case 'f':
+                if (length > 1) {
+                    switch (chars[start + 1]) {
+                        case 'a':
+                            return checkKeyword(chars, start, length, "false", TokenType.FALSE);
+                        case 'o':
+                            return checkKeyword(chars, start, length, "for", TokenType.FOR);
+                        case 'u':
+                            return checkKeyword(chars, start, length, "fun", TokenType.FUN);
+                    }
+                }
+                break;
+            case 'i':
+                return checkKeyword(chars, start, length, "if", TokenType.IF);
+            case 'n':
+                return checkKeyword(chars, start, length, "nil", TokenType.NIL);
+            case 'o':
+                return checkKeyword(chars, start, length, "or", TokenType.OR);
+            case 'p':
+                return checkKeyword(chars, start, length, "print", TokenType.PRINT);
+            case 'r':
+                return checkKeyword(chars, start, length, "return", TokenType.RETURN);
+            case 's':
+                return checkKeyword(chars, start, length, "super", TokenType.SUPER);
+            case 't':
+                if (length > 1) {
+                    switch (chars[start + 1]) {
+                        case 'h':
+                            return checkKeyword(chars, start, length, "this", TokenType.THIS);
+                        case 'r':
+                            return checkKeyword(chars, start, length, "true", TokenType.TRUE);
+                    }
+                }
+                break;
+            case 'v':
+                return checkKeyword(chars, start, length, "var", TokenType.VAR);
+            case 'w':
+                return checkKeyword(chars, start, length, "while", TokenType.WHILE);
+        }
+        return TokenType.IDENTIFIER;
+    }
+
+    /**
+     * Check whether an identifier spells out one particular keyword.
+     * 
+     * @param chars   the characters containing the identifier
+     * @param start   offset of the identifier's first character
+     * @param length  number of characters in the identifier
+     * @param keyword the keyword to compare against
+     * @param type    the keyword's TokenType
+     * @return type if the identifier is the keyword; IDENTIFIER otherwise
+     */
+    private static TokenType checkKeyword(
+            char[] chars, int start, int length, String keyword, TokenType type) {
+        if (length != keyword.length()) {
+            return TokenType.IDENTIFIER;
+        }
+        // The first character was already matched by the caller.
+        for (int i = 1; i < length; i++) {
+            if (chars[start + i] != keyword.charAt(i)) {
+                return TokenType.IDENTIFIER;
+            }
+        }
+        return type;
+    }
+
+    /**
+     * Handle scanning number literals.
+     */
+    private TokenType number() {
+        while (isDigit(peek())) {
+            advance();
+        }
+
+        // Look for a fractional part.
+        if (peek() == '.' && isDigit(peekNext())) {
+            // Consume the "."
+            advance();
+
+            while (isDigit(peek())) {
+                advance();
+            }
+        }
+
+        number = Double.parseDouble(lexeme());
+        return TokenType.NUMBER;
+    }
+
+    /**
+     * Handle scanning string literals.
+     */
+    private TokenType string() {
+        int startLine = line;
+        do {
+            char[] chars = buffer;
+            int end = limit;
+            int i = current;
+            while (i < end) {
+                char c = chars[i];
+                if (c == '"') {
+                    break;
+                }
+                if (c == '\n') {
+                    line++;
+                    lineStart = i + 1;
+                }
+                i++;
+            }
+            current = i;
+            if (i < end) {
+                break;
+            }
+        } while (fill());
+
+        if (isAtEnd()) {
+            error(startLine, "Unterminated string.");
+            return null;
+        }
+
+        // The closing ".
+        advance();
+
+        return TokenType.STRING;
+    }
+
+    /**
+     * For multi-character lexemes. Check the following character matches
+     * what we would expect.
+     * 
+     * @param expected the character to match
+     * @return if current matches expected
+     */
+    private boolean match(char expected) {
+        if (isAtEnd()) {
+            return false;
+        }
+        if (buffer[current] != expected) {
+            return false;
+        }
+
+        current++;
+        return true;
+    }
+
+    /**
+     * Return current without consuming it.
+     * 
+     * @return current
+     */
+    private char peek() {
+        if (isAtEnd()) {
+            return '\0';
+        }
+        return buffer[current];
+    }
+
+    /**
+     * Return the character *after* current without consuming it.
+     * 
+     * @return the character after current
+     */
+    private char peekNext() {
+        if (!ensure(2)) {
+            return '\0';
+        }
+        return buffer[current + 1];
+    }
+
+    /**
+     * Return whether c is an alphabetical character.
+     * 
+     * @param c
+     * @return if c is an alphabetical character
+     */
+    private boolean isAlpha(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    /**
+     * Return whether c is an alphanumerical character.
+     * 
+     * @param c
+     * @return if c is an alphanumerical character
+     */
+    private boolean isAlphaNumeric(char c) {
+        return isAlpha(c) || isDigit(c);
+    }
+
+    /**
+     * Return whether c is a numerical digit.
+     * 
+     * @param c the character
+     * @return if c is a numerical digit
+     */
+    private boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Move to the next lexeme
+     * 
+     * @return the first character of the next lexeme
+     */
+    private char advance() {
+        return buffer[current++];
+    }
+
+    /**
+     * Report a lexical error spanning the lexeme being scanned.
+     * 
+     * @param startLine the line the lexeme starts on
+     * @param message   some helpful message for the user
+     */
+    private void error(int startLine, String message) {
+        int endColumn = Math.max(current - lineStart, 1);
+        context.error(startLine, startColumn, line, endColumn, message);
+    }
+
+    /**
+     * Return the raw text of the lexeme being scanned.
+     * 
+     * @return the characters from start up to current
+     */
+    private String lexeme() {
+        return new String(buffer, start, current - start);
+    }
+
+    /**
+     * Build the Token for the lexeme just scanned.
+     * 
+     * @param type see TokenType
+     * @return the scanned Token, with its literal value if it has one
+     */
+    private Token makeToken(TokenType type) {
+        if (type == TokenType.IDENTIFIER) {
+            // Share one String per distinct name.
+            int symbol = symbols.intern(buffer, start, current - start);
+            return new Token(type, symbols.name(symbol), null, line, startColumn, symbol);
+        }
+
+        String text = lexeme();
+        Object literal = null;
+        if (type == TokenType.STRING) {
+            // Trim the surrounding quotes
+            literal = text.substring(1, text.length() - 1);
+        } else if (type == TokenType.NUMBER) {
+            literal = number;
+        }
+        return new Token(type, text, literal, line, startColumn, Token.NO_SYMBOL);
+    }
+}
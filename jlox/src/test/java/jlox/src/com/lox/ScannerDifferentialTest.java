@@ -0,0 +1,128 @@
+package jlox.src.com.lox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the DFA-driven Scanner produces exactly the Tokens and
+ * diagnostics of the hand-written ReferenceScanner it replaced, both from a
+ * whole string and from a Reader that hands over one character at a time.
+ */
+class ScannerDifferentialTest {
+    // Every character a lexeme can start with, and some none can.
+    private static final String ASCII;
+
+    static {
+        StringBuilder ascii = new StringBuilder("\t\n\r");
+        for (char c = ' '; c <= '~'; c++) {
+            ascii.append(c);
+        }
+        ASCII = ascii.append("\u0000\u007f\u00e9\u4e16").toString();
+    }
+
+    @Test
+    void fuzzedSources() {
+        Random random = new Random(22);
+        for (int i = 0; i < 300; i++) {
+            assertSameAsReference(Fuzz.source(random, random.nextInt(3000)));
+        }
+    }
+
+    @Test
+    void largeFuzzedSource() {
+        assertSameAsReference(Fuzz.source(new Random(200_000), 200_000));
+    }
+
+    @Test
+    void everyPairOfCharacters() {
+        for (int i = 0; i < ASCII.length(); i++) {
+            for (int j = 0; j < ASCII.length(); j++) {
+                assertSameAsReference("" + ASCII.charAt(i) + ASCII.charAt(j));
+            }
+        }
+    }
+
+    @Test
+    void everyTripleOfTrickyCharacters() {
+        // Characters that extend, end or back up out of a lexeme.
+        String tricky = "1.a_=!/\"\n\r ";
+        for (char a : tricky.toCharArray()) {
+            for (char b : tricky.toCharArray()) {
+                for (char c : tricky.toCharArray()) {
+                    assertSameAsReference("" + a + b + c);
+                    assertSameAsReference("x " + a + b + c + " 9");
+                }
+            }
+        }
+    }
+
+    @Test
+    void programs() {
+        String program = "var total_3 = count and nil or true;\n"
+                + "print (12.375 + 4096 * 0.5) / -(1 - 2) >= 3 != false;\n"
+                + "// a comment, then more\n"
+                + "fun area(w, h) { return w * h; }\r\n"
+                + "class Pair < Base { init() { this.left = super.right; } }\n"
+                + "if (a <= b) { while (!done) { i = i + 1; } } else { for (;;) {} }\n"
+                + "print \"a string\" + \"spanning\nlines\";\n"
+                + "\tx == y; 1.; 1.a; .5; 007;\n";
+        assertSameAsReference(program);
+        assertSameAsReference(program.repeat(200));
+        assertSameAsReference(program + "\"left open\n");
+    }
+
+    @Test
+    void binaryAndUtf8() {
+        Random random = new Random(8);
+        for (int i = 0; i < 50; i++) {
+            byte[] bytes = new byte[random.nextInt(10_000)];
+            random.nextBytes(bytes);
+            assertSameAsReference(new String(bytes, StandardCharsets.ISO_8859_1));
+            assertSameAsReference(new String(bytes, StandardCharsets.UTF_8));
+        }
+        assertSameAsReference("print \"h\u00e9llo, w\u00f6rld \u4e16\u754c \ud83d\ude00\";\n"
+                + "\u00e9t\u00e9 = 1;\n\ud83d\ude00;\n");
+    }
+
+    /**
+     * Scan a source with both scanners, in whole-string and one-character-
+     * per-read modes, checking the Tokens and diagnostics agree.
+     */
+    private static void assertSameAsReference(String source) {
+        ByteArrayOutputStream expectedErrors = new ByteArrayOutputStream();
+        List<Token> expected = new ReferenceScanner(source, Fuzz.capture(expectedErrors)).scanTokens();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        List<Token> tokens = new Scanner(source, Fuzz.capture(errors)).scanTokens();
+        Fuzz.assertSameTokens(expected, tokens, source);
+        assertEquals(expectedErrors.toString(StandardCharsets.UTF_8), errors.toString(StandardCharsets.UTF_8));
+
+        expectedErrors.reset();
+        expected = new ReferenceScanner(oneCharAtATime(source), Fuzz.capture(expectedErrors)).scanTokens();
+        errors.reset();
+        tokens = new Scanner(oneCharAtATime(source), Fuzz.capture(errors)).scanTokens();
+        Fuzz.assertSameTokens(expected, tokens, source);
+        assertEquals(expectedErrors.toString(StandardCharsets.UTF_8), errors.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Read a source back one character per read, so every lexeme straddles
+     * the end of the scanner's buffer.
+     */
+    private static Reader oneCharAtATime(String source) {
+        return new StringReader(source) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 1));
+            }
+        };
+    }
+}
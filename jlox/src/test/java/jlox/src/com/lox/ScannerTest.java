@@ -0,0 +1,38 @@
+package jlox.src.com.lox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the Scanner's pull-based Token stream.
+ */
+class ScannerTest {
+    @Test
+    void iteratorEndsAfterEof() {
+        Scanner scanner = new Scanner("1 + x");
+        List<TokenType> types = new ArrayList<>();
+        scanner.forEachRemaining(token -> types.add(token.type));
+
+        assertEquals(List.of(TokenType.NUMBER, TokenType.PLUS, TokenType.IDENTIFIER, TokenType.EOF), types);
+        assertFalse(scanner.hasNext());
+        assertThrows(NoSuchElementException.class, scanner::next);
+    }
+
+    @Test
+    void nextTokenRepeatsEof() {
+        Scanner scanner = new Scanner("");
+        assertTrue(scanner.hasNext());
+        assertEquals(TokenType.EOF, scanner.next().type);
+        assertEquals(TokenType.EOF, scanner.nextToken().type);
+        assertEquals(TokenType.EOF, scanner.nextToken().type);
+        assertThrows(NoSuchElementException.class, scanner::next);
+    }
+}
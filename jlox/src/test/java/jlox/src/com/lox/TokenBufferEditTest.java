@@ -0,0 +1,101 @@
+package jlox.src.com.lox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that re-lexing a TokenBuffer after an edit gives the same Tokens as
+ * scanning the edited source from scratch.
+ */
+class TokenBufferEditTest {
+    // Text to insert, chosen to open and close strings and comments, split
+    // and join lexemes, and add and remove lines.
+    private static final String[] INSERTS = {
+            "", "x", "_9", "and", "or", "1", ".", "2.5", "\"", "\"s\"", "\n", "\r\n", " ", "\t", "//", "// c\n",
+            "=", "!", "<=", "/", "@", "\u00e9", "a\nb", "\"\n\"", "1.", "fun (", ")", "\n\n  ",
+    };
+
+    @Test
+    void randomEdits() {
+        Random random = new Random(15);
+        for (int i = 0; i < 200; i++) {
+            String source = Fuzz.source(random, random.nextInt(400));
+            TokenBuffer tokens = new Scanner(source, quiet()).scanTokenBuffer();
+
+            for (int edit = 0; edit < 50; edit++) {
+                int offset = random.nextInt(source.length() + 1);
+                int removed = Math.min(random.nextInt(random.nextBoolean() ? 3 : 40), source.length() - offset);
+                String inserted = random.nextInt(4) == 0
+                        ? Fuzz.source(random, 1 + random.nextInt(5))
+                        : INSERTS[random.nextInt(INSERTS.length)];
+
+                List<Token> before = tokens(tokens);
+                TokenBuffer edited = tokens.edit(offset, removed, inserted);
+                source = source.substring(0, offset) + inserted + source.substring(offset + removed);
+
+                Fuzz.assertSameTokens(rescan(source), tokens(edited), source);
+                // The buffer edited is left as it was.
+                Fuzz.assertSameTokens(before, tokens(tokens), source);
+                tokens = edited;
+            }
+        }
+    }
+
+    @Test
+    void editsThatOpenAndCloseStrings() {
+        String source = "a = \"one\";\nb = 2;\nc = \"three\nlines\nlong\";\nd;\n";
+        TokenBuffer tokens = new Scanner(source, quiet()).scanTokenBuffer();
+        for (int offset = 0; offset <= source.length(); offset++) {
+            for (String inserted : new String[] { "\"", "//", "\n", "x" }) {
+                String edited = source.substring(0, offset) + inserted + source.substring(offset);
+                Fuzz.assertSameTokens(rescan(edited), tokens(tokens.edit(offset, 0, inserted)), edited);
+            }
+            if (offset < source.length()) {
+                String edited = source.substring(0, offset) + source.substring(offset + 1);
+                Fuzz.assertSameTokens(rescan(edited), tokens(tokens.edit(offset, 1, "")), edited);
+            }
+        }
+    }
+
+    /**
+     * Scan a source from scratch, as the edited buffer should have.
+     */
+    private static List<Token> rescan(String source) {
+        return withoutSymbolIds(new Scanner(source, quiet()).scanTokens());
+    }
+
+    /**
+     * Materialize every Token in a buffer.
+     */
+    private static List<Token> tokens(TokenBuffer buffer) {
+        List<Token> tokens = new ArrayList<>();
+        for (int i = 0; i < buffer.size(); i++) {
+            tokens.add(buffer.token(i));
+        }
+        return withoutSymbolIds(tokens);
+    }
+
+    /**
+     * Edits share the buffer's symbol table, so their identifiers are
+     * numbered differently from a fresh scan's; only compare whether each
+     * Token has a symbol.
+     */
+    private static List<Token> withoutSymbolIds(List<Token> tokens) {
+        List<Token> stripped = new ArrayList<>();
+        for (Token token : tokens) {
+            int symbol = token.symbol == Token.NO_SYMBOL ? Token.NO_SYMBOL : 0;
+            stripped.add(new Token(token.type, token.lexeme, token.literal, token.line, token.column, symbol));
+        }
+        return stripped;
+    }
+
+    private static RunContext quiet() {
+        return Fuzz.capture(new ByteArrayOutputStream());
+    }
+}
@@ -0,0 +1,222 @@
+package jlox.src.com.lox;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Random Expr trees for differential tests of the execution modes and passes,
+ * and the means to compare what running them produces.
+ */
+final class Trees {
+    private static final TokenType[] ARITHMETIC = {
+            TokenType.PLUS, TokenType.MINUS, TokenType.STAR, TokenType.SLASH,
+    };
+    private static final TokenType[] COMPARISONS = {
+            TokenType.GREATER, TokenType.GREATER_EQUAL, TokenType.LESS, TokenType.LESS_EQUAL,
+            TokenType.EQUAL_EQUAL, TokenType.BANG_EQUAL,
+    };
+    // Numbers that round, overflow, or are not ordinary.
+    private static final double[] NUMBERS = {
+            0.0, -0.0, 1, 2, 3, 0.5, 0.1, 7.25, 1e308, Double.MIN_VALUE, Double.NaN, Double.POSITIVE_INFINITY,
+    };
+    private static final String[] STRINGS = { "", "a", "b", "ab", "1" };
+
+    // Gives every operator Token its own position, so errors can be told
+    // apart.
+    private static int column = 0;
+
+    /**
+     * What a tree mostly evaluates to. Each subtree is built to produce its
+     * parent's kind, except now and then, so trees are mostly well typed but
+     * still reach every runtime type error.
+     */
+    private enum Kind {
+        NUMBER, STRING, BOOLEAN, ANY
+    }
+
+    private Trees() {
+    }
+
+    /**
+     * The outcome of evaluating a tree: a value, or a runtime error.
+     */
+    static final class Outcome {
+        final Object value;
+        final RuntimeError error;
+
+        private Outcome(Object value, RuntimeError error) {
+            this.value = value;
+            this.error = error;
+        }
+
+        @Override
+        public String toString() {
+            return error == null
+                    ? "value " + Interpreter.stringify(value)
+                    : "error \"" + error.getMessage() + "\" at " + error.token.lexeme + " " + error.token.line + ":"
+                            + error.token.column;
+        }
+    }
+
+    /**
+     * Build a random tree of roughly the given depth.
+     * 
+     * @param random where to draw the tree from
+     * @param nodes  what creates the tree's nodes
+     * @param depth  how deep the tree may go
+     * @return a lox expression, which may fail at runtime
+     */
+    static Expr random(Random random, ExprFactory nodes, int depth) {
+        return random(random, nodes, depth, Kind.values()[random.nextInt(Kind.values().length)]);
+    }
+
+    private static Expr random(Random random, ExprFactory nodes, int depth, Kind kind) {
+        if (random.nextInt(20) == 0) {
+            // Occasionally the wrong kind, to reach the type errors.
+            kind = Kind.ANY;
+        }
+        if (depth <= 0 || random.nextInt(4) == 0) {
+            return literal(random, nodes, kind);
+        }
+
+        switch (kind) {
+            case NUMBER:
+                if (random.nextInt(6) == 0) {
+                    return nodes.unary(token(TokenType.MINUS), random(random, nodes, depth - 1, Kind.NUMBER));
+                }
+                if (random.nextInt(8) == 0) {
+                    return nodes.grouping(random(random, nodes, depth - 1, Kind.NUMBER));
+                }
+                return binary(random, nodes, depth, ARITHMETIC[random.nextInt(ARITHMETIC.length)], Kind.NUMBER);
+            case STRING:
+                return binary(random, nodes, depth, TokenType.PLUS, Kind.STRING);
+            case BOOLEAN:
+                if (random.nextInt(4) == 0) {
+                    return nodes.unary(token(TokenType.BANG), random(random, nodes, depth - 1, Kind.ANY));
+                }
+                TokenType operator = COMPARISONS[random.nextInt(COMPARISONS.length)];
+                boolean equality = operator == TokenType.EQUAL_EQUAL || operator == TokenType.BANG_EQUAL;
+                return binary(random, nodes, depth, operator, equality ? Kind.ANY : Kind.NUMBER);
+            default:
+                return random(random, nodes, depth, Kind.values()[random.nextInt(Kind.ANY.ordinal())]);
+        }
+    }
+
+    private static Expr binary(Random random, ExprFactory nodes, int depth, TokenType operator, Kind operands) {
+        Expr left = random(random, nodes, depth - 1, operands);
+        Token token = token(operator);
+        return nodes.binary(left, token, random(random, nodes, depth - 1, operands));
+    }
+
+    private static Expr literal(Random random, ExprFactory nodes, Kind kind) {
+        if (kind == Kind.ANY) {
+            kind = Kind.values()[random.nextInt(Kind.values().length)];
+        }
+        switch (kind) {
+            case NUMBER:
+                return nodes.numberLiteral(random.nextBoolean()
+                        ? NUMBERS[random.nextInt(NUMBERS.length)]
+                        : random.nextInt(100) / 4.0);
+            case STRING:
+                return nodes.stringLiteral(STRINGS[random.nextInt(STRINGS.length)]);
+            case BOOLEAN:
+                return nodes.boolLiteral(random.nextBoolean());
+            default:
+                return nodes.nilLiteral();
+        }
+    }
+
+    /**
+     * Make an operator Token, as if scanned from a new place in the source.
+     * 
+     * @param type the operator
+     * @return a Token distinct from every other
+     */
+    static synchronized Token token(TokenType type) {
+        column++;
+        String lexeme;
+        switch (type) {
+            case PLUS:
+                lexeme = "+";
+                break;
+            case MINUS:
+                lexeme = "-";
+                break;
+            case STAR:
+                lexeme = "*";
+                break;
+            case SLASH:
+                lexeme = "/";
+                break;
+            case GREATER:
+                lexeme = ">";
+                break;
+            case GREATER_EQUAL:
+                lexeme = ">=";
+                break;
+            case LESS:
+                lexeme = "<";
+                break;
+            case LESS_EQUAL:
+                lexeme = "<=";
+                break;
+            case EQUAL_EQUAL:
+                lexeme = "==";
+                break;
+            case BANG_EQUAL:
+                lexeme = "!=";
+                break;
+            case BANG:
+                lexeme = "!";
+                break;
+            default:
+                lexeme = type.name();
+                break;
+        }
+        return new Token(type, lexeme, null, 1 + column / 1000, 1 + column % 1000, Token.NO_SYMBOL);
+    }
+
+    /**
+     * Run some evaluation, catching the runtime error it may raise.
+     * 
+     * @param evaluation what to run
+     * @return its value or its error
+     */
+    static Outcome run(Supplier<Object> evaluation) {
+        try {
+            return new Outcome(evaluation.get(), null);
+        } catch (RuntimeError error) {
+            return new Outcome(null, error);
+        }
+    }
+
+    /**
+     * Check that two evaluations of a tree gave the same value, or raised the
+     * same error at the same Token. Values are compared as lox compares them,
+     * so NaN matches NaN and 0 does not match -0.
+     * 
+     * @param expected the outcome of the reference evaluation
+     * @param actual   the outcome under test
+     * @param tree     the tree evaluated, to show on failure
+     */
+    static void assertSameOutcome(Outcome expected, Outcome actual, Expr tree) {
+        Supplier<String> where = () -> new AstPrinter().print(tree);
+        if (expected.error == null) {
+            assertEquals(expected.toString(), actual.toString(), where);
+            assertEquals(type(expected.value), type(actual.value), where);
+            assertTrue(Objects.equals(expected.value, actual.value), where);
+            return;
+        }
+        assertEquals(expected.toString(), actual.toString(), where);
+        assertSame(expected.error.token, actual.error.token, where);
+    }
+
+    private static String type(Object value) {
+        return value == null ? "nil" : value.getClass().getSimpleName();
+    }
+}
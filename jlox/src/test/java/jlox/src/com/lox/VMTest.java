@@ -0,0 +1,69 @@
+package jlox.src.com.lox;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.lang.reflect.Field;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that compiling to bytecode and running it on the VM gives exactly
+ * the tree-walking Interpreter's values and runtime errors, and that the VM
+ * lets go of the values on its stack however a run ends.
+ */
+class VMTest {
+    private final Interpreter reference = new Interpreter(Interpreter.Mode.TREE);
+
+    @Test
+    void randomTrees() throws ReflectiveOperationException {
+        Random random = new Random(10);
+        // One VM throughout, as an Interpreter uses, so runs follow failed runs.
+        VM vm = new VM();
+        for (int i = 0; i < 200_000; i++) {
+            Expr tree = Trees.random(random, ExprFactory.PLAIN, 1 + random.nextInt(7));
+            Chunk chunk = BytecodeCompiler.compile(tree);
+            Trees.assertSameOutcome(Trees.run(() -> reference.evaluate(tree)), Trees.run(() -> vm.run(chunk)), tree);
+            assertStackCleared(vm, tree);
+        }
+    }
+
+    @Test
+    void deepTrees() throws ReflectiveOperationException {
+        Random random = new Random(11);
+        VM vm = new VM();
+        TokenType[] operators = { TokenType.PLUS, TokenType.MINUS, TokenType.STAR, TokenType.EQUAL_EQUAL };
+        for (int i = 0; i < 200; i++) {
+            // Nested to the right, so the stack grows past its initial size.
+            Expr tree = Trees.random(random, ExprFactory.PLAIN, 3);
+            for (int level = 0; level < 100; level++) {
+                Token operator = Trees.token(operators[random.nextInt(operators.length)]);
+                tree = new Expr.Binary(Trees.random(random, ExprFactory.PLAIN, 2), operator, tree);
+            }
+            Expr deep = tree;
+            Chunk chunk = BytecodeCompiler.compile(deep);
+            Trees.assertSameOutcome(Trees.run(() -> reference.evaluate(deep)), Trees.run(() -> vm.run(chunk)), deep);
+            assertStackCleared(vm, deep);
+        }
+    }
+
+    @Test
+    void interpreterMode() {
+        Random random = new Random(12);
+        Interpreter interpreter = new Interpreter(Interpreter.Mode.VM);
+        for (int i = 0; i < 20_000; i++) {
+            Expr tree = Trees.random(random, ExprFactory.PLAIN, 1 + random.nextInt(7));
+            Trees.assertSameOutcome(Trees.run(() -> reference.evaluate(tree)),
+                    Trees.run(() -> interpreter.execute(tree)), tree);
+        }
+    }
+
+    private static void assertStackCleared(VM vm, Expr tree) throws ReflectiveOperationException {
+        Field field = VM.class.getDeclaredField("objects");
+        field.setAccessible(true);
+        Object[] objects = (Object[]) field.get(vm);
+        for (int slot = 0; slot < objects.length; slot++) {
+            assertNull(objects[slot], () -> new AstPrinter().print(tree));
+        }
+    }
+}